@@ -0,0 +1,3 @@
+-- 为已有库的operation_log增加cmd_id索引
+-- /result消息按cmd_id回写执行结果，无索引时每条结果都是全表扫描
+ALTER TABLE operation_log ADD INDEX idx_cmd_id (cmd_id);
@@ -0,0 +1,13 @@
+-- 新增拍照图片元数据表(图片库键集分页查询)
+CREATE TABLE IF NOT EXISTS photo (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+    client_id VARCHAR(64) NOT NULL COMMENT '设备ID',
+    cmd_id BIGINT DEFAULT NULL COMMENT '拍照指令ID',
+    file_name VARCHAR(128) NOT NULL COMMENT '文件名',
+    size BIGINT NOT NULL COMMENT '文件大小(bytes)',
+    width INT DEFAULT NULL COMMENT '宽度(像素)',
+    height INT DEFAULT NULL COMMENT '高度(像素)',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '拍摄时间',
+    UNIQUE KEY uk_file_name (file_name),
+    INDEX idx_client_id_id (client_id, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='拍照图片元数据表';
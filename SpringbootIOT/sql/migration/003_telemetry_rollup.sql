@@ -0,0 +1,66 @@
+-- 新增遥测分钟/小时/日聚合表(入库时增量维护，区间查询按跨度选择粒度)
+CREATE TABLE IF NOT EXISTS telemetry_rollup_minute (
+    client_id VARCHAR(64) NOT NULL COMMENT '设备ID',
+    bucket_time DATETIME NOT NULL COMMENT '时间桶起点',
+    temp_min DECIMAL(5,2) DEFAULT NULL COMMENT '温度最小值(℃)',
+    temp_max DECIMAL(5,2) DEFAULT NULL COMMENT '温度最大值(℃)',
+    temp_sum DOUBLE NOT NULL DEFAULT 0 COMMENT '温度累加和',
+    temp_count INT NOT NULL DEFAULT 0 COMMENT '温度采样数',
+    hum_min DECIMAL(5,2) DEFAULT NULL COMMENT '湿度最小值(%)',
+    hum_max DECIMAL(5,2) DEFAULT NULL COMMENT '湿度最大值(%)',
+    hum_sum DOUBLE NOT NULL DEFAULT 0 COMMENT '湿度累加和',
+    hum_count INT NOT NULL DEFAULT 0 COMMENT '湿度采样数',
+    rssi_min INT DEFAULT NULL COMMENT 'RSSI最小值(dBm)',
+    rssi_max INT DEFAULT NULL COMMENT 'RSSI最大值(dBm)',
+    rssi_sum BIGINT NOT NULL DEFAULT 0 COMMENT 'RSSI累加和',
+    rssi_count INT NOT NULL DEFAULT 0 COMMENT 'RSSI采样数',
+    heap_min INT DEFAULT NULL COMMENT '空闲内存最小值(bytes)',
+    heap_max INT DEFAULT NULL COMMENT '空闲内存最大值(bytes)',
+    heap_sum BIGINT NOT NULL DEFAULT 0 COMMENT '空闲内存累加和',
+    heap_count INT NOT NULL DEFAULT 0 COMMENT '空闲内存采样数',
+    PRIMARY KEY (client_id, bucket_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='遥测分钟聚合表';
+
+CREATE TABLE IF NOT EXISTS telemetry_rollup_hour (
+    client_id VARCHAR(64) NOT NULL COMMENT '设备ID',
+    bucket_time DATETIME NOT NULL COMMENT '时间桶起点',
+    temp_min DECIMAL(5,2) DEFAULT NULL COMMENT '温度最小值(℃)',
+    temp_max DECIMAL(5,2) DEFAULT NULL COMMENT '温度最大值(℃)',
+    temp_sum DOUBLE NOT NULL DEFAULT 0 COMMENT '温度累加和',
+    temp_count INT NOT NULL DEFAULT 0 COMMENT '温度采样数',
+    hum_min DECIMAL(5,2) DEFAULT NULL COMMENT '湿度最小值(%)',
+    hum_max DECIMAL(5,2) DEFAULT NULL COMMENT '湿度最大值(%)',
+    hum_sum DOUBLE NOT NULL DEFAULT 0 COMMENT '湿度累加和',
+    hum_count INT NOT NULL DEFAULT 0 COMMENT '湿度采样数',
+    rssi_min INT DEFAULT NULL COMMENT 'RSSI最小值(dBm)',
+    rssi_max INT DEFAULT NULL COMMENT 'RSSI最大值(dBm)',
+    rssi_sum BIGINT NOT NULL DEFAULT 0 COMMENT 'RSSI累加和',
+    rssi_count INT NOT NULL DEFAULT 0 COMMENT 'RSSI采样数',
+    heap_min INT DEFAULT NULL COMMENT '空闲内存最小值(bytes)',
+    heap_max INT DEFAULT NULL COMMENT '空闲内存最大值(bytes)',
+    heap_sum BIGINT NOT NULL DEFAULT 0 COMMENT '空闲内存累加和',
+    heap_count INT NOT NULL DEFAULT 0 COMMENT '空闲内存采样数',
+    PRIMARY KEY (client_id, bucket_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='遥测小时聚合表';
+
+CREATE TABLE IF NOT EXISTS telemetry_rollup_day (
+    client_id VARCHAR(64) NOT NULL COMMENT '设备ID',
+    bucket_time DATETIME NOT NULL COMMENT '时间桶起点',
+    temp_min DECIMAL(5,2) DEFAULT NULL COMMENT '温度最小值(℃)',
+    temp_max DECIMAL(5,2) DEFAULT NULL COMMENT '温度最大值(℃)',
+    temp_sum DOUBLE NOT NULL DEFAULT 0 COMMENT '温度累加和',
+    temp_count INT NOT NULL DEFAULT 0 COMMENT '温度采样数',
+    hum_min DECIMAL(5,2) DEFAULT NULL COMMENT '湿度最小值(%)',
+    hum_max DECIMAL(5,2) DEFAULT NULL COMMENT '湿度最大值(%)',
+    hum_sum DOUBLE NOT NULL DEFAULT 0 COMMENT '湿度累加和',
+    hum_count INT NOT NULL DEFAULT 0 COMMENT '湿度采样数',
+    rssi_min INT DEFAULT NULL COMMENT 'RSSI最小值(dBm)',
+    rssi_max INT DEFAULT NULL COMMENT 'RSSI最大值(dBm)',
+    rssi_sum BIGINT NOT NULL DEFAULT 0 COMMENT 'RSSI累加和',
+    rssi_count INT NOT NULL DEFAULT 0 COMMENT 'RSSI采样数',
+    heap_min INT DEFAULT NULL COMMENT '空闲内存最小值(bytes)',
+    heap_max INT DEFAULT NULL COMMENT '空闲内存最大值(bytes)',
+    heap_sum BIGINT NOT NULL DEFAULT 0 COMMENT '空闲内存累加和',
+    heap_count INT NOT NULL DEFAULT 0 COMMENT '空闲内存采样数',
+    PRIMARY KEY (client_id, bucket_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='遥测日聚合表';
@@ -0,0 +1,15 @@
+-- 原始数据表改用(client_id, create_time)联合索引
+-- WHERE client_id=? ORDER BY create_time DESC LIMIT n 沿索引倒序直接读出前n条，不再filesort；
+-- dht_data/device_status_history在索引末尾附带图表读数列，区间统计和流式降采样只读索引不回表
+-- idx_client_id是新索引的最左前缀，一并删除；idx_create_time保留给保留清理任务按时间定位过期行
+ALTER TABLE dht_data
+    ADD INDEX idx_client_time (client_id, create_time, temperature, humidity),
+    DROP INDEX idx_client_id;
+
+ALTER TABLE device_status_history
+    ADD INDEX idx_client_time (client_id, create_time, rssi, free_heap),
+    DROP INDEX idx_client_id;
+
+ALTER TABLE operation_log
+    ADD INDEX idx_client_time (client_id, create_time),
+    DROP INDEX idx_client_id;
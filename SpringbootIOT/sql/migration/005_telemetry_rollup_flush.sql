@@ -0,0 +1,9 @@
+-- 遥测聚合写库标记: 每个服务实例一行，与聚合行在同一事务中更新
+-- 提交时连接异常、结果未知时据此判断这一批是否已落库，避免放回内存后重复累加
+-- 实例正常停止时删除自己的行，异常退出留下的行由保留清理按update_time删除
+CREATE TABLE IF NOT EXISTS telemetry_rollup_flush (
+    instance_id CHAR(36) NOT NULL COMMENT '服务实例ID(启动时生成)',
+    flush_seq BIGINT NOT NULL COMMENT '最近一次提交的批次序号',
+    update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (instance_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='遥测聚合写库标记表';
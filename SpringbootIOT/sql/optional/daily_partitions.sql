@@ -0,0 +1,20 @@
+-- 可选: 原始数据表按天RANGE分区，过期数据整天DROP PARTITION，不再逐行删除
+-- 配合 retention.partition.enabled: true 使用，保留清理任务会自动预建未来几天的分区(pYYYYMMDD)并删除过期分区
+-- MySQL要求分区列包含在每个唯一键中，因此主键改为(id, create_time)
+-- 大表执行ALTER耗时较长且会重建整表，请在低峰期执行并提前备份
+-- 执行后全部历史数据都在pmax中，第一次清理时从pmax拆出当天分区(当天及之前的数据都归入该分区)
+
+ALTER TABLE dht_data DROP PRIMARY KEY, ADD PRIMARY KEY (id, create_time);
+ALTER TABLE dht_data PARTITION BY RANGE COLUMNS(create_time) (
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
+
+ALTER TABLE device_status_history DROP PRIMARY KEY, ADD PRIMARY KEY (id, create_time);
+ALTER TABLE device_status_history PARTITION BY RANGE COLUMNS(create_time) (
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
+
+ALTER TABLE operation_log DROP PRIMARY KEY, ADD PRIMARY KEY (id, create_time);
+ALTER TABLE operation_log PARTITION BY RANGE COLUMNS(create_time) (
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
@@ -5,11 +5,12 @@ CREATE TABLE IF NOT EXISTS operation_log (
     operation VARCHAR(32) NOT NULL COMMENT '操作类型(capture/led/led_brightness等)',
     operation_desc VARCHAR(255) NOT NULL COMMENT '操作描述(中文)',
     cmd_id BIGINT NOT NULL COMMENT '指令ID',
-    result VARCHAR(16) NOT NULL COMMENT '执行结果(success/failed)',
+    result VARCHAR(16) NOT NULL COMMENT '执行结果(pending/success/failed/timeout)',
     result_msg VARCHAR(512) COMMENT '结果消息(中文)',
     create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    INDEX idx_client_id (client_id),
-    INDEX idx_create_time (create_time)
+    INDEX idx_client_time (client_id, create_time),
+    INDEX idx_create_time (create_time),
+    INDEX idx_cmd_id (cmd_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='设备操作日志表';
 
 -- 设备状态历史表（存储rssi和freeHeap用于折线图展示）
@@ -20,7 +21,7 @@ CREATE TABLE IF NOT EXISTS device_status_history (
     free_heap INT NOT NULL COMMENT '空闲内存(bytes)',
     uptime BIGINT NOT NULL COMMENT '运行时间(秒)',
     create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    INDEX idx_client_id (client_id),
+    INDEX idx_client_time (client_id, create_time, rssi, free_heap),
     INDEX idx_create_time (create_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='设备状态历史表';
 
@@ -48,6 +49,97 @@ CREATE TABLE IF NOT EXISTS dht_data (
     humidity DECIMAL(5,2) NOT NULL COMMENT '湿度(%)',
     light_dark TINYINT(1) DEFAULT NULL COMMENT '是否暗(1=暗,0=亮)',
     create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '采集时间',
-    INDEX idx_client_id (client_id),
+    INDEX idx_client_time (client_id, create_time, temperature, humidity),
     INDEX idx_create_time (create_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='DHT22温湿度和光照数据表';
+
+-- 拍照图片元数据表
+CREATE TABLE IF NOT EXISTS photo (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+    client_id VARCHAR(64) NOT NULL COMMENT '设备ID',
+    cmd_id BIGINT DEFAULT NULL COMMENT '拍照指令ID',
+    file_name VARCHAR(128) NOT NULL COMMENT '文件名',
+    size BIGINT NOT NULL COMMENT '文件大小(bytes)',
+    width INT DEFAULT NULL COMMENT '宽度(像素)',
+    height INT DEFAULT NULL COMMENT '高度(像素)',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '拍摄时间',
+    UNIQUE KEY uk_file_name (file_name),
+    INDEX idx_client_id_id (client_id, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='拍照图片元数据表';
+
+-- 遥测聚合表(分钟/小时/日，存最小/最大/累加和/采样数，可增量合并)
+CREATE TABLE IF NOT EXISTS telemetry_rollup_minute (
+    client_id VARCHAR(64) NOT NULL COMMENT '设备ID',
+    bucket_time DATETIME NOT NULL COMMENT '时间桶起点',
+    temp_min DECIMAL(5,2) DEFAULT NULL COMMENT '温度最小值(℃)',
+    temp_max DECIMAL(5,2) DEFAULT NULL COMMENT '温度最大值(℃)',
+    temp_sum DOUBLE NOT NULL DEFAULT 0 COMMENT '温度累加和',
+    temp_count INT NOT NULL DEFAULT 0 COMMENT '温度采样数',
+    hum_min DECIMAL(5,2) DEFAULT NULL COMMENT '湿度最小值(%)',
+    hum_max DECIMAL(5,2) DEFAULT NULL COMMENT '湿度最大值(%)',
+    hum_sum DOUBLE NOT NULL DEFAULT 0 COMMENT '湿度累加和',
+    hum_count INT NOT NULL DEFAULT 0 COMMENT '湿度采样数',
+    rssi_min INT DEFAULT NULL COMMENT 'RSSI最小值(dBm)',
+    rssi_max INT DEFAULT NULL COMMENT 'RSSI最大值(dBm)',
+    rssi_sum BIGINT NOT NULL DEFAULT 0 COMMENT 'RSSI累加和',
+    rssi_count INT NOT NULL DEFAULT 0 COMMENT 'RSSI采样数',
+    heap_min INT DEFAULT NULL COMMENT '空闲内存最小值(bytes)',
+    heap_max INT DEFAULT NULL COMMENT '空闲内存最大值(bytes)',
+    heap_sum BIGINT NOT NULL DEFAULT 0 COMMENT '空闲内存累加和',
+    heap_count INT NOT NULL DEFAULT 0 COMMENT '空闲内存采样数',
+    PRIMARY KEY (client_id, bucket_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='遥测分钟聚合表';
+
+CREATE TABLE IF NOT EXISTS telemetry_rollup_hour (
+    client_id VARCHAR(64) NOT NULL COMMENT '设备ID',
+    bucket_time DATETIME NOT NULL COMMENT '时间桶起点',
+    temp_min DECIMAL(5,2) DEFAULT NULL COMMENT '温度最小值(℃)',
+    temp_max DECIMAL(5,2) DEFAULT NULL COMMENT '温度最大值(℃)',
+    temp_sum DOUBLE NOT NULL DEFAULT 0 COMMENT '温度累加和',
+    temp_count INT NOT NULL DEFAULT 0 COMMENT '温度采样数',
+    hum_min DECIMAL(5,2) DEFAULT NULL COMMENT '湿度最小值(%)',
+    hum_max DECIMAL(5,2) DEFAULT NULL COMMENT '湿度最大值(%)',
+    hum_sum DOUBLE NOT NULL DEFAULT 0 COMMENT '湿度累加和',
+    hum_count INT NOT NULL DEFAULT 0 COMMENT '湿度采样数',
+    rssi_min INT DEFAULT NULL COMMENT 'RSSI最小值(dBm)',
+    rssi_max INT DEFAULT NULL COMMENT 'RSSI最大值(dBm)',
+    rssi_sum BIGINT NOT NULL DEFAULT 0 COMMENT 'RSSI累加和',
+    rssi_count INT NOT NULL DEFAULT 0 COMMENT 'RSSI采样数',
+    heap_min INT DEFAULT NULL COMMENT '空闲内存最小值(bytes)',
+    heap_max INT DEFAULT NULL COMMENT '空闲内存最大值(bytes)',
+    heap_sum BIGINT NOT NULL DEFAULT 0 COMMENT '空闲内存累加和',
+    heap_count INT NOT NULL DEFAULT 0 COMMENT '空闲内存采样数',
+    PRIMARY KEY (client_id, bucket_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='遥测小时聚合表';
+
+CREATE TABLE IF NOT EXISTS telemetry_rollup_day (
+    client_id VARCHAR(64) NOT NULL COMMENT '设备ID',
+    bucket_time DATETIME NOT NULL COMMENT '时间桶起点',
+    temp_min DECIMAL(5,2) DEFAULT NULL COMMENT '温度最小值(℃)',
+    temp_max DECIMAL(5,2) DEFAULT NULL COMMENT '温度最大值(℃)',
+    temp_sum DOUBLE NOT NULL DEFAULT 0 COMMENT '温度累加和',
+    temp_count INT NOT NULL DEFAULT 0 COMMENT '温度采样数',
+    hum_min DECIMAL(5,2) DEFAULT NULL COMMENT '湿度最小值(%)',
+    hum_max DECIMAL(5,2) DEFAULT NULL COMMENT '湿度最大值(%)',
+    hum_sum DOUBLE NOT NULL DEFAULT 0 COMMENT '湿度累加和',
+    hum_count INT NOT NULL DEFAULT 0 COMMENT '湿度采样数',
+    rssi_min INT DEFAULT NULL COMMENT 'RSSI最小值(dBm)',
+    rssi_max INT DEFAULT NULL COMMENT 'RSSI最大值(dBm)',
+    rssi_sum BIGINT NOT NULL DEFAULT 0 COMMENT 'RSSI累加和',
+    rssi_count INT NOT NULL DEFAULT 0 COMMENT 'RSSI采样数',
+    heap_min INT DEFAULT NULL COMMENT '空闲内存最小值(bytes)',
+    heap_max INT DEFAULT NULL COMMENT '空闲内存最大值(bytes)',
+    heap_sum BIGINT NOT NULL DEFAULT 0 COMMENT '空闲内存累加和',
+    heap_count INT NOT NULL DEFAULT 0 COMMENT '空闲内存采样数',
+    PRIMARY KEY (client_id, bucket_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='遥测日聚合表';
+
+-- 遥测聚合写库标记: 每个服务实例一行，与聚合行在同一事务中更新
+-- 提交时连接异常、结果未知时据此判断这一批是否已落库，避免放回内存后重复累加
+-- 实例正常停止时删除自己的行，异常退出留下的行由保留清理按update_time删除
+CREATE TABLE IF NOT EXISTS telemetry_rollup_flush (
+    instance_id CHAR(36) NOT NULL COMMENT '服务实例ID(启动时生成)',
+    flush_seq BIGINT NOT NULL COMMENT '最近一次提交的批次序号',
+    update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (instance_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='遥测聚合写库标记表';
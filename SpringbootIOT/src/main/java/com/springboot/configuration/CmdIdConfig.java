@@ -0,0 +1,41 @@
+package com.springboot.configuration;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.springboot.mapper.OperationLogMapper;
+import com.springboot.pojo.OperationLog;
+import com.springboot.utils.CmdIdAllocator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 指令ID分配器配置
+ * 启动时以最近一条操作日志的cmdId为基准继续分配，保证重启后不与仍在等待回执的旧指令冲突
+ */
+@Slf4j
+@Configuration
+public class CmdIdConfig {
+
+    /** 重启后跳过的ID数，覆盖未写入日志的指令(如自动化指令) */
+    private static final long SEED_GAP = 100000;
+
+    @Bean
+    public CmdIdAllocator cmdIdAllocator(OperationLogMapper operationLogMapper) {
+        long seed;
+        try {
+            LambdaQueryWrapper<OperationLog> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(OperationLog::getCmdId);
+            wrapper.gt(OperationLog::getCmdId, 0);
+            wrapper.orderByDesc(OperationLog::getId);
+            wrapper.last("LIMIT 1");
+            OperationLog last = operationLogMapper.selectOne(wrapper);
+            seed = last != null ? last.getCmdId() + SEED_GAP : CmdIdAllocator.clockSeed();
+        } catch (Exception e) {
+            log.warn("读取最近指令ID失败，使用时钟种子: {}", e.getMessage());
+            seed = CmdIdAllocator.clockSeed();
+        }
+        CmdIdAllocator allocator = new CmdIdAllocator(seed);
+        log.info("指令ID分配器初始化: seed={}", CmdIdAllocator.normalize(seed));
+        return allocator;
+    }
+}
@@ -64,4 +64,9 @@ public class MqttConfig {
     public MessageChannel mqttInputChannel() {
         return new DirectChannel();
     }
+    /* 处理通道：由MqttIngestDispatcher分发后进入业务处理 */
+    @Bean
+    public MessageChannel mqttProcessChannel() {
+        return new DirectChannel();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,205 @@
+package com.springboot.configuration;
+
+import com.springboot.pojo.vo.IngestStatsResponse;
+import com.springboot.utils.MqttTopics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MQTT入站消息分发器
+ * direct模式: 在Paho回调线程中同步处理(原有行为)
+ * partitioned模式: 按clientId哈希分片到固定工作线程(lane)，
+ * 同一设备的消息始终进入同一个lane，保证单设备内顺序，不同设备并行处理
+ * 依赖消息处理和写缓冲区所在的服务，关闭时先销毁本分发器(lane处理完剩余消息)，再关闭写缓冲区
+ */
+@Slf4j
+@Component
+@DependsOn({"camServiceImpl", "dhtDataServiceImpl", "deviceStatusHistoryServiceImpl"})
+public class MqttIngestDispatcher {
+
+    @Autowired
+    @Qualifier("mqttProcessChannel")
+    private MessageChannel mqttProcessChannel;
+
+    /** 分发模式: direct / partitioned */
+    @Value("${mqtt.inbound.mode:partitioned}")
+    private String mode;
+
+    /** 工作线程(lane)数量 */
+    @Value("${mqtt.inbound.lanes:4}")
+    private int laneCount;
+
+    /** 每个lane的队列容量 */
+    @Value("${mqtt.inbound.queue-capacity:1000}")
+    private int queueCapacity;
+
+    /** 队列满时Paho线程最长阻塞时间(ms)，超时则丢弃消息 */
+    @Value("${mqtt.inbound.offer-timeout-ms:2000}")
+    private long offerTimeoutMs;
+
+    private final List<Lane> lanes = new ArrayList<>();
+
+    /** 已接收消息数 */
+    private final AtomicLong received = new AtomicLong();
+    /** 队列满被丢弃的消息数 */
+    private final AtomicLong rejected = new AtomicLong();
+    /** 触发背压(队列满需要等待)的次数 */
+    private final AtomicLong backpressureWaits = new AtomicLong();
+    /** 背压累计等待时间(ms) */
+    private final AtomicLong backpressureWaitMs = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void init() {
+        if (!isPartitioned()) {
+            log.info("MQTT入站分发模式: direct");
+            return;
+        }
+        for (int i = 0; i < laneCount; i++) {
+            Lane lane = new Lane(i, queueCapacity);
+            lanes.add(lane);
+            lane.thread.start();
+        }
+        log.info("MQTT入站分发模式: partitioned, lanes={}, queueCapacity={}", laneCount, queueCapacity);
+    }
+
+    /**
+     * 接收适配器投递的消息并分发到处理通道
+     */
+    @ServiceActivator(inputChannel = "mqttInputChannel")
+    public void dispatch(Message<?> msg) {
+        received.incrementAndGet();
+        if (!isPartitioned()) {
+            mqttProcessChannel.send(msg);
+            return;
+        }
+
+        String topic = (String) msg.getHeaders().get(MqttHeaders.RECEIVED_TOPIC);
+        Lane lane = lanes.get(Math.floorMod(MqttTopics.clientIdOf(topic).hashCode(), lanes.size()));
+
+        if (lane.queue.offer(msg)) {
+            return;
+        }
+        // 队列已满：阻塞Paho线程形成背压，超时仍放不进则丢弃
+        backpressureWaits.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            boolean ok = lane.queue.offer(msg, offerTimeoutMs, TimeUnit.MILLISECONDS);
+            if (!ok) {
+                rejected.incrementAndGet();
+                log.warn("MQTT入站队列已满，丢弃消息: lane={}, topic={}", lane.index, topic);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.incrementAndGet();
+        } finally {
+            backpressureWaitMs.addAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * 获取分发统计信息
+     */
+    public IngestStatsResponse getStats() {
+        List<IngestStatsResponse.LaneStats> laneStats = new ArrayList<>();
+        for (Lane lane : lanes) {
+            laneStats.add(IngestStatsResponse.LaneStats.builder()
+                    .index(lane.index)
+                    .queueSize(lane.queue.size())
+                    .capacity(queueCapacity)
+                    .processed(lane.processed.get())
+                    .failed(lane.failed.get())
+                    .build());
+        }
+        return IngestStatsResponse.builder()
+                .mode(isPartitioned() ? "partitioned" : "direct")
+                .received(received.get())
+                .rejected(rejected.get())
+                .backpressureWaits(backpressureWaits.get())
+                .backpressureWaitMs(backpressureWaitMs.get())
+                .lanes(laneStats)
+                .build();
+    }
+
+    /**
+     * 停止接收并尽量处理完队列中剩余消息
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        for (Lane lane : lanes) {
+            try {
+                lane.thread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (lane.thread.isAlive()) {
+                log.warn("MQTT入站lane {} 未能在超时内处理完, 剩余 {} 条", lane.index, lane.queue.size());
+                lane.thread.interrupt();
+            }
+        }
+    }
+
+    private boolean isPartitioned() {
+        return "partitioned".equalsIgnoreCase(mode) && laneCount > 0;
+    }
+
+    /**
+     * 单个工作通道：一个有界队列 + 一个消费线程
+     */
+    private class Lane {
+        final int index;
+        final BlockingQueue<Message<?>> queue;
+        final Thread thread;
+        final AtomicLong processed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+
+        Lane(int index, int capacity) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this::run, "mqtt-lane-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            while (running || !queue.isEmpty()) {
+                Message<?> msg;
+                try {
+                    msg = queue.poll(500, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (msg == null) {
+                    continue;
+                }
+                try {
+                    mqttProcessChannel.send(msg);
+                    processed.incrementAndGet();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    log.error("MQTT消息处理失败: lane={}, error={}", index, e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
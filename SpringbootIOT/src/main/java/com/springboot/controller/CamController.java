@@ -1,29 +1,34 @@
 package com.springboot.controller;
 
 import com.springboot.pojo.Query.*;
+import com.springboot.pojo.ResultDto;
 import com.springboot.pojo.vo.DeviceStatusResponse;
 import com.springboot.utils.Result;
 import com.springboot.service.CamService;
+import com.springboot.service.PhotoService;
+import com.springboot.service.PhotoStorageService;
 import com.springboot.service.SseService;
+import com.springboot.service.ThumbnailService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * ESP32-CAM 控制接口
+ * 控制类接口支持可选参数wait(ms)：传入时异步等待设备回执并返回执行结果(等待期间不占用请求线程)
  */
 @Slf4j
 @Validated
@@ -38,61 +43,76 @@ public class CamController {
     @Autowired
     private SseService sseService;
     
-    /** 图片保存目录 */
-    @Value("${photos-dir:photos}")
-    private String photosDir;
+    @Autowired
+    private PhotoStorageService photoStorageService;
+    
+    @Autowired
+    private ThumbnailService thumbnailService;
+    
+    @Autowired
+    private PhotoService photoService;
+    
+    /** 同步等待设备回执的最长时间(ms)，wait参数超过该值按该值处理 */
+    @Value("${command.max-wait-ms:15000}")
+    private long maxWaitMs;
 
     /**
      * 触发拍照
      */
     @PostMapping("/capture/{clientId}")
-    public Result<String> capture(@PathVariable @NotBlank String clientId) {
-        String cmdId = camService.triggerCapture(clientId);
-        return Result.success("拍照指令已发送", cmdId);
+    public CompletableFuture<Result<String>> capture(
+            @PathVariable @NotBlank String clientId,
+            @RequestParam(required = false) Long wait) {
+        long cmdId = camService.triggerCapture(clientId);
+        return reply("拍照指令已发送", cmdId, wait);
     }
 
     /**
      * 控制LED开关
      */
     @PostMapping("/led/{clientId}")
-    public Result<String> led(
+    public CompletableFuture<Result<String>> led(
             @PathVariable @NotBlank String clientId,
-            @RequestBody @Valid LedRequest request) {
-        String cmdId = camService.controlLed(clientId, request.getValue());
-        return Result.success("LED控制指令已发送", cmdId);
+            @RequestBody @Valid LedRequest request,
+            @RequestParam(required = false) Long wait) {
+        long cmdId = camService.controlLed(clientId, request.getValue());
+        return reply("LED控制指令已发送", cmdId, wait);
     }
 
     /**
      * 设置LED亮度
      */
     @PostMapping("/led-brightness/{clientId}")
-    public Result<String> ledBrightness(
+    public CompletableFuture<Result<String>> ledBrightness(
             @PathVariable @NotBlank String clientId,
-            @RequestBody @Valid LedBrightnessRequest request) {
-        String cmdId = camService.setLedBrightness(clientId, request.getBrightness());
-        return Result.success("LED亮度指令已发送", cmdId);
+            @RequestBody @Valid LedBrightnessRequest request,
+            @RequestParam(required = false) Long wait) {
+        long cmdId = camService.setLedBrightness(clientId, request.getBrightness());
+        return reply("LED亮度指令已发送", cmdId, wait);
     }
 
     /**
      * 控制红色指示灯开关
      */
     @PostMapping("/red-led/{clientId}")
-    public Result<String> redLed(
+    public CompletableFuture<Result<String>> redLed(
             @PathVariable @NotBlank String clientId,
-            @RequestBody @Valid LedRequest request) {
-        String cmdId = camService.controlRedLed(clientId, request.getValue());
-        return Result.success("红色指示灯指令已发送", cmdId);
+            @RequestBody @Valid LedRequest request,
+            @RequestParam(required = false) Long wait) {
+        long cmdId = camService.controlRedLed(clientId, request.getValue());
+        return reply("红色指示灯指令已发送", cmdId, wait);
     }
 
     /**
      * 设置摄像头参数
      */
     @PostMapping("/param/{clientId}")
-    public Result<String> setParam(
+    public CompletableFuture<Result<String>> setParam(
             @PathVariable @NotBlank String clientId,
-            @RequestBody @Valid CameraParamRequest request) {
-        String cmdId = camService.setCameraParam(clientId, request.getName(), request.getValue());
-        return Result.success("参数设置指令已发送", cmdId);
+            @RequestBody @Valid CameraParamRequest request,
+            @RequestParam(required = false) Long wait) {
+        long cmdId = camService.setCameraParam(clientId, request.getName(), request.getValue());
+        return reply("参数设置指令已发送", cmdId, wait);
     }
 
     /**
@@ -108,182 +128,256 @@ public class CamController {
      * 设置视频流分辨率
      */
     @PostMapping("/stream-resolution/{clientId}")
-    public Result<String> setStreamResolution(
+    public CompletableFuture<Result<String>> setStreamResolution(
             @PathVariable @NotBlank String clientId,
-            @RequestBody @Valid ResolutionRequest request) {
-        String cmdId = camService.setStreamResolution(clientId, request.getFramesize());
+            @RequestBody @Valid ResolutionRequest request,
+            @RequestParam(required = false) Long wait) {
+        long cmdId = camService.setStreamResolution(clientId, request.getFramesize());
         String resolution = request.getFramesize() == 7 ? "480p" 
             : request.getFramesize() == 11 ? "720p" 
             : request.getFramesize() == 14 ? "1080p" : "未知";
-        return Result.success("视频流分辨率设置为" + resolution, cmdId);
+        return reply("视频流分辨率设置为" + resolution, cmdId, wait);
     }
 
     /**
      * 设置WiFi配置
      */
     @PostMapping("/config/wifi/{clientId}")
-    public Result<String> setWiFiConfig(
+    public CompletableFuture<Result<String>> setWiFiConfig(
             @PathVariable @NotBlank String clientId,
-            @RequestBody @Valid WiFiConfigRequest request) {
-        String cmdId = camService.setWiFiConfig(clientId, request.getSsid(), request.getPassword());
-        return Result.success("WiFi配置已保存，设备将重启", cmdId);
+            @RequestBody @Valid WiFiConfigRequest request,
+            @RequestParam(required = false) Long wait) {
+        long cmdId = camService.setWiFiConfig(clientId, request.getSsid(), request.getPassword());
+        return reply("WiFi配置已保存，设备将重启", cmdId, wait);
     }
 
     /**
      * 设置MQTT配置
      */
     @PostMapping("/config/mqtt/{clientId}")
-    public Result<String> setMQTTConfig(
+    public CompletableFuture<Result<String>> setMQTTConfig(
             @PathVariable @NotBlank String clientId,
-            @RequestBody @Valid MqttConfigRequest request) {
+            @RequestBody @Valid MqttConfigRequest request,
+            @RequestParam(required = false) Long wait) {
         String mqttClientId = request.getMqttClientId() != null 
             ? request.getMqttClientId() : clientId;
-        String cmdId = camService.setMQTTConfig(clientId, request.getServer(), 
+        long cmdId = camService.setMQTTConfig(clientId, request.getServer(), 
             request.getPort(), mqttClientId);
-        return Result.success("MQTT配置已保存，设备将重启", cmdId);
+        return reply("MQTT配置已保存，设备将重启", cmdId, wait);
     }
 
     /**
      * 设置上传URL
      */
     @PostMapping("/config/upload-url/{clientId}")
-    public Result<String> setUploadUrl(
+    public CompletableFuture<Result<String>> setUploadUrl(
             @PathVariable @NotBlank String clientId,
-            @RequestBody @Valid UploadUrlRequest request) {
-        String cmdId = camService.setUploadUrl(clientId, request.getUrl());
-        return Result.success("上传URL已保存", cmdId);
+            @RequestBody @Valid UploadUrlRequest request,
+            @RequestParam(required = false) Long wait) {
+        long cmdId = camService.setUploadUrl(clientId, request.getUrl());
+        return reply("上传URL已保存", cmdId, wait);
     }
 
     /**
      * 重置为默认配置
      */
     @PostMapping("/config/reset/{clientId}")
-    public Result<String> resetConfig(@PathVariable @NotBlank String clientId) {
-        String cmdId = camService.resetConfig(clientId);
-        return Result.success("配置已重置，设备将重启", cmdId);
+    public CompletableFuture<Result<String>> resetConfig(
+            @PathVariable @NotBlank String clientId,
+            @RequestParam(required = false) Long wait) {
+        long cmdId = camService.resetConfig(clientId);
+        return reply("配置已重置，设备将重启", cmdId, wait);
     }
 
     /**
      * 查询设备配置
      */
     @GetMapping("/config/{clientId}")
-    public Result<String> getConfig(@PathVariable @NotBlank String clientId) {
-        String cmdId = camService.getConfig(clientId);
-        return Result.success("配置查询指令已发送，请查看MQTT响应", cmdId);
+    public CompletableFuture<Result<String>> getConfig(
+            @PathVariable @NotBlank String clientId,
+            @RequestParam(required = false) Long wait) {
+        long cmdId = camService.getConfig(clientId);
+        return reply("配置查询指令已发送，请查看MQTT响应", cmdId, wait);
     }
     
     /**
      * 刷新设备配置（POST方式，供前端刷新按钮使用）
      */
     @PostMapping("/cam/{clientId}/get_config")
-    public Result<String> refreshConfig(@PathVariable @NotBlank String clientId) {
-        String cmdId = camService.getConfig(clientId);
-        return Result.success("配置刷新指令已发送", cmdId);
+    public CompletableFuture<Result<String>> refreshConfig(
+            @PathVariable @NotBlank String clientId,
+            @RequestParam(required = false) Long wait) {
+        long cmdId = camService.getConfig(clientId);
+        return reply("配置刷新指令已发送", cmdId, wait);
     }
 
 
+    /**
+     * 组装指令响应
+     * 未传wait时立即返回(原有行为)，传了wait则异步等待最多wait毫秒，返回设备回执的ok/info；
+     * 等待期间不占用请求线程，回执到达或等待到期时再写回响应
+     * @param message 指令已发送时的提示
+     * @param cmdId 指令ID
+     * @param wait 等待时间(ms)
+     */
+    private CompletableFuture<Result<String>> reply(String message, long cmdId, Long wait) {
+        String queued = "cmd queued " + cmdId;
+        if (wait == null || wait <= 0) {
+            return CompletableFuture.completedFuture(Result.success(message, queued));
+        }
+        CompletableFuture<ResultDto> future = camService.awaitCommandReply(cmdId, Math.min(wait, maxWaitMs));
+        if (future == null) {
+            return CompletableFuture.completedFuture(Result.success(message, queued));
+        }
+        return future.handle((r, e) -> {
+            if (e != null) {
+                return new Result<>(504, "等待设备回执超时", queued);
+            }
+            if (r.isOk()) {
+                return Result.success(r.getInfo() != null ? r.getInfo() : message, queued);
+            }
+            return new Result<>(500, "设备执行失败: " + r.getInfo(), queued);
+        });
+    }
+
     /**
      * 图片上传接口 (ESP32调用)
+     * multipart表单: 文件字段file + 文件名字段fileName
      */
     @PostMapping(value = "/cam/upload", consumes = "multipart/form-data")
     public Result<Map<String, Object>> upload(
             @RequestParam("file") MultipartFile file,
             @RequestParam("fileName") String fileName) {
-        try {
-            // 创建图片保存目录
-            Path photosDirPath = Paths.get(photosDir);
-            Files.createDirectories(photosDirPath);
-            
-            // 保存文件
-            Path filePath = photosDirPath.resolve(fileName);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-            
-            long fileSize = Files.size(filePath);
-            log.info("图片上传成功: {}, 大小: {} bytes", fileName, fileSize);
-            
-            // 从文件名解析clientId和cmdId（格式: clientId_cmdId.jpg）
-            String clientId = "unknown";
-            String cmdId = "0";
-            if (fileName.contains("_") && fileName.contains(".")) {
-                String baseName = fileName.substring(0, fileName.lastIndexOf("."));
-                String[] parts = baseName.split("_");
-                if (parts.length >= 2) {
-                    clientId = parts[0];
-                    cmdId = parts[1];
-                }
-            }
-            
-            // 通知等待的AI任务：图片已上传完成
-            camService.notifyCaptureComplete(cmdId, fileName);
-            
-            // 通过SSE推送拍照结果
-            sseService.pushCaptureResult(clientId, cmdId, fileName);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("fileName", fileName);
-            result.put("fileSize", fileSize);
-            result.put("path", filePath.toAbsolutePath().toString());
-            
-            return Result.success("上传成功", result);
+        try (InputStream in = file.getInputStream()) {
+            return afterUpload(photoStorageService.save(fileName, in, file.getSize()));
         } catch (IOException e) {
             log.error("图片上传失败", e);
             return Result.error("上传失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 图片流式上传接口
+     * 请求体直接是JPEG数据(Content-Type: image/jpeg)，文件名通过fileName参数传递，
+     * 请求体边读边写入最终目录，不经过multipart解析和临时文件
+     */
+    @PostMapping(value = "/cam/upload", consumes = MediaType.IMAGE_JPEG_VALUE)
+    public Result<Map<String, Object>> uploadStream(
+            @RequestParam("fileName") String fileName,
+            HttpServletRequest request) {
+        try {
+            return afterUpload(photoStorageService.save(fileName, request.getInputStream(),
+                    request.getContentLengthLong()));
+        } catch (IOException e) {
+            log.error("图片流式上传失败", e);
+            return Result.error("上传失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 图片保存后的处理：唤醒等待的AI任务并推送拍照结果
+     */
+    private Result<Map<String, Object>> afterUpload(PhotoStorageService.StoredPhoto photo) {
+        String fileName = photo.fileName();
+        
+        // 从文件名解析clientId和cmdId（格式: clientId_cmdId.jpg）
+        String clientId = "unknown";
+        String cmdId = "0";
+        if (fileName.contains("_") && fileName.contains(".")) {
+            String baseName = fileName.substring(0, fileName.lastIndexOf("."));
+            String[] parts = baseName.split("_");
+            if (parts.length >= 2) {
+                clientId = parts[0];
+                cmdId = parts[1];
+            }
+        }
+        
+        // 通知等待的AI任务：图片已上传完成
+        camService.notifyCaptureComplete(cmdId, fileName);
+        
+        // 通过SSE推送拍照结果
+        sseService.pushCaptureResult(clientId, cmdId, fileName);
+        
+        // 记录图片元数据(批量落库)
+        photoService.record(fileName, clientId, parseCmdId(cmdId), photo.size(), photo.path());
+        
+        // 后台预生成看板用的缩略图
+        thumbnailService.pregenerateAsync(fileName);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("fileName", fileName);
+        result.put("fileSize", photo.size());
+        result.put("path", photo.path().toString());
+        result.put("bytesPerSecond", photo.bytesPerSecond());
+        
+        return Result.success("上传成功", result);
+    }
+
+    private Long parseCmdId(String cmdId) {
+        try {
+            return Long.parseLong(cmdId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /**
      * 设置DHT读取间隔
      */
     @PostMapping("/dht-interval/{clientId}")
-    public Result<String> setDhtInterval(
+    public CompletableFuture<Result<String>> setDhtInterval(
             @PathVariable @NotBlank String clientId,
-            @RequestBody @Valid DhtIntervalRequest request) {
-        String cmdId = camService.setDhtInterval(clientId, request.getInterval());
-        return Result.success("DHT间隔设置指令已发送", cmdId);
+            @RequestBody @Valid DhtIntervalRequest request,
+            @RequestParam(required = false) Long wait) {
+        long cmdId = camService.setDhtInterval(clientId, request.getInterval());
+        return reply("DHT间隔设置指令已发送", cmdId, wait);
     }
     
     /**
      * 设置状态上报间隔
      */
     @PostMapping("/cam/{clientId}/set_status_interval")
-    public Result<String> setStatusInterval(
+    public CompletableFuture<Result<String>> setStatusInterval(
             @PathVariable @NotBlank String clientId,
-            @RequestBody Map<String, Integer> request) {
+            @RequestBody Map<String, Integer> request,
+            @RequestParam(required = false) Long wait) {
         Integer interval = request.get("interval");
         if (interval == null || interval < 1000) {
-            return Result.error("间隔不能小于1秒");
+            return CompletableFuture.completedFuture(Result.error("间隔不能小于1秒"));
         }
-        String cmdId = camService.setStatusInterval(clientId, interval);
-        return Result.success("状态上报间隔设置指令已发送", cmdId);
+        long cmdId = camService.setStatusInterval(clientId, interval);
+        return reply("状态上报间隔设置指令已发送", cmdId, wait);
     }
     
     /**
      * 控制舵机角度 (窗户控制)
      */
     @PostMapping("/servo/{clientId}")
-    public Result<String> setServo(
+    public CompletableFuture<Result<String>> setServo(
             @PathVariable @NotBlank String clientId,
-            @RequestBody @Valid ServoRequest request) {
-        String cmdId = camService.controlServo(clientId, request.getAngle());
+            @RequestBody @Valid ServoRequest request,
+            @RequestParam(required = false) Long wait) {
+        long cmdId = camService.controlServo(clientId, request.getAngle());
         String status = request.getAngle() == 0 ? "关闭" : 
                        request.getAngle() == 45 ? "小开" :
                        request.getAngle() == 90 ? "半开" :
                        request.getAngle() == 180 ? "全开" : request.getAngle() + "°";
-        return Result.success("窗户控制指令已发送: " + status, cmdId);
+        return reply("窗户控制指令已发送: " + status, cmdId, wait);
     }
     
     /**
      * 控制继电器 (风扇控制)
      */
     @PostMapping("/relay/{clientId}")
-    public Result<String> setRelay(
+    public CompletableFuture<Result<String>> setRelay(
             @PathVariable @NotBlank String clientId,
-            @RequestBody Map<String, Boolean> request) {
+            @RequestBody Map<String, Boolean> request,
+            @RequestParam(required = false) Long wait) {
         Boolean on = request.get("on");
         if (on == null) {
-            return Result.error("参数on不能为空");
+            return CompletableFuture.completedFuture(Result.error("参数on不能为空"));
         }
-        String cmdId = camService.controlRelay(clientId, on);
-        return Result.success("风扇" + (on ? "开启" : "关闭") + "指令已发送", cmdId);
+        long cmdId = camService.controlRelay(clientId, on);
+        return reply("风扇" + (on ? "开启" : "关闭") + "指令已发送", cmdId, wait);
     }
 }
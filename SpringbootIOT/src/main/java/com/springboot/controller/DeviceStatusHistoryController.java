@@ -4,8 +4,11 @@ import com.springboot.pojo.vo.StatusChartResponse;
 import com.springboot.service.DeviceStatusHistoryService;
 import com.springboot.utils.Result;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+
 /**
  * 设备状态历史数据控制器
  */
@@ -19,11 +22,26 @@ public class DeviceStatusHistoryController {
     
     /**
      * 获取设备状态历史图表数据（rssi/freeHeap）
+     * 传from或to时按时间区间查询，区间内全部采样LTTB降采样到不超过maxPoints个点；
+     * 时间格式: yyyy-MM-dd HH:mm:ss，不传to为当前时间，不传from为to前24小时
      */
     @GetMapping("/chart/{clientId}")
     public Result<StatusChartResponse> getChartData(
             @PathVariable String clientId,
-            @RequestParam(defaultValue = "30") int limit) {
+            @RequestParam(defaultValue = "30") int limit,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime to,
+            @RequestParam(defaultValue = "500") int maxPoints) {
+        if (from != null || to != null) {
+            if (to == null) to = LocalDateTime.now();
+            if (from == null) from = to.minusHours(24);
+            if (!from.isBefore(to)) {
+                return Result.error("from必须早于to");
+            }
+            if (maxPoints < 3) maxPoints = 3;
+            if (maxPoints > 2000) maxPoints = 2000;
+            return Result.success(deviceStatusHistoryService.getChartData(clientId, from, to, maxPoints));
+        }
         if (limit > 100) limit = 100;
         StatusChartResponse data = deviceStatusHistoryService.getChartData(clientId, limit);
         return Result.success(data);
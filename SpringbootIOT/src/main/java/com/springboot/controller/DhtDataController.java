@@ -4,8 +4,11 @@ import com.springboot.pojo.vo.DhtDashboardResponse;
 import com.springboot.service.DhtDataService;
 import com.springboot.utils.Result;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+
 /**
  * DHT22温湿度数据控制器
  */
@@ -19,11 +22,26 @@ public class DhtDataController {
     
     /**
      * 获取温湿度面板数据(当前值 + 图表数据)
+     * 传from或to时按时间区间查询，区间内全部采样LTTB降采样到不超过maxPoints个点；
+     * 时间格式: yyyy-MM-dd HH:mm:ss，不传to为当前时间，不传from为to前24小时
      */
     @GetMapping("/dashboard/{clientId}")
     public Result<DhtDashboardResponse> getDashboard(
             @PathVariable String clientId,
-            @RequestParam(defaultValue = "30") int chartLimit) {
+            @RequestParam(defaultValue = "30") int chartLimit,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime to,
+            @RequestParam(defaultValue = "500") int maxPoints) {
+        if (from != null || to != null) {
+            if (to == null) to = LocalDateTime.now();
+            if (from == null) from = to.minusHours(24);
+            if (!from.isBefore(to)) {
+                return Result.error("from必须早于to");
+            }
+            if (maxPoints < 3) maxPoints = 3;
+            if (maxPoints > 2000) maxPoints = 2000;
+            return Result.success(dhtDataService.getDashboardData(clientId, from, to, maxPoints));
+        }
         if (chartLimit > 100) chartLimit = 100;
         DhtDashboardResponse data = dhtDataService.getDashboardData(clientId, chartLimit);
         return Result.success(data);
@@ -1,25 +1,36 @@
 package com.springboot.controller;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import com.springboot.pojo.vo.PhotoResponse;
+import com.springboot.service.PhotoStorageService;
+import com.springboot.service.ThumbnailService;
+import com.springboot.utils.FileSender;
+import com.springboot.utils.Result;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 
 @RestController
 @RequestMapping("/file")
 public class FileController {
     
-    /** 图片保存目录 */
-    @Value("${photos-dir}")
-    private String photosDir;
+    /** 上传文件名: {uuid}.{ext} */
+    private static final Pattern UUID_NAME = Pattern.compile(
+            "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}(\\.\\w+)?");
+    
+    @Autowired
+    private PhotoStorageService photoStorageService;
+    
+    @Autowired
+    private ThumbnailService thumbnailService;
 
     @PostMapping("/upload")
     // 保存文件到服务器
@@ -35,14 +46,8 @@ public class FileController {
         }
         String randomFilename = UUID.randomUUID().toString() + fileExtension;
 
-        try {
-            File directory = new File(photosDir);
-            if (!directory.exists()) {
-                directory.mkdirs();
-            }
-            String paths = directory.getCanonicalPath();
-            File dest = new File(paths + '/' + randomFilename);
-            file.transferTo(dest);
+        try (InputStream in = file.getInputStream()) {
+            photoStorageService.save(randomFilename, in, file.getSize());
             return "http://localhost:8080/file/photos/" + randomFilename;
         } catch (IOException e) {
             e.printStackTrace();
@@ -50,42 +55,58 @@ public class FileController {
         }
     }
 
-    // 预览文件
+    // 列出设备最近的图片
+    @GetMapping("/photos/recent/{clientId}")
+    public Result<List<PhotoResponse>> recent(@PathVariable String clientId,
+                                              @RequestParam(defaultValue = "20") int limit) {
+        if (limit > 100) limit = 100;
+        return Result.success(photoStorageService.listRecent(clientId, limit));
+    }
+
+    // 预览文件(带w参数时返回对应宽度的缩略图，缓存策略与原图相同，原图被覆盖后缩略图随之重新生成、ETag变化)
     @GetMapping("/photos/{filename}")
-    public ResponseEntity<Resource> preview(@PathVariable String filename) {
-        File file = new File(photosDir + "/" + filename);
-        if (!file.exists()) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    public void preview(@PathVariable String filename,
+                        @RequestParam(required = false) Integer w,
+                        HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (w == null || w <= 0) {
+            serve(filename, "inline", request, response);
+            return;
         }
-        Resource resource;
-        try {
-            resource = new UrlResource(file.toURI());
-        } catch (Exception e) {
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        Path thumb = thumbnailService.getThumbnail(filename, w);
+        if (thumb == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
-
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                .body(resource);
+        FileSender.send(thumb, "inline", isImmutableName(filename), request, response);
     }
 
     // 下载文件
     @GetMapping("/photos/download/{filename}")
-    public ResponseEntity<Resource> download(@PathVariable String filename) {
-        File file = new File(photosDir + "/" + filename);
-        if (!file.exists()) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-        Resource resource;
-        try {
-            resource = new UrlResource(file.toURI());
-        } catch (Exception e) {
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+    public void download(@PathVariable String filename,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(filename, "attachment", request, response);
+    }
+
+    /**
+     * 发送photos-dir下的图片(支持304条件请求和Range)
+     */
+    private void serve(String filename, String disposition,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = photoStorageService.resolve(filename);
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+        FileSender.send(file, disposition, isImmutableName(filename), request, response);
+    }
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .body(resource);
+    /**
+     * 文件名是否与内容一一对应(可长期缓存)
+     * 只有上传接口生成的随机UUID文件名满足；拍照文件名{clientId}_{cmdId}.jpg会被复用
+     * (语音拍照固定为_0.jpg、cmdId回绕后重复)，按no-cache + ETag每次回源校验
+     */
+    private boolean isImmutableName(String filename) {
+        return UUID_NAME.matcher(filename).matches();
     }
 
 }
@@ -0,0 +1,176 @@
+package com.springboot.controller;
+
+import com.springboot.configuration.MqttIngestDispatcher;
+import com.springboot.pojo.vo.AiHistoryStatsResponse;
+import com.springboot.pojo.vo.CommandStatsResponse;
+import com.springboot.pojo.vo.ExecutorStatsResponse;
+import com.springboot.pojo.vo.IngestStatsResponse;
+import com.springboot.pojo.vo.PhotoStorageStatsResponse;
+import com.springboot.pojo.vo.ReplyRegistryStatsResponse;
+import com.springboot.pojo.vo.RetentionStatsResponse;
+import com.springboot.pojo.vo.SseStatsResponse;
+import com.springboot.pojo.vo.ThumbnailStatsResponse;
+import com.springboot.pojo.vo.UploadStatsResponse;
+import com.springboot.pojo.vo.WriteBufferStatsResponse;
+import com.springboot.service.AiChatService;
+import com.springboot.service.CamService;
+import com.springboot.service.DeviceStatusHistoryService;
+import com.springboot.service.DhtDataService;
+import com.springboot.service.OperationLogService;
+import com.springboot.service.PhotoService;
+import com.springboot.service.PhotoStorageService;
+import com.springboot.service.RetentionService;
+import com.springboot.service.SseService;
+import com.springboot.service.ThumbnailService;
+import com.springboot.utils.Result;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 运行监控控制器
+ * 提供各内部队列/缓冲区的运行指标
+ */
+@RestController
+@RequestMapping("/monitor")
+@CrossOrigin(origins = "*")
+public class MonitorController {
+    
+    @Autowired
+    private MqttIngestDispatcher mqttIngestDispatcher;
+    
+    @Autowired
+    private DhtDataService dhtDataService;
+    
+    @Autowired
+    private DeviceStatusHistoryService deviceStatusHistoryService;
+    
+    @Autowired
+    private SseService sseService;
+    
+    @Autowired
+    private OperationLogService operationLogService;
+    
+    @Autowired
+    private CamService camService;
+    
+    @Autowired
+    private PhotoStorageService photoStorageService;
+    
+    @Autowired
+    private ThumbnailService thumbnailService;
+    
+    @Autowired
+    private PhotoService photoService;
+    
+    @Autowired
+    private AiChatService aiChatService;
+    
+    @Autowired
+    private RetentionService retentionService;
+    
+    /**
+     * 获取MQTT入站分发统计（队列深度、背压、丢弃数）
+     */
+    @GetMapping("/ingest")
+    public Result<IngestStatsResponse> getIngestStats() {
+        return Result.success(mqttIngestDispatcher.getStats());
+    }
+    
+    /**
+     * 获取温湿度批量写缓冲区统计（积压、写库耗时）
+     */
+    @GetMapping("/write-buffer/dht")
+    public Result<WriteBufferStatsResponse> getDhtWriteBufferStats() {
+        return Result.success(dhtDataService.getWriteBufferStats());
+    }
+    
+    /**
+     * 获取设备状态历史批量写缓冲区统计（积压、暂存、写库耗时）
+     */
+    @GetMapping("/write-buffer/status")
+    public Result<WriteBufferStatsResponse> getStatusWriteBufferStats() {
+        return Result.success(deviceStatusHistoryService.getWriteBufferStats());
+    }
+    
+    /**
+     * 获取图片元数据批量写缓冲区统计（积压、写库耗时）
+     */
+    @GetMapping("/write-buffer/photo")
+    public Result<WriteBufferStatsResponse> getPhotoWriteBufferStats() {
+        return Result.success(photoService.getWriteBufferStats());
+    }
+    
+    /**
+     * 获取SSE推送统计（连接数、排队/丢弃事件数）
+     */
+    @GetMapping("/sse")
+    public Result<SseStatsResponse> getSseStats() {
+        return Result.success(sseService.getStats());
+    }
+    
+    /**
+     * 获取指令回执统计（待回执数、超时数）
+     */
+    @GetMapping("/commands")
+    public Result<CommandStatsResponse> getCommandStats() {
+        return Result.success(operationLogService.getCommandStats());
+    }
+    
+    /**
+     * 获取回执等待统计（指令回执、拍照等待的在等数量和过期数）
+     */
+    @GetMapping("/replies")
+    public Result<List<ReplyRegistryStatsResponse>> getReplyStats() {
+        return Result.success(camService.getReplyStats());
+    }
+    
+    /**
+     * 获取图片上传统计（上传数、写入速率）
+     */
+    @GetMapping("/upload")
+    public Result<UploadStatsResponse> getUploadStats() {
+        return Result.success(photoStorageService.getUploadStats());
+    }
+    
+    /**
+     * 获取图片存储统计（图片数、占用、清理量）
+     */
+    @GetMapping("/photo-storage")
+    public Result<PhotoStorageStatsResponse> getPhotoStorageStats() {
+        return Result.success(photoStorageService.getStorageStats());
+    }
+    
+    /**
+     * 获取缩略图缓存统计（命中、生成、淘汰）
+     */
+    @GetMapping("/thumbnail")
+    public Result<ThumbnailStatsResponse> getThumbnailStats() {
+        return Result.success(thumbnailService.getStats());
+    }
+    
+    /**
+     * 获取AI会话历史统计（会话数、估算token和内存占用、淘汰/裁剪数）
+     */
+    @GetMapping("/ai-history")
+    public Result<AiHistoryStatsResponse> getAiHistoryStats() {
+        return Result.success(aiChatService.getHistoryStats());
+    }
+    
+    /**
+     * 获取AI请求统计（并发、排队等待、超时/拒绝数）
+     */
+    @GetMapping("/ai-client")
+    public Result<ExecutorStatsResponse> getAiClientStats() {
+        return Result.success(aiChatService.getClientStats());
+    }
+    
+    /**
+     * 获取原始数据保留清理统计（各表删除行数、删除分区数、耗时）
+     */
+    @GetMapping("/retention")
+    public Result<RetentionStatsResponse> getRetentionStats() {
+        return Result.success(retentionService.getStats());
+    }
+}
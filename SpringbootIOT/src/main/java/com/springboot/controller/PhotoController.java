@@ -0,0 +1,34 @@
+package com.springboot.controller;
+
+import com.springboot.pojo.vo.PhotoPageResponse;
+import com.springboot.service.PhotoService;
+import com.springboot.utils.Result;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 图片库控制器
+ */
+@RestController
+@RequestMapping("/photos")
+@CrossOrigin(origins = "*")
+public class PhotoController {
+    
+    @Autowired
+    private PhotoService photoService;
+    
+    /**
+     * 分页查询图片(键集分页，按时间倒序)
+     * 第一页不传before，之后传上一页返回的nextBefore
+     */
+    @GetMapping
+    public Result<PhotoPageResponse> list(
+            @RequestParam(required = false) String clientId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1) limit = 1;
+        if (limit > 100) limit = 100;
+        if (clientId != null && clientId.isBlank()) clientId = null;
+        return Result.success(photoService.getPage(clientId, before, limit));
+    }
+}
@@ -26,13 +26,17 @@ public class SseController {
     
     /**
      * 建立SSE连接
-     * 前端通过 EventSource 连接此端点
+     * 前端通过 EventSource 连接此端点，只接收该设备的事件
+     * clientId为"all"时接收全部设备的事件
      * 连接建立后自动请求设备配置
      */
     @GetMapping(value = "/dht/{clientId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public SseEmitter subscribeDht(@PathVariable String clientId) {
         log.info("建立SSE连接请求: clientId={}", clientId);
         SseEmitter emitter = sseService.createConnection(clientId);
+        if (SseService.ALL_DEVICES.equals(clientId)) {
+            return emitter;
+        }
         
         // 异步发送get_config命令，让ESP32上报配置
         new Thread(() -> {
@@ -0,0 +1,43 @@
+package com.springboot.controller;
+
+import com.springboot.pojo.vo.TelemetryRangeResponse;
+import com.springboot.service.TelemetryRollupService;
+import com.springboot.utils.Result;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 遥测聚合数据控制器
+ */
+@RestController
+@RequestMapping("/mqtt/telemetry")
+@CrossOrigin(origins = "*")
+public class TelemetryController {
+    
+    @Autowired
+    private TelemetryRollupService telemetryRollupService;
+    
+    /**
+     * 区间查询温湿度/信号/内存的聚合曲线
+     * 按时间跨度自动选择分钟/小时/日粒度，使点数不超过maxPoints
+     * 时间格式: yyyy-MM-dd HH:mm:ss，不传to为当前时间，不传from为to前24小时
+     */
+    @GetMapping("/range/{clientId}")
+    public Result<TelemetryRangeResponse> getRange(
+            @PathVariable String clientId,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime to,
+            @RequestParam(defaultValue = "500") int maxPoints) {
+        if (to == null) to = LocalDateTime.now();
+        if (from == null) from = to.minusHours(24);
+        if (!from.isBefore(to)) {
+            return Result.error("from必须早于to");
+        }
+        if (maxPoints < 1) maxPoints = 1;
+        if (maxPoints > 2000) maxPoints = 2000;
+        return Result.success(telemetryRollupService.getRange(clientId, from, to, maxPoints));
+    }
+}
@@ -2,10 +2,17 @@ package com.springboot.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.springboot.pojo.DeviceStatusHistory;
+import com.springboot.pojo.SeriesRangeStats;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -19,4 +26,39 @@ public interface DeviceStatusHistoryMapper extends BaseMapper<DeviceStatusHistor
      */
     @Select("SELECT * FROM device_status_history WHERE client_id = #{clientId} ORDER BY create_time DESC LIMIT #{limit}")
     List<DeviceStatusHistory> findLatestByClientId(@Param("clientId") String clientId, @Param("limit") int limit);
+    
+    /**
+     * 多行INSERT批量写入
+     */
+    @Insert({"<script>",
+            "INSERT INTO device_status_history (client_id, rssi, free_heap, uptime, create_time) VALUES ",
+            "<foreach collection='list' item='h' separator=','>",
+            "(#{h.clientId}, #{h.rssi}, #{h.freeHeap}, #{h.uptime}, #{h.createTime})",
+            "</foreach>",
+            "</script>"})
+    int insertBatch(@Param("list") List<DeviceStatusHistory> list);
+    
+    /**
+     * 区间内行数和信号/内存值域
+     */
+    @Select("SELECT COUNT(*) AS rowCount, MIN(rssi) AS firstMin, MAX(rssi) AS firstMax, " +
+            "MIN(free_heap) AS secondMin, MAX(free_heap) AS secondMax FROM device_status_history " +
+            "WHERE client_id = #{clientId} AND create_time >= #{from} AND create_time < #{to} " +
+            "AND rssi IS NOT NULL AND free_heap IS NOT NULL")
+    SeriesRangeStats selectRangeStats(@Param("clientId") String clientId,
+                                      @Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to);
+    
+    /**
+     * 按时间正序流式读取区间内的信号/内存(MySQL流式结果集，逐行回调，不整体加载到内存)
+     */
+    @Select("SELECT create_time, rssi, free_heap FROM device_status_history " +
+            "WHERE client_id = #{clientId} AND create_time >= #{from} AND create_time < #{to} " +
+            "AND rssi IS NOT NULL AND free_heap IS NOT NULL ORDER BY create_time")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(DeviceStatusHistory.class)
+    void streamRange(@Param("clientId") String clientId,
+                     @Param("from") LocalDateTime from,
+                     @Param("to") LocalDateTime to,
+                     ResultHandler<DeviceStatusHistory> handler);
 }
@@ -2,11 +2,63 @@ package com.springboot.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.springboot.pojo.DhtData;
+import com.springboot.pojo.SeriesRangeStats;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * DHT22温湿度数据Mapper
  */
 @Mapper
 public interface DhtDataMapper extends BaseMapper<DhtData> {
+    
+    /**
+     * 获取指定设备的最近N条数据(时间倒序，沿(client_id, create_time)索引倒序读取)
+     */
+    @Select("SELECT * FROM dht_data WHERE client_id = #{clientId} ORDER BY create_time DESC LIMIT #{limit}")
+    List<DhtData> findLatestByClientId(@Param("clientId") String clientId, @Param("limit") int limit);
+    
+    /**
+     * 多行INSERT批量写入
+     */
+    @Insert({"<script>",
+            "INSERT INTO dht_data (client_id, temperature, humidity, light_dark, create_time) VALUES ",
+            "<foreach collection='list' item='d' separator=','>",
+            "(#{d.clientId}, #{d.temperature}, #{d.humidity}, #{d.lightDark}, #{d.createTime})",
+            "</foreach>",
+            "</script>"})
+    int insertBatch(@Param("list") List<DhtData> list);
+    
+    /**
+     * 区间内行数和温湿度值域
+     */
+    @Select("SELECT COUNT(*) AS rowCount, MIN(temperature) AS firstMin, MAX(temperature) AS firstMax, " +
+            "MIN(humidity) AS secondMin, MAX(humidity) AS secondMax FROM dht_data " +
+            "WHERE client_id = #{clientId} AND create_time >= #{from} AND create_time < #{to} " +
+            "AND temperature IS NOT NULL AND humidity IS NOT NULL")
+    SeriesRangeStats selectRangeStats(@Param("clientId") String clientId,
+                                      @Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to);
+    
+    /**
+     * 按时间正序流式读取区间内的温湿度(MySQL流式结果集，逐行回调，不整体加载到内存)
+     */
+    @Select("SELECT create_time, temperature, humidity FROM dht_data " +
+            "WHERE client_id = #{clientId} AND create_time >= #{from} AND create_time < #{to} " +
+            "AND temperature IS NOT NULL AND humidity IS NOT NULL ORDER BY create_time")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(DhtData.class)
+    void streamRange(@Param("clientId") String clientId,
+                     @Param("from") LocalDateTime from,
+                     @Param("to") LocalDateTime to,
+                     ResultHandler<DhtData> handler);
 }
@@ -3,10 +3,49 @@ package com.springboot.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.springboot.pojo.OperationLog;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
 
 /**
  * 操作日志Mapper
  */
 @Mapper
 public interface OperationLogMapper extends BaseMapper<OperationLog> {
+    
+    /**
+     * 按指令ID查最新一条日志(走idx_cmd_id索引)
+     * cmdId回绕或重启后可能有多条同cmd_id的旧日志，回执只对应最新的一条
+     */
+    @Select("SELECT * FROM operation_log WHERE cmd_id = #{cmdId} ORDER BY id DESC LIMIT 1")
+    OperationLog selectLatestByCmdId(@Param("cmdId") Long cmdId);
+    
+    /**
+     * 按主键回写执行结果
+     * 已超时的指令收到迟到回执时以实际结果为准，已回执的不覆盖
+     * @return 更新的行数
+     */
+    @Update("UPDATE operation_log SET result = #{result}, result_msg = #{resultMsg} WHERE id = #{id} AND result IN ('pending', 'timeout')")
+    int updateResultById(@Param("id") Long id, @Param("result") String result, @Param("resultMsg") String resultMsg);
+    
+    /**
+     * 批量将仍处于pending的日志标记为超时(已回执的不覆盖)
+     * @return 更新的行数
+     */
+    @Update({"<script>",
+            "UPDATE operation_log SET result = 'timeout', result_msg = #{resultMsg} WHERE result = 'pending' AND id IN ",
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"})
+    int markTimeoutBatch(@Param("ids") List<Long> ids, @Param("resultMsg") String resultMsg);
+    
+    /**
+     * 查询一批日志中结果为timeout的主键(批量标记超时后核对实际标记了哪些)
+     */
+    @Select({"<script>",
+            "SELECT id FROM operation_log WHERE result = 'timeout' AND id IN ",
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"})
+    List<Long> selectTimedOutIds(@Param("ids") List<Long> ids);
 }
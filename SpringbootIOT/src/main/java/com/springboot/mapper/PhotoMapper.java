@@ -0,0 +1,55 @@
+package com.springboot.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.springboot.pojo.Photo;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+/**
+ * 拍照图片元数据Mapper
+ */
+@Mapper
+public interface PhotoMapper extends BaseMapper<Photo> {
+    
+    /**
+     * 多行REPLACE批量写入
+     * 同名文件重新上传(语音拍照的_0.jpg、cmdId回绕)时删除旧行再插入，分到新的自增id，
+     * 按id分页的图库里排到最前，而不是停在旧位置
+     */
+    @Insert({"<script>",
+            "REPLACE INTO photo (client_id, cmd_id, file_name, size, width, height, create_time) VALUES ",
+            "<foreach collection='list' item='p' separator=','>",
+            "(#{p.clientId}, #{p.cmdId}, #{p.fileName}, #{p.size}, #{p.width}, #{p.height}, #{p.createTime})",
+            "</foreach>",
+            "</script>"})
+    int insertBatch(@Param("list") List<Photo> list);
+    
+    /**
+     * 键集分页：取id小于before的最新limit条(走主键或idx_client_id_id，与归档总量无关)
+     * @param clientId 设备ID，为空查全部设备
+     * @param before 上一页最后一条的id，为空从最新开始
+     */
+    @Select({"<script>",
+            "SELECT id, client_id, cmd_id, file_name, size, width, height, create_time FROM photo",
+            "<where>",
+            "<if test='clientId != null'>client_id = #{clientId}</if>",
+            "<if test='before != null'>AND id &lt; #{before}</if>",
+            "</where>",
+            "ORDER BY id DESC LIMIT #{limit}",
+            "</script>"})
+    List<Photo> selectPage(@Param("clientId") String clientId, @Param("before") Long before, @Param("limit") int limit);
+    
+    /**
+     * 按文件名批量删除(图片被清理后同步删除元数据)
+     */
+    @Delete({"<script>",
+            "DELETE FROM photo WHERE file_name IN ",
+            "<foreach collection='list' item='name' open='(' separator=',' close=')'>#{name}</foreach>",
+            "</script>"})
+    int deleteByFileNames(@Param("list") List<String> fileNames);
+}
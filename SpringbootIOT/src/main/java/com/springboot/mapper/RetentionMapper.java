@@ -0,0 +1,66 @@
+package com.springboot.mapper;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 原始数据保留清理Mapper
+ * 表名由调用方从固定列表中传入(dht_data/device_status_history/operation_log)
+ */
+@Mapper
+public interface RetentionMapper {
+    
+    /**
+     * 表中最小主键
+     */
+    @Select("SELECT MIN(id) FROM ${table}")
+    Long selectMinId(@Param("table") String table);
+    
+    /**
+     * 最后一条过期行的主键(按create_time索引倒序取一条，不扫描整个过期区间)
+     */
+    @Select("SELECT id FROM ${table} WHERE create_time < #{cutoff} ORDER BY create_time DESC LIMIT 1")
+    Long selectLastExpiredId(@Param("table") String table, @Param("cutoff") LocalDateTime cutoff);
+    
+    /**
+     * 删除主键区间[fromId, toId)内的过期行(主键范围删除，锁范围小、持锁时间短)
+     */
+    @Delete("DELETE FROM ${table} WHERE id >= #{fromId} AND id < #{toId} AND create_time < #{cutoff}")
+    int deleteChunk(@Param("table") String table, @Param("fromId") long fromId,
+                    @Param("toId") long toId, @Param("cutoff") LocalDateTime cutoff);
+    
+    /**
+     * 表的分区名(未分区的表返回空列表)
+     */
+    @Select("SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = #{table} AND PARTITION_NAME IS NOT NULL " +
+            "ORDER BY PARTITION_ORDINAL_POSITION")
+    List<String> selectPartitions(@Param("table") String table);
+    
+    /**
+     * 删除分区(整块释放，不逐行删除)
+     * @param partitions 逗号分隔的分区名
+     */
+    @Update("ALTER TABLE ${table} DROP PARTITION ${partitions}")
+    void dropPartitions(@Param("table") String table, @Param("partitions") String partitions);
+    
+    /**
+     * 从pmax中拆出新的按天分区
+     * @param definitions 逗号分隔的分区定义(PARTITION pYYYYMMDD VALUES LESS THAN ('...'))
+     */
+    @Update("ALTER TABLE ${table} REORGANIZE PARTITION pmax INTO " +
+            "(${definitions}, PARTITION pmax VALUES LESS THAN (MAXVALUE))")
+    void splitMaxPartition(@Param("table") String table, @Param("definitions") String definitions);
+    
+    /**
+     * 删除长期未更新的遥测聚合写库标记(异常退出的实例没能自己删除)
+     */
+    @Delete("DELETE FROM telemetry_rollup_flush WHERE update_time < #{cutoff}")
+    int deleteStaleFlushMarks(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,78 @@
+package com.springboot.mapper;
+
+import com.springboot.pojo.TelemetryRollup;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 遥测聚合Mapper
+ * 分钟/小时/日三张聚合表结构相同，表名由调用方从固定枚举中传入
+ */
+@Mapper
+public interface TelemetryRollupMapper {
+    
+    /**
+     * 批量累加写入: 时间桶不存在则插入，已存在则合并最小/最大值并累加和与采样数
+     * @param table 聚合表名
+     */
+    @Insert({"<script>",
+            "INSERT INTO ${table} (client_id, bucket_time, temp_min, temp_max, temp_sum, temp_count,",
+            " hum_min, hum_max, hum_sum, hum_count, rssi_min, rssi_max, rssi_sum, rssi_count,",
+            " heap_min, heap_max, heap_sum, heap_count) VALUES ",
+            "<foreach collection='list' item='r' separator=','>",
+            "(#{r.clientId}, #{r.bucketTime}, #{r.tempMin}, #{r.tempMax}, #{r.tempSum}, #{r.tempCount},",
+            " #{r.humMin}, #{r.humMax}, #{r.humSum}, #{r.humCount}, #{r.rssiMin}, #{r.rssiMax}, #{r.rssiSum}, #{r.rssiCount},",
+            " #{r.heapMin}, #{r.heapMax}, #{r.heapSum}, #{r.heapCount})",
+            "</foreach>",
+            " ON DUPLICATE KEY UPDATE",
+            " temp_min = LEAST(COALESCE(temp_min, VALUES(temp_min)), COALESCE(VALUES(temp_min), temp_min)),",
+            " temp_max = GREATEST(COALESCE(temp_max, VALUES(temp_max)), COALESCE(VALUES(temp_max), temp_max)),",
+            " temp_sum = temp_sum + VALUES(temp_sum), temp_count = temp_count + VALUES(temp_count),",
+            " hum_min = LEAST(COALESCE(hum_min, VALUES(hum_min)), COALESCE(VALUES(hum_min), hum_min)),",
+            " hum_max = GREATEST(COALESCE(hum_max, VALUES(hum_max)), COALESCE(VALUES(hum_max), hum_max)),",
+            " hum_sum = hum_sum + VALUES(hum_sum), hum_count = hum_count + VALUES(hum_count),",
+            " rssi_min = LEAST(COALESCE(rssi_min, VALUES(rssi_min)), COALESCE(VALUES(rssi_min), rssi_min)),",
+            " rssi_max = GREATEST(COALESCE(rssi_max, VALUES(rssi_max)), COALESCE(VALUES(rssi_max), rssi_max)),",
+            " rssi_sum = rssi_sum + VALUES(rssi_sum), rssi_count = rssi_count + VALUES(rssi_count),",
+            " heap_min = LEAST(COALESCE(heap_min, VALUES(heap_min)), COALESCE(VALUES(heap_min), heap_min)),",
+            " heap_max = GREATEST(COALESCE(heap_max, VALUES(heap_max)), COALESCE(VALUES(heap_max), heap_max)),",
+            " heap_sum = heap_sum + VALUES(heap_sum), heap_count = heap_count + VALUES(heap_count)",
+            "</script>"})
+    int upsertBatch(@Param("table") String table, @Param("list") List<TelemetryRollup> list);
+    
+    /**
+     * 查询时间范围内的聚合行(走主键 client_id, bucket_time)
+     * @param table 聚合表名
+     * @param from 起始时间(含)
+     * @param to 结束时间(不含)
+     */
+    @Select("SELECT * FROM ${table} WHERE client_id = #{clientId} AND bucket_time >= #{from} AND bucket_time < #{to} ORDER BY bucket_time")
+    List<TelemetryRollup> selectRange(@Param("table") String table, @Param("clientId") String clientId,
+                                      @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
+    /**
+     * 记录本实例最近一次提交的批次序号(与聚合行在同一事务中执行)
+     */
+    @Insert("INSERT INTO telemetry_rollup_flush (instance_id, flush_seq) VALUES (#{instanceId}, #{flushSeq})"
+            + " ON DUPLICATE KEY UPDATE flush_seq = VALUES(flush_seq)")
+    int markFlushed(@Param("instanceId") String instanceId, @Param("flushSeq") long flushSeq);
+    
+    /**
+     * 查询本实例最近一次提交的批次序号
+     * @return 从未提交过返回null
+     */
+    @Select("SELECT flush_seq FROM telemetry_rollup_flush WHERE instance_id = #{instanceId}")
+    Long selectFlushSeq(@Param("instanceId") String instanceId);
+    
+    /**
+     * 删除本实例的写库标记(实例停止、最后一批写完后调用)
+     */
+    @Delete("DELETE FROM telemetry_rollup_flush WHERE instance_id = #{instanceId}")
+    int deleteFlushMark(@Param("instanceId") String instanceId);
+}
@@ -0,0 +1,54 @@
+package com.springboot.pojo;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 拍照图片元数据实体
+ */
+@Data
+@TableName("photo")
+public class Photo {
+    
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    
+    /**
+     * 设备ID
+     */
+    private String clientId;
+    
+    /**
+     * 拍照指令ID
+     */
+    private Long cmdId;
+    
+    /**
+     * 文件名
+     */
+    private String fileName;
+    
+    /**
+     * 文件大小(字节)
+     */
+    private Long size;
+    
+    /**
+     * 宽度(像素)
+     */
+    private Integer width;
+    
+    /**
+     * 高度(像素)
+     */
+    private Integer height;
+    
+    /**
+     * 拍摄时间
+     */
+    private LocalDateTime createTime;
+}
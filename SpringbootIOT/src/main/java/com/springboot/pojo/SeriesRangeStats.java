@@ -0,0 +1,24 @@
+package com.springboot.pojo;
+
+import lombok.Data;
+
+/**
+ * 区间内两条遥测序列的行数和值域(温度/湿度或信号/内存)
+ * 供LTTB降采样预先划分桶和归一化面积
+ */
+@Data
+public class SeriesRangeStats {
+    
+    /** 区间内行数 */
+    private Long rowCount;
+    
+    /** 第一条序列最小值 */
+    private Double firstMin;
+    /** 第一条序列最大值 */
+    private Double firstMax;
+    
+    /** 第二条序列最小值 */
+    private Double secondMin;
+    /** 第二条序列最大值 */
+    private Double secondMax;
+}
@@ -0,0 +1,59 @@
+package com.springboot.pojo;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 遥测聚合行(分钟/小时/日聚合表共用)
+ * 保存最小值、最大值、累加和与采样数，同一时间桶的多次写入可直接累加合并
+ */
+@Data
+public class TelemetryRollup {
+    
+    /**
+     * 设备ID
+     */
+    private String clientId;
+    
+    /**
+     * 时间桶起点
+     */
+    private LocalDateTime bucketTime;
+    
+    /** 温度最小值(℃) */
+    private Double tempMin;
+    /** 温度最大值(℃) */
+    private Double tempMax;
+    /** 温度累加和 */
+    private Double tempSum;
+    /** 温度采样数 */
+    private Integer tempCount;
+    
+    /** 湿度最小值(%) */
+    private Double humMin;
+    /** 湿度最大值(%) */
+    private Double humMax;
+    /** 湿度累加和 */
+    private Double humSum;
+    /** 湿度采样数 */
+    private Integer humCount;
+    
+    /** RSSI最小值(dBm) */
+    private Integer rssiMin;
+    /** RSSI最大值(dBm) */
+    private Integer rssiMax;
+    /** RSSI累加和 */
+    private Long rssiSum;
+    /** RSSI采样数 */
+    private Integer rssiCount;
+    
+    /** 空闲内存最小值(bytes) */
+    private Integer heapMin;
+    /** 空闲内存最大值(bytes) */
+    private Integer heapMax;
+    /** 空闲内存累加和 */
+    private Long heapSum;
+    /** 空闲内存采样数 */
+    private Integer heapCount;
+}
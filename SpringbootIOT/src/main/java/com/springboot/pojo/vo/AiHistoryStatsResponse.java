@@ -0,0 +1,42 @@
+package com.springboot.pojo.vo;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * AI会话历史统计响应VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AiHistoryStatsResponse {
+    /** 当前会话数 */
+    private Integer sessions;
+
+    /** 会话数上限 */
+    private Integer maxSessions;
+
+    /** 保存的消息条数 */
+    private Integer messages;
+
+    /** 仍携带图片的消息条数 */
+    private Integer images;
+
+    /** 历史估算token数(全部会话) */
+    private Long estimatedTokens;
+
+    /** 历史估算占用堆内存(字节) */
+    private Long estimatedBytes;
+
+    /** 因空闲超时或超出会话数被淘汰的会话数 */
+    private Long evictedSessions;
+
+    /** 因超出轮数/token上限被裁掉的消息数 */
+    private Long trimmedMessages;
+
+    /** 旧消息中被替换为占位文本的图片数 */
+    private Long strippedImages;
+}
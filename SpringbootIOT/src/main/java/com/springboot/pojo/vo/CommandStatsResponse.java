@@ -0,0 +1,27 @@
+package com.springboot.pojo.vo;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * 指令回执统计响应VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommandStatsResponse {
+    /** 等待回执的指令数 */
+    private Integer pendingCommands;
+    
+    /** 时间轮中未到期的超时任务数 */
+    private Integer scheduledTimeouts;
+    
+    /** 累计超时的指令数 */
+    private Long timedOutCommands;
+    
+    /** 回执超时时间(ms) */
+    private Long timeoutMs;
+}
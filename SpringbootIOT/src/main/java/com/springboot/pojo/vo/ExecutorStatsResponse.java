@@ -0,0 +1,54 @@
+package com.springboot.pojo.vo;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * 限流执行器统计响应VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecutorStatsResponse {
+    /** 执行器名称 */
+    private String name;
+
+    /** 最大并发数 */
+    private Integer maxConcurrency;
+
+    /** 正在执行的任务数 */
+    private Integer active;
+
+    /** 排队中的任务数 */
+    private Integer queued;
+
+    /** 排队容量 */
+    private Integer queueCapacity;
+
+    /** 提交数 */
+    private Long submitted;
+
+    /** 成功数 */
+    private Long completed;
+
+    /** 失败数 */
+    private Long failed;
+
+    /** 超过截止时间数(含排队时已超时的) */
+    private Long timedOut;
+
+    /** 队列满被拒绝数 */
+    private Long rejected;
+
+    /** 平均排队等待(ms) */
+    private Long avgQueueWaitMs;
+
+    /** 最大排队等待(ms) */
+    private Long maxQueueWaitMs;
+
+    /** 平均执行耗时(ms) */
+    private Long avgExecMs;
+}
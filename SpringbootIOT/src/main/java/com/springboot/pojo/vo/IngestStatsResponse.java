@@ -0,0 +1,59 @@
+package com.springboot.pojo.vo;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+/**
+ * MQTT入站分发统计响应VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestStatsResponse {
+    /** 分发模式 (direct/partitioned) */
+    private String mode;
+    
+    /** 已接收消息数 */
+    private Long received;
+    
+    /** 队列满被丢弃的消息数 */
+    private Long rejected;
+    
+    /** 触发背压的次数 */
+    private Long backpressureWaits;
+    
+    /** 背压累计等待时间(ms) */
+    private Long backpressureWaitMs;
+    
+    /** 各工作通道统计 */
+    private List<LaneStats> lanes;
+    
+    /**
+     * 单个工作通道统计
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LaneStats {
+        /** 通道序号 */
+        private Integer index;
+        
+        /** 当前队列深度 */
+        private Integer queueSize;
+        
+        /** 队列容量 */
+        private Integer capacity;
+        
+        /** 已处理消息数 */
+        private Long processed;
+        
+        /** 处理失败消息数 */
+        private Long failed;
+    }
+}
@@ -0,0 +1,23 @@
+package com.springboot.pojo.vo;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 图片分页响应VO(键集分页)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PhotoPageResponse {
+    /** 本页图片(按时间倒序) */
+    private List<PhotoResponse> items;
+    
+    /** 下一页的before参数，为null表示没有更多 */
+    private Long nextBefore;
+}
@@ -0,0 +1,44 @@
+package com.springboot.pojo.vo;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 图片信息响应VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PhotoResponse {
+    /** 元数据ID(分页游标) */
+    private Long id;
+    
+    /** 文件名 */
+    private String fileName;
+    
+    /** 设备ID */
+    private String clientId;
+    
+    /** 拍照指令ID */
+    private Long cmdId;
+    
+    /** 文件大小(字节) */
+    private Long size;
+    
+    /** 宽度(像素) */
+    private Integer width;
+    
+    /** 高度(像素) */
+    private Integer height;
+    
+    /** 拍摄(保存)时间 */
+    private LocalDateTime createTime;
+    
+    /** 访问地址 */
+    private String url;
+}
@@ -0,0 +1,39 @@
+package com.springboot.pojo.vo;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * 图片存储统计响应VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PhotoStorageStatsResponse {
+    /** 图片数 */
+    private Integer photos;
+    
+    /** 有图片的设备数 */
+    private Integer devices;
+    
+    /** 占用字节数 */
+    private Long totalBytes;
+    
+    /** 保留天数 */
+    private Integer maxAgeDays;
+    
+    /** 占用上限(字节) */
+    private Long maxBytes;
+    
+    /** 累计清理的图片数 */
+    private Long sweptFiles;
+    
+    /** 累计清理的字节数 */
+    private Long sweptBytes;
+    
+    /** 最近一次清理耗时(ms) */
+    private Long lastSweepMs;
+}
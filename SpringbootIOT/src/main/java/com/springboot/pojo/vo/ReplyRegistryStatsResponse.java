@@ -0,0 +1,36 @@
+package com.springboot.pojo.vo;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * 回执关联表统计响应VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplyRegistryStatsResponse {
+    /** 关联表名称 */
+    private String name;
+    
+    /** 仍在等待回执的数量 */
+    private Integer waiting;
+    
+    /** 表中条目数(含截止前已回执的) */
+    private Integer tracked;
+    
+    /** 累计注册数 */
+    private Long registered;
+    
+    /** 收到回执数 */
+    private Long completed;
+    
+    /** 超时数 */
+    private Long expired;
+    
+    /** 被等待方取消数 */
+    private Long cancelled;
+}
@@ -0,0 +1,74 @@
+package com.springboot.pojo.vo;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 原始数据保留清理统计响应VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RetentionStatsResponse {
+    /** 是否启用 */
+    private Boolean enabled;
+    
+    /** 是否启用按天分区清理 */
+    private Boolean partitionEnabled;
+    
+    /** 每次DELETE覆盖的主键区间长度 */
+    private Integer chunkSize;
+    
+    /** 两次DELETE之间的停顿(ms) */
+    private Long chunkPauseMs;
+    
+    /** 已执行的清理轮数 */
+    private Long runs;
+    
+    /** 最近一次清理耗时(ms) */
+    private Long lastRunMs;
+    
+    /** 累计清理耗时(ms) */
+    private Long totalRunMs;
+    
+    /** 各表统计 */
+    private List<TableStats> tables;
+    
+    /**
+     * 单表清理统计
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TableStats {
+        /** 表名 */
+        private String table;
+        
+        /** 保留天数(0=不清理) */
+        private Integer retentionDays;
+        
+        /** 是否按天分区 */
+        private Boolean partitioned;
+        
+        /** 累计删除行数 */
+        private Long purgedRows;
+        
+        /** 累计删除的分区数 */
+        private Long droppedPartitions;
+        
+        /** 累计执行的DELETE次数 */
+        private Long chunks;
+        
+        /** 最近一次清理删除的行数 */
+        private Long lastPurgedRows;
+        
+        /** 最近一次清理耗时(ms) */
+        private Long lastRunMs;
+    }
+}
@@ -0,0 +1,33 @@
+package com.springboot.pojo.vo;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * SSE推送统计响应VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SseStatsResponse {
+    /** 当前连接数 */
+    private Integer connections;
+    
+    /** 有连接订阅的设备数(含"all") */
+    private Integer subscribedDevices;
+    
+    /** 当前排队待发送的事件数(所有连接合计) */
+    private Integer queuedEvents;
+    
+    /** 广播的事件数 */
+    private Long publishedEvents;
+    
+    /** 已发送的事件数(按连接计) */
+    private Long sentEvents;
+    
+    /** 慢连接队列满被丢弃的事件数 */
+    private Long droppedEvents;
+}
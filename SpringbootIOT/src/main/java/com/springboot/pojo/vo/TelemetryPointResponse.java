@@ -0,0 +1,63 @@
+package com.springboot.pojo.vo;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 遥测聚合点响应VO(一个时间桶)
+ * 该时间桶内没有对应数据时，相应字段为null
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TelemetryPointResponse {
+    /** 时间桶起点 */
+    private LocalDateTime time;
+    
+    /** 温度最小值(℃) */
+    private Double temperatureMin;
+    
+    /** 温度最大值(℃) */
+    private Double temperatureMax;
+    
+    /** 温度平均值(℃) */
+    private Double temperatureAvg;
+    
+    /** 湿度最小值(%) */
+    private Double humidityMin;
+    
+    /** 湿度最大值(%) */
+    private Double humidityMax;
+    
+    /** 湿度平均值(%) */
+    private Double humidityAvg;
+    
+    /** RSSI最小值(dBm) */
+    private Integer rssiMin;
+    
+    /** RSSI最大值(dBm) */
+    private Integer rssiMax;
+    
+    /** RSSI平均值(dBm) */
+    private Double rssiAvg;
+    
+    /** 空闲内存最小值(KB) */
+    private Integer freeHeapMin;
+    
+    /** 空闲内存最大值(KB) */
+    private Integer freeHeapMax;
+    
+    /** 空闲内存平均值(KB) */
+    private Double freeHeapAvg;
+    
+    /** 温湿度采样数 */
+    private Integer dhtCount;
+    
+    /** 设备状态采样数 */
+    private Integer statusCount;
+}
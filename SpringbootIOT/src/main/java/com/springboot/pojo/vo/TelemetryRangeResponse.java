@@ -0,0 +1,33 @@
+package com.springboot.pojo.vo;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 遥测区间查询响应VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TelemetryRangeResponse {
+    /** 设备ID */
+    private String clientId;
+    
+    /** 使用的聚合粒度(minute/hour/day) */
+    private String resolution;
+    
+    /** 起始时间(含) */
+    private LocalDateTime from;
+    
+    /** 结束时间(不含) */
+    private LocalDateTime to;
+    
+    /** 聚合点(按时间正序，没有数据的时间桶不返回) */
+    private List<TelemetryPointResponse> points;
+}
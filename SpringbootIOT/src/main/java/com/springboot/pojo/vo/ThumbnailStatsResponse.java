@@ -0,0 +1,36 @@
+package com.springboot.pojo.vo;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * 缩略图缓存统计响应VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ThumbnailStatsResponse {
+    /** 缓存的缩略图数 */
+    private Integer entries;
+    
+    /** 缓存占用字节数 */
+    private Long cachedBytes;
+    
+    /** 缓存容量上限(字节) */
+    private Long maxBytes;
+    
+    /** 缓存命中数 */
+    private Long hits;
+    
+    /** 生成数(未命中) */
+    private Long generated;
+    
+    /** 淘汰数 */
+    private Long evictions;
+    
+    /** 平均生成耗时(ms) */
+    private Long avgGenerateMs;
+}
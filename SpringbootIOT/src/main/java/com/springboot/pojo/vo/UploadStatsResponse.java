@@ -0,0 +1,36 @@
+package com.springboot.pojo.vo;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * 图片上传统计响应VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadStatsResponse {
+    /** 成功上传数 */
+    private Long uploads;
+    
+    /** 失败上传数 */
+    private Long failures;
+    
+    /** 累计写入字节数 */
+    private Long totalBytes;
+    
+    /** 最近一次上传的写入速率(字节/秒) */
+    private Long lastBytesPerSecond;
+    
+    /** 平均写入速率(字节/秒) */
+    private Long avgBytesPerSecond;
+    
+    /** 最近一次上传耗时(ms) */
+    private Long lastUploadMs;
+    
+    /** 是否每次写入后fsync */
+    private Boolean fsync;
+}
@@ -0,0 +1,45 @@
+package com.springboot.pojo.vo;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * 批量写缓冲区统计响应VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WriteBufferStatsResponse {
+    /** 缓冲区名称 */
+    private String name;
+    
+    /** 当前积压行数 */
+    private Integer backlog;
+    
+    /** 写库失败暂存待重试的行数 */
+    private Integer parkedRows;
+    
+    /** 已写入行数 */
+    private Long flushedRows;
+    
+    /** 写库批次数 */
+    private Long flushCount;
+    
+    /** 写库失败丢失的行数 */
+    private Long failedRows;
+    
+    /** 缓冲区满被丢弃的行数 */
+    private Long droppedRows;
+    
+    /** 最近一次写库耗时(ms) */
+    private Long lastFlushMs;
+    
+    /** 最大写库耗时(ms) */
+    private Long maxFlushMs;
+    
+    /** 平均写库耗时(ms) */
+    private Long avgFlushMs;
+}
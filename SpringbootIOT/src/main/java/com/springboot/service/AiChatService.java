@@ -1,5 +1,8 @@
 package com.springboot.service;
 
+import com.springboot.pojo.vo.AiHistoryStatsResponse;
+import com.springboot.pojo.vo.ExecutorStatsResponse;
+
 import java.util.List;
 import java.util.Map;
 
@@ -41,4 +44,14 @@ public interface AiChatService {
      * @param sessionId 会话ID
      */
     void clearHistory(String sessionId);
+    
+    /**
+     * 获取会话历史统计（会话数、消息数、估算内存占用）
+     */
+    AiHistoryStatsResponse getHistoryStats();
+    
+    /**
+     * 获取AI请求并发/排队统计（执行中、排队、超时、拒绝数）
+     */
+    ExecutorStatsResponse getClientStats();
 }
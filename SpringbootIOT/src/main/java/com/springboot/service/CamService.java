@@ -1,47 +1,52 @@
 package com.springboot.service;
 
+import com.springboot.pojo.ResultDto;
 import com.springboot.pojo.vo.DeviceStatusResponse;
+import com.springboot.pojo.vo.ReplyRegistryStatsResponse;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface CamService {
     /**
      * 触发拍照指令
      * @param clientId ESP 的 clientId
-     * @return 命令序号
+     * @return 指令ID(cmdId)
      */
-    String triggerCapture(String clientId);
+    long triggerCapture(String clientId);
 
     /**
      * 控制LED开关
      * @param clientId ESP 的 clientId
      * @param value 0=关闭, 1=开启
-     * @return 命令序号
+     * @return 指令ID(cmdId)
      */
-    String controlLed(String clientId, int value);
+    long controlLed(String clientId, int value);
 
     /**
      * 设置LED亮度
      * @param clientId ESP 的 clientId
      * @param value 亮度值(0-255)
-     * @return 命令序号
+     * @return 指令ID(cmdId)
      */
-    String setLedBrightness(String clientId, int value);
+    long setLedBrightness(String clientId, int value);
 
     /**
      * 控制红色指示灯开关
      * @param clientId ESP 的 clientId
      * @param value 0=关闭, 1=开启
-     * @return 命令序号
+     * @return 指令ID(cmdId)
      */
-    String controlRedLed(String clientId, int value);
+    long controlRedLed(String clientId, int value);
 
     /**
      * 设置摄像头参数
      * @param clientId ESP 的 clientId
      * @param param 参数名称(brightness, contrast, saturation等)
      * @param value 参数值
-     * @return 命令序号
+     * @return 指令ID(cmdId)
      */
-    String setCameraParam(String clientId, String param, int value);
+    long setCameraParam(String clientId, String param, int value);
 
     /**
      * 获取设备状态
@@ -54,18 +59,18 @@ public interface CamService {
      * 设置视频流分辨率
      * @param clientId ESP 的 clientId
      * @param framesize 分辨率代码 (7=480p, 11=720p, 14=1080p)
-     * @return 命令序号
+     * @return 指令ID(cmdId)
      */
-    String setStreamResolution(String clientId, int framesize);
+    long setStreamResolution(String clientId, int framesize);
 
     /**
      * 设置WiFi配置
      * @param clientId ESP 的 clientId
      * @param ssid WiFi名称
      * @param password WiFi密码
-     * @return 命令序号
+     * @return 指令ID(cmdId)
      */
-    String setWiFiConfig(String clientId, String ssid, String password);
+    long setWiFiConfig(String clientId, String ssid, String password);
 
     /**
      * 设置MQTT配置
@@ -73,66 +78,67 @@ public interface CamService {
      * @param server MQTT服务器地址
      * @param port MQTT端口
      * @param mqttClientId MQTT客户端ID
-     * @return 命令序号
+     * @return 指令ID(cmdId)
      */
-    String setMQTTConfig(String clientId, String server, int port, String mqttClientId);
+    long setMQTTConfig(String clientId, String server, int port, String mqttClientId);
 
     /**
      * 设置上传URL
      * @param clientId ESP 的 clientId
      * @param url 上传地址
-     * @return 命令序号
+     * @return 指令ID(cmdId)
      */
-    String setUploadUrl(String clientId, String url);
+    long setUploadUrl(String clientId, String url);
 
     /**
      * 重置为默认配置
      * @param clientId ESP 的 clientId
-     * @return 命令序号
+     * @return 指令ID(cmdId)
      */
-    String resetConfig(String clientId);
+    long resetConfig(String clientId);
 
     /**
      * 查询设备配置
      * @param clientId ESP 的 clientId
-     * @return 命令序号
+     * @return 指令ID(cmdId)
      */
-    String getConfig(String clientId);
+    long getConfig(String clientId);
 
     /**
      * 设置DHT读取间隔
      * @param clientId ESP 的 clientId
      * @param interval 间隔(毫秒), 1000-60000
-     * @return 命令序号
+     * @return 指令ID(cmdId)
      */
-    String setDhtInterval(String clientId, int interval);
+    long setDhtInterval(String clientId, int interval);
     
     /**
      * 设置状态上报间隔
      * @param clientId ESP 的 clientId
      * @param interval 间隔(毫秒), 1000-300000
-     * @return 命令序号
+     * @return 指令ID(cmdId)
      */
-    String setStatusInterval(String clientId, int interval);
+    long setStatusInterval(String clientId, int interval);
     
     /**
      * 控制舵机角度 (窗户控制)
      * @param clientId ESP 的 clientId
      * @param angle 角度(0-180), 0=关闭, 45=小开, 90=半开, 180=全开
-     * @return 命令序号
+     * @return 指令ID(cmdId)
      */
-    String controlServo(String clientId, int angle);
+    long controlServo(String clientId, int angle);
     
     /**
      * 控制继电器 (风扇控制)
      * @param clientId ESP 的 clientId
      * @param on true=开启, false=关闭
-     * @return 命令序号
+     * @return 指令ID(cmdId)
      */
-    String controlRelay(String clientId, boolean on);
+    long controlRelay(String clientId, boolean on);
     
     /**
      * 触发拍照并返回用于等待结果的Future
+     * 等待方超时放弃时应cancel该Future，以便立即释放等待条目
      * @param clientId ESP 的 clientId
      * @return CaptureResult包含cmdId和用于等待的Future
      */
@@ -145,6 +151,22 @@ public interface CamService {
      */
     void notifyCaptureComplete(String cmdId, String fileName);
     
+    /**
+     * 等待指令的设备回执(不阻塞调用线程)
+     * 所有控制指令下发时都会注册，截止时间(operation-log.command-timeout-ms)内
+     * 收到/result即完成；超过waitMs仍未回执以TimeoutException结束
+     * @param cmdId 命令ID
+     * @param waitMs 最长等待时间(ms)
+     * @return 回执Future，未知或已过截止时间的指令返回null
+     */
+    CompletableFuture<ResultDto> awaitCommandReply(long cmdId, long waitMs);
+    
+    /**
+     * 获取回执关联表统计(指令回执、拍照等待)
+     * @return 各关联表的等待数/超时数等
+     */
+    List<ReplyRegistryStatsResponse> getReplyStats();
+    
     /**
      * 拍照结果包装类
      */
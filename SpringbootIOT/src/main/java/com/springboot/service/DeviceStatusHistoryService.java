@@ -2,7 +2,9 @@ package com.springboot.service;
 
 import com.springboot.pojo.DeviceStatusHistory;
 import com.springboot.pojo.vo.StatusChartResponse;
+import com.springboot.pojo.vo.WriteBufferStatsResponse;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -11,10 +13,15 @@ import java.util.List;
 public interface DeviceStatusHistoryService {
     
     /**
-     * 保存设备状态
+     * 保存设备状态（写入批量缓冲区，异步落库）
      */
     void save(String clientId, int rssi, int freeHeap, long uptime);
     
+    /**
+     * 获取批量写缓冲区统计（积压、暂存、写库耗时）
+     */
+    WriteBufferStatsResponse getWriteBufferStats();
+    
     /**
      * 获取最近N条状态记录
      */
@@ -24,4 +31,9 @@ public interface DeviceStatusHistoryService {
      * 获取图表数据（时间标签+rssi+freeHeap数组）
      */
     StatusChartResponse getChartData(String clientId, int limit);
+    
+    /**
+     * 区间查询图表数据: 流式读取[from, to)内的全部采样，用LTTB降采样到不超过maxPoints个点
+     */
+    StatusChartResponse getChartData(String clientId, LocalDateTime from, LocalDateTime to, int maxPoints);
 }
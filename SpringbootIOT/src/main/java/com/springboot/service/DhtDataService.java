@@ -2,7 +2,9 @@ package com.springboot.service;
 
 import com.springboot.pojo.DhtData;
 import com.springboot.pojo.vo.DhtDashboardResponse;
+import com.springboot.pojo.vo.WriteBufferStatsResponse;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -11,10 +13,15 @@ import java.util.List;
 public interface DhtDataService {
     
     /**
-     * 保存温湿度和光照数据
+     * 保存温湿度和光照数据（写入批量缓冲区，异步落库）
      */
     void save(String clientId, double temperature, double humidity, Boolean lightDark);
     
+    /**
+     * 获取批量写缓冲区统计（积压、写库耗时）
+     */
+    WriteBufferStatsResponse getWriteBufferStats();
+    
     /**
      * 获取最新一条数据
      */
@@ -29,4 +36,10 @@ public interface DhtDataService {
      * 获取最新数据和图表数据
      */
     DhtDashboardResponse getDashboardData(String clientId, int chartLimit);
+    
+    /**
+     * 区间查询面板数据: 流式读取[from, to)内的全部采样，用LTTB降采样到不超过maxPoints个点
+     * 当前值取区间内最后一个采样
+     */
+    DhtDashboardResponse getDashboardData(String clientId, LocalDateTime from, LocalDateTime to, int maxPoints);
 }
@@ -1,32 +1,33 @@
 package com.springboot.service.Impl;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.pojo.vo.AiHistoryStatsResponse;
+import com.springboot.pojo.vo.ExecutorStatsResponse;
 import com.springboot.service.AiChatService;
 import com.springboot.service.CamService;
+import com.springboot.service.PhotoStorageService;
 import com.springboot.service.SseService;
+import com.springboot.utils.ChatCompletionClient;
+import com.springboot.utils.ChatHistoryStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import jakarta.annotation.PostConstruct;
-import java.nio.file.Files;
+import jakarta.annotation.PreDestroy;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * AI对话服务实现
  * 使用HTTP调用ModelScope Qwen-VL视觉语言模型
- * 异步执行，完成后通过SSE推送结果
+ * 全程异步: 等拍照、排队、等模型响应都不占用线程，完成后通过SSE推送结果
  */
 @Slf4j
 @Service
@@ -47,33 +48,76 @@ public class AiChatServiceImpl implements AiChatService {
     @Value("${modelscope.api-url}")
     private String apiUrl;
     
-    @Value("${photos-dir}")
-    private String photosDir;
+    @Autowired
+    private PhotoStorageService photoStorageService;
     
     @Value("${ai.max-wait-seconds}")
     private int maxWaitSeconds;
     
-    /** 会话历史缓存 */
-    private final ConcurrentHashMap<String, List<Map<String, Object>>> sessionHistory = new ConcurrentHashMap<>();
+    /** 建连超时(ms) */
+    @Value("${ai.http.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+    
+    /** 单个AI请求截止时间(ms)，从提交算起，含排队时间 */
+    @Value("${ai.http.request-timeout-ms:60000}")
+    private long requestTimeoutMs;
+    
+    /** 同时进行的AI请求数上限 */
+    @Value("${ai.http.max-concurrency:4}")
+    private int maxConcurrency;
+    
+    /** 超出并发上限后的排队容量，排满直接拒绝 */
+    @Value("${ai.http.queue-capacity:20}")
+    private int queueCapacity;
+    
+    /** 每个会话保留的最大轮数 */
+    @Value("${ai.history.max-turns:10}")
+    private int historyMaxTurns;
+    
+    /** 每个会话历史的估算token上限 */
+    @Value("${ai.history.max-tokens:8000}")
+    private int historyMaxTokens;
+    
+    /** 保留图片的最近用户消息数，更早的图片替换为占位文本 */
+    @Value("${ai.history.image-turns:1}")
+    private int historyImageTurns;
+    
+    /** 每张图片按多少token估算 */
+    @Value("${ai.history.image-tokens:1200}")
+    private int historyImageTokens;
+    
+    /** 会话空闲淘汰时间(分钟) */
+    @Value("${ai.history.idle-ttl-minutes:60}")
+    private long historyIdleTtlMinutes;
+    
+    /** 最多保留的会话数 */
+    @Value("${ai.history.max-sessions:200}")
+    private int historyMaxSessions;
     
-    /** 简化的历史记录 */
-    private final ConcurrentHashMap<String, List<Map<String, String>>> simpleHistory = new ConcurrentHashMap<>();
+    /** 会话历史 */
+    private ChatHistoryStore history;
     
     /** 任务ID生成器 */
     private final AtomicLong taskIdGenerator = new AtomicLong(System.currentTimeMillis());
     
-    /** 异步执行器 */
-    private ExecutorService executor;
-    
-    private RestTemplate restTemplate;
-    private ObjectMapper objectMapper;
+    /** AI接口客户端(连接池、并发上限、截止时间) */
+    private ChatCompletionClient aiClient;
     
     @PostConstruct
     public void init() {
-        restTemplate = new RestTemplate();
-        objectMapper = new ObjectMapper();
-        executor = Executors.newFixedThreadPool(3);
-        log.info("ModelScope AI服务初始化完成, model={}", model);
+        aiClient = new ChatCompletionClient(apiUrl, apiKey, model, connectTimeoutMs, requestTimeoutMs,
+                maxConcurrency, queueCapacity);
+        history = new ChatHistoryStore(historyMaxTurns, historyMaxTokens, historyImageTurns, historyImageTokens,
+                TimeUnit.MINUTES.toMillis(historyIdleTtlMinutes), historyMaxSessions);
+        history.start();
+        log.info("ModelScope AI服务初始化完成, model={}, maxConcurrency={}, queueCapacity={}, requestTimeoutMs={}",
+                model, maxConcurrency, queueCapacity, requestTimeoutMs);
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        aiClient.shutdown();
+        history.shutdown();
     }
     
     @Override
@@ -84,29 +128,23 @@ public class AiChatServiceImpl implements AiChatService {
         CamService.CaptureResult captureResult = camService.triggerCaptureWithWait(clientId);
         log.info("触发ESP32拍照: clientId={}, taskId={}, cmdId={}", clientId, taskId, captureResult.cmdId());
         
-        // 异步执行：等待图片上传完成 + 调用AI
-        executor.submit(() -> {
-            try {
-                // 等待ESP32上传图片完成（基于MQTT回调，而非轮询文件系统）
-                String fileName = captureResult.future().get(maxWaitSeconds, TimeUnit.SECONDS);
-                log.info("获取到图片: {}, taskId={}", fileName, taskId);
-                
-                // 读取图片并调用AI
-                Path imagePath = Paths.get(photosDir, fileName);
-                byte[] imageBytes = Files.readAllBytes(imagePath);
-                String aiResponse = callAiWithImage(sessionId, message, imageBytes);
-                
-                // 推送结果
-                sseService.pushAiResponse(sessionId, taskId, aiResponse, fileName);
-                
-            } catch (java.util.concurrent.TimeoutException e) {
-                log.warn("等待拍照超时: taskId={}", taskId);
-                sseService.pushAiResponse(sessionId, taskId, "❌ 等待拍照超时，请确认ESP32在线", "");
-            } catch (Exception e) {
-                log.error("AI调用失败: taskId={}, error={}", taskId, e.getMessage(), e);
-                sseService.pushAiResponse(sessionId, taskId, "❌ AI服务调用失败: " + e.getMessage(), "");
-            }
-        });
+        // 等待ESP32上传图片完成（基于MQTT回调，而非轮询文件系统），等待期间不占用线程
+        captureResult.future().copy()
+                .orTimeout(maxWaitSeconds, TimeUnit.SECONDS)
+                .whenComplete((fileName, e) -> {
+                    if (e == null) {
+                        log.info("获取到图片: {}, taskId={}", fileName, taskId);
+                        callAiWithImage(sessionId, taskId, message, fileName, "❌ AI服务调用失败: ");
+                    } else if (unwrap(e) instanceof TimeoutException) {
+                        // 放弃等待，取消Future使拍照等待表立即释放该条目
+                        captureResult.future().cancel(false);
+                        log.warn("等待拍照超时: taskId={}", taskId);
+                        sseService.pushAiResponse(sessionId, taskId, "❌ 等待拍照超时，请确认ESP32在线", "");
+                    } else {
+                        log.error("等待拍照失败: taskId={}, error={}", taskId, unwrap(e).getMessage());
+                        sseService.pushAiResponse(sessionId, taskId, "❌ AI服务调用失败: " + unwrap(e).getMessage(), "");
+                    }
+                });
         
         return taskId;
     }
@@ -114,91 +152,78 @@ public class AiChatServiceImpl implements AiChatService {
     @Override
     public String analyzeImageAsync(String sessionId, String imageFile, String message) {
         String taskId = String.valueOf(taskIdGenerator.incrementAndGet());
-        
-        // 异步执行AI分析
-        executor.submit(() -> {
-            try {
-                Path imagePath = Paths.get(photosDir, imageFile);
-                if (!Files.exists(imagePath)) {
-                    sseService.pushAiResponse(sessionId, taskId, "❌ 图片文件不存在: " + imageFile, imageFile);
-                    return;
-                }
-                
-                byte[] imageBytes = Files.readAllBytes(imagePath);
-                log.info("分析图片: {}, taskId={}", imageFile, taskId);
-                
-                String aiResponse = callAiWithImage(sessionId, message, imageBytes);
-                sseService.pushAiResponse(sessionId, taskId, aiResponse, imageFile);
-                
-            } catch (Exception e) {
-                log.error("分析图片失败: taskId={}, error={}", taskId, e.getMessage(), e);
-                sseService.pushAiResponse(sessionId, taskId, "❌ 分析失败: " + e.getMessage(), imageFile);
-            }
-        });
-        
+        log.info("分析图片: {}, taskId={}", imageFile, taskId);
+        callAiWithImage(sessionId, taskId, message, imageFile, "❌ 分析失败: ");
         return taskId;
     }
     
     /**
-     * 调用AI分析图片
+     * 调用AI分析图片，完成后推送结果
+     * 消息里只放图片路径，发送时边读文件边Base64编码写进HTTP输出流
+     * @param failPrefix 失败时推送的提示前缀
      */
-    private String callAiWithImage(String sessionId, String message, byte[] imageBytes) throws Exception {
-        // 编码图片为Base64
-        String base64Image = Base64.getEncoder().encodeToString(imageBytes);
-        String imageUrl = "data:image/jpeg;base64," + base64Image;
-        
-        // 获取或创建会话历史
-        List<Map<String, Object>> history = sessionHistory.computeIfAbsent(sessionId, k -> new ArrayList<>());
-        List<Map<String, String>> simple = simpleHistory.computeIfAbsent(sessionId, k -> new ArrayList<>());
+    private void callAiWithImage(String sessionId, String taskId, String message, String fileName, String failPrefix) {
+        Path imagePath = photoStorageService.resolve(fileName);
+        if (imagePath == null) {
+            sseService.pushAiResponse(sessionId, taskId, "❌ 图片文件不存在: " + fileName, fileName);
+            return;
+        }
         
-        // 构建用户消息（含图片）
-        Map<String, Object> userMessage = new HashMap<>();
-        userMessage.put("role", "user");
-        userMessage.put("content", List.of(
-                Map.of("type", "image_url", "image_url", Map.of("url", imageUrl)),
-                Map.of("type", "text", "text", message)
-        ));
-        history.add(userMessage);
-        simple.add(Map.of("role", "user", "content", message));
+        // 用户消息（含图片）加入会话历史，历史按轮数/token裁剪，旧图片替换为占位文本
+        history.addUser(sessionId, message, imagePath);
         
         // 构建请求
         List<Map<String, Object>> messages = new ArrayList<>();
         messages.add(Map.of("role", "system", "content", "你是一个智能家居助手，负责分析摄像头拍摄的环境图片并回答用户问题。请用简洁精炼的中文回答，并使用 Markdown 格式来组织你的回答（如使用 **加粗**、*斜体*、- 列表、### 标题等），使内容结构清晰、易于阅读。"));
-        messages.addAll(history);
-        
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("model", model);
-        requestBody.put("messages", messages);
-        
-        // 发送请求
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
-        
-        HttpEntity<String> entity = new HttpEntity<>(objectMapper.writeValueAsString(requestBody), headers);
-        ResponseEntity<String> response = restTemplate.exchange(apiUrl, HttpMethod.POST, entity, String.class);
+        messages.addAll(history.toMessages(sessionId));
         
-        // 解析响应
-        JsonNode root = objectMapper.readTree(response.getBody());
-        String aiResponse = root.path("choices").get(0).path("message").path("content").asText();
-        
-        // 保存AI回复到历史
-        history.add(Map.of("role", "assistant", "content", aiResponse));
-        simple.add(Map.of("role", "assistant", "content", aiResponse));
-        
-        log.info("AI对话完成: sessionId={}", sessionId);
-        return aiResponse;
+        aiClient.chat(messages).whenComplete((aiResponse, e) -> {
+            if (e == null) {
+                // 保存AI回复到历史
+                history.addAssistant(sessionId, aiResponse);
+                log.info("AI对话完成: sessionId={}, taskId={}", sessionId, taskId);
+                sseService.pushAiResponse(sessionId, taskId, aiResponse, fileName);
+                return;
+            }
+            Throwable cause = unwrap(e);
+            String reason;
+            if (cause instanceof TimeoutException) {
+                reason = "AI响应超时";
+            } else if (cause instanceof RejectedExecutionException) {
+                reason = "AI服务繁忙，请稍后再试";
+            } else {
+                reason = cause.getMessage();
+            }
+            log.error("AI调用失败: taskId={}, error={}", taskId, cause.getMessage());
+            sseService.pushAiResponse(sessionId, taskId, failPrefix + reason, fileName);
+        });
+    }
+    
+    private static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
     }
     
     @Override
     public List<Map<String, String>> getHistory(String sessionId) {
-        return simpleHistory.getOrDefault(sessionId, new ArrayList<>());
+        return history.toSimple(sessionId);
     }
     
     @Override
     public void clearHistory(String sessionId) {
-        sessionHistory.remove(sessionId);
-        simpleHistory.remove(sessionId);
+        history.remove(sessionId);
         log.info("清空会话历史: sessionId={}", sessionId);
     }
+    
+    @Override
+    public AiHistoryStatsResponse getHistoryStats() {
+        return history.getStats();
+    }
+    
+    @Override
+    public ExecutorStatsResponse getClientStats() {
+        return aiClient.getStats();
+    }
 }
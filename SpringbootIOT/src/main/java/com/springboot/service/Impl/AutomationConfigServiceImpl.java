@@ -7,9 +7,11 @@ import com.springboot.pojo.AutomationConfig;
 import com.springboot.service.AutomationConfigService;
 import com.springboot.service.OperationLogService;
 import com.springboot.service.SseService;
+import com.springboot.utils.CmdIdAllocator;
 import com.springboot.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
@@ -35,12 +37,30 @@ public class AutomationConfigServiceImpl implements AutomationConfigService {
     @Autowired
     private SseService sseService;
     
+    @Autowired
+    private CmdIdAllocator cmdIdAllocator;
+    
     /** 设备上次手动操作时间缓存 */
     private final ConcurrentHashMap<String, Long> manualOperationTime = new ConcurrentHashMap<>();
     
     /** 设备上次自动化执行状态缓存，避免重复执行 */
     private final ConcurrentHashMap<String, DeviceAutoState> deviceStates = new ConcurrentHashMap<>();
     
+    /**
+     * 自动化配置缓存 - 避免每条遥测消息都查库
+     * Key: clientId, Value: 配置(config为null表示该设备无配置，即负缓存)
+     */
+    private final ConcurrentHashMap<String, CachedConfig> configCache = new ConcurrentHashMap<>();
+    
+    /** 配置缓存有效期(ms)，兜底直接改库的场景，saveConfig会立即刷新 */
+    @Value("${automation.config-cache-ttl-ms:60000}")
+    private long configCacheTtlMs;
+    
+    /**
+     * 缓存条目
+     */
+    private record CachedConfig(AutomationConfig config, long loadTime) {}
+    
     /**
      * 设备自动化状态缓存类
      */
@@ -53,9 +73,25 @@ public class AutomationConfigServiceImpl implements AutomationConfigService {
     
     @Override
     public AutomationConfig getConfig(String clientId) {
-        LambdaQueryWrapper<AutomationConfig> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(AutomationConfig::getClientId, clientId);
-        return configMapper.selectOne(wrapper);
+        CachedConfig cached = configCache.get(clientId);
+        long now = System.currentTimeMillis();
+        if (cached != null && now - cached.loadTime() < configCacheTtlMs) {
+            return cached.config();
+        }
+        
+        // 查不到也缓存(负缓存)，没有配置的设备不再反复查库
+        CachedConfig loaded = new CachedConfig(loadConfig(clientId), now);
+        // 只替换查库前看到的那一项: 查库期间saveConfig已刷新的配置不会被这次读到的旧行覆盖
+        boolean stored = cached == null
+                ? configCache.putIfAbsent(clientId, loaded) == null
+                : configCache.replace(clientId, cached, loaded);
+        if (!stored) {
+            CachedConfig current = configCache.get(clientId);
+            if (current != null) {
+                return current.config();
+            }
+        }
+        return loaded.config();
     }
     
     @Override
@@ -72,6 +108,20 @@ public class AutomationConfigServiceImpl implements AutomationConfigService {
             configMapper.insert(config);
             log.info("新建自动化配置: clientId={}", config.getClientId());
         }
+        // 配置变更后用库里的新配置刷新缓存(而不是删除)，并发的getConfig先查到的旧行写不回来；
+        // compute按设备串行，多次保存时后刷新的一定读到更新的行
+        configCache.compute(config.getClientId(),
+                (clientId, old) -> new CachedConfig(loadConfig(clientId), System.currentTimeMillis()));
+    }
+    
+    /**
+     * 从库中查询设备的自动化配置
+     * @return 没有配置返回null
+     */
+    private AutomationConfig loadConfig(String clientId) {
+        LambdaQueryWrapper<AutomationConfig> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(AutomationConfig::getClientId, clientId);
+        return configMapper.selectOne(wrapper);
     }
     
     @Override
@@ -79,12 +129,12 @@ public class AutomationConfigServiceImpl implements AutomationConfigService {
         AutomationConfig config = getConfig(clientId);
         
         // 检查是否启用自动化
-        if (!Boolean.TRUE.equals(config.getEnabled())) {
+        if (config == null || !Boolean.TRUE.equals(config.getEnabled())) {
             return;
         }
         
         // 检查是否在手动暂停期
-        if (isInManualPause(clientId)) {
+        if (isInManualPause(clientId, config)) {
             log.debug("设备 {} 在手动暂停期，跳过自动化", clientId);
             return;
         }
@@ -158,12 +208,12 @@ public class AutomationConfigServiceImpl implements AutomationConfigService {
         AutomationConfig config = getConfig(clientId);
         
         // 检查是否启用自动化
-        if (!Boolean.TRUE.equals(config.getEnabled())) {
+        if (config == null || !Boolean.TRUE.equals(config.getEnabled())) {
             return;
         }
         
         // 检查是否在手动暂停期
-        if (isInManualPause(clientId)) {
+        if (isInManualPause(clientId, config)) {
             return;
         }
         
@@ -196,12 +246,20 @@ public class AutomationConfigServiceImpl implements AutomationConfigService {
     
     @Override
     public boolean isInManualPause(String clientId) {
+        if (!manualOperationTime.containsKey(clientId)) {
+            return false;
+        }
+        return isInManualPause(clientId, getConfig(clientId));
+    }
+    
+    /**
+     * 检查是否在手动暂停期（复用调用方已取到的配置，避免重复查询）
+     */
+    private boolean isInManualPause(String clientId, AutomationConfig config) {
         Long lastManual = manualOperationTime.get(clientId);
-        if (lastManual == null) {
+        if (lastManual == null || config == null || config.getManualPauseMs() == null) {
             return false;
         }
-        
-        AutomationConfig config = getConfig(clientId);
         long elapsed = System.currentTimeMillis() - lastManual;
         return elapsed < config.getManualPauseMs();
     }
@@ -217,7 +275,7 @@ public class AutomationConfigServiceImpl implements AutomationConfigService {
         log.info("自动化执行: clientId={}, op={}, val={}, desc={}", clientId, operation, value, description);
         
         // 构建MQTT消息
-        long cmdId = generateCmdId();
+        long cmdId = cmdIdAllocator.nextId();
         String json;
         
         if ("fan_on".equals(operation) || "fan_off".equals(operation)) {
@@ -232,14 +290,4 @@ public class AutomationConfigServiceImpl implements AutomationConfigService {
         // 记录自动化日志
         operationLogService.logAutoCommand(clientId, operation, description);
     }
-    
-    /**
-     * 生成命令ID
-     */
-    private long generateCmdId() {
-        long timestamp = System.currentTimeMillis();
-        int timePart = (int)(timestamp % 100000);
-        int randomPart = (int)(Math.random() * 10000);
-        return timePart * 10000L + randomPart;
-    }
 }
@@ -4,17 +4,27 @@ import com.springboot.configuration.MqttGateway;
 import com.springboot.pojo.DeviceConfig;
 import com.springboot.pojo.DhtData;
 import com.springboot.pojo.ResultDto;
+import com.springboot.pojo.vo.ReplyRegistryStatsResponse;
 import com.springboot.service.*;
+import com.springboot.utils.CmdIdAllocator;
 import com.springboot.utils.JsonUtil;
+import com.springboot.utils.MqttTopics;
+import com.springboot.utils.ReplyRegistry;
+import com.springboot.utils.TimerWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.integration.mqtt.support.MqttHeaders;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
@@ -37,6 +47,21 @@ public class CamServiceImpl implements CamService {
     
     @Autowired
     private AutomationConfigService automationConfigService;
+    
+    @Autowired
+    private CmdIdAllocator cmdIdAllocator;
+    
+    /** 指令回执等待截止时间(ms)，与操作日志的超时判定一致 */
+    @Value("${operation-log.command-timeout-ms:30000}")
+    private long commandTimeoutMs;
+    
+    /** 回执截止时间轮的tick时长(ms)，与指令超时判定精度一致 */
+    @Value("${operation-log.timer-tick-ms:100}")
+    private long timerTickMs;
+    
+    /** 回执截止时间轮的桶数量 */
+    @Value("${operation-log.timer-wheel-size:512}")
+    private int timerWheelSize;
 
     /**
      * 设备状态缓存 - 存储最新的设备状态
@@ -44,17 +69,44 @@ public class CamServiceImpl implements CamService {
      */
     private final ConcurrentHashMap<String, DeviceConfig> deviceStatusCache = new ConcurrentHashMap<>();
 
+    /** 拍照等待截止时间(s)，比AI侧等待多留5秒作为兜底过期 */
+    @Value("${ai.max-wait-seconds:30}")
+    private int captureWaitSeconds;
+
     /**
      * 待处理的拍照请求 - 用于AI问答等待图片上传完成
-     * Key: cmdId (字符串), Value: CompletableFuture<fileName>
+     * 条目到截止时间自动过期，等待方取消时立即移除
+     * Key: cmdId (字符串), Value: fileName
      */
-    private final ConcurrentHashMap<String, java.util.concurrent.CompletableFuture<String>> pendingCaptures = new ConcurrentHashMap<>();
+    private ReplyRegistry<String, String> pendingCaptures;
+
+    /**
+     * 指令回执关联表 - 每条下发的指令都注册，/result到达时完成
+     * Key: cmdId, Value: 设备回执
+     */
+    private ReplyRegistry<Long, ResultDto> commandReplies;
+    
+    /** 两个关联表共用的截止时间轮 */
+    private TimerWheel replyTimer;
+    
+    @PostConstruct
+    public void init() {
+        replyTimer = new TimerWheel("reply", timerTickMs, timerWheelSize);
+        pendingCaptures = new ReplyRegistry<>("capture", replyTimer);
+        commandReplies = new ReplyRegistry<>("command", replyTimer);
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        replyTimer.stop();
+    }
 
     /**
      * 监听mqtt返回消息的方法
      * 处理来自ESP32的result和status消息
+     * 由MqttIngestDispatcher按clientId分片后投递到mqttProcessChannel
      */
-    @ServiceActivator(inputChannel = "mqttInputChannel")
+    @ServiceActivator(inputChannel = "mqttProcessChannel")
     public void handle(Message<?> msg) {
         String topic = (String) msg.getHeaders().get(MqttHeaders.RECEIVED_TOPIC);
         String json = (String) msg.getPayload();
@@ -70,10 +122,12 @@ public class CamServiceImpl implements CamService {
                 // 语音控制特殊处理: cmdId=0 且 info以"语音控制:"开头
                 if (r.getId() == 0 && r.getInfo() != null && r.getInfo().startsWith("语音控制:")) {
                     // 从topic提取clientId (格式: cam/{clientId}/result)
-                    String clientId = extractClientId(topic);
+                    String clientId = MqttTopics.clientIdOf(topic);
                     // 记录语音控制日志
                     operationLogService.logVoiceCommand(clientId, r.getInfo(), r.isOk());
                 } else {
+                    // 唤醒同步等待该指令的调用方
+                    commandReplies.complete(r.getId(), r);
                     // 正常更新已有日志
                     operationLogService.updateResult(r.getId(), r.isOk(), r.getInfo());
                 }
@@ -154,108 +208,98 @@ public class CamServiceImpl implements CamService {
     }
 
     /**
-     * 从MQTT topic中提取clientId
-     * topic格式: cam/{clientId}/result 或 cam/{clientId}/status
+     * 下发指令到设备
+     * 先注册回执等待、写入操作日志并登记待回执，再发送，避免回执先于日志行到达
+     * @param operation 操作类型(记入操作日志)
+     * @param value 操作值(记入操作日志)
      */
-    private String extractClientId(String topic) {
-        if (topic != null) {
-            String[] parts = topic.split("/");
-            if (parts.length >= 2) {
-                return parts[1];
-            }
-        }
-        return "unknown";
+    private void sendCommand(String clientId, long id, String json, String operation, int value) {
+        commandReplies.register(id, commandTimeoutMs);
+        operationLogService.log(clientId, operation, id, value);
+        mqttGateway.send("cam/" + clientId + "/cmd", json);
     }
 
     /**
-     * 生成命令ID（确保在32位long范围内）
-     * 格式：时间戳后6位 + 4位随机数 = 10位数字
-     * 范围：100000000 - 9999999999
+     * 等待指令回执(由回执时间轮计时，不占用调用线程)
      */
-    private long generateCmdId() {
-        long timestamp = System.currentTimeMillis();
-        // 修改为后5位，避免超过 ESP32 long (int32) 范围 (21亿)
-        // 99999 * 10000 + 9999 = 999,999,999 < 2,147,483,647
-        int timePart = (int)(timestamp % 100000); 
-        int randomPart = (int)(Math.random() * 10000);  // 4位随机数
-        return timePart * 10000L + randomPart;
+    @Override
+    public CompletableFuture<ResultDto> awaitCommandReply(long cmdId, long waitMs) {
+        return commandReplies.await(cmdId, waitMs);
+    }
+
+    /**
+     * 获取回执关联表统计(指令回执、拍照等待)
+     */
+    @Override
+    public List<ReplyRegistryStatsResponse> getReplyStats() {
+        return List.of(commandReplies.getStats(), pendingCaptures.getStats());
     }
 
     /**
      * 触发拍照指令
      */
     @Override
-    public String triggerCapture(String clientId) {
-        long id = generateCmdId();
+    public long triggerCapture(String clientId) {
+        long id = cmdIdAllocator.nextId();
         String json = JsonUtil.toJson(Map.of("id", id, "op", "capture", "val", 0));
-        mqttGateway.send("cam/" + clientId + "/cmd", json);
-        // 记录操作日志
-        operationLogService.log(clientId, "capture", id, 0);
-        return "cmd queued " + id;
+        sendCommand(clientId, id, json, "capture", 0);
+        return id;
     }
 
     /**
      * 控制LED开关
      */
     @Override
-    public String controlLed(String clientId, int value) {
-        long id = generateCmdId();
+    public long controlLed(String clientId, int value) {
+        long id = cmdIdAllocator.nextId();
         String json = JsonUtil.toJson(Map.of("id", id, "op", "led", "val", value));
-        mqttGateway.send("cam/" + clientId + "/cmd", json);
+        sendCommand(clientId, id, json, "led", value);
         log.info("发送LED控制指令: clientId={}, cmdId={}, value={}", clientId, id, value);
-        // 记录操作日志
-        operationLogService.log(clientId, "led", id, value);
         // 记录手动操作，暂停自动化
         automationConfigService.recordManualOperation(clientId);
-        return "cmd queued " + id;
+        return id;
     }
 
     /**
      * 设置LED亮度
      */
     @Override
-    public String setLedBrightness(String clientId, int value) {
+    public long setLedBrightness(String clientId, int value) {
         if (value < 0 || value > 255) {
             throw new IllegalArgumentException("LED亮度值必须在0-255之间");
         }
-        long id = generateCmdId();
+        long id = cmdIdAllocator.nextId();
         String json = JsonUtil.toJson(Map.of("id", id, "op", "led_brightness", "val", value));
-        mqttGateway.send("cam/" + clientId + "/cmd", json);
+        sendCommand(clientId, id, json, "led_brightness", value);
         log.info("发送LED亮度指令: clientId={}, cmdId={}, brightness={}", clientId, id, value);
-        // 记录操作日志
-        operationLogService.log(clientId, "led_brightness", id, value);
-        return "cmd queued " + id;
+        return id;
     }
 
     /**
      * 控制红色指示灯开关
      */
     @Override
-    public String controlRedLed(String clientId, int value) {
-        long id = generateCmdId();
+    public long controlRedLed(String clientId, int value) {
+        long id = cmdIdAllocator.nextId();
         String json = JsonUtil.toJson(Map.of("id", id, "op", "red_led", "val", value));
-        mqttGateway.send("cam/" + clientId + "/cmd", json);
+        sendCommand(clientId, id, json, "red_led", value);
         log.info("发送红色指示灯指令: clientId={}, cmdId={}, value={}", clientId, id, value);
-        // 记录操作日志
-        operationLogService.log(clientId, "red_led", id, value);
         // 记录手动操作，暂停自动化
         automationConfigService.recordManualOperation(clientId);
-        return "cmd queued " + id;
+        return id;
     }
 
     /**
      * 设置摄像头参数
      */
     @Override
-    public String setCameraParam(String clientId, String param, int value) {
-        long id = generateCmdId();
+    public long setCameraParam(String clientId, String param, int value) {
+        long id = cmdIdAllocator.nextId();
         String json = JsonUtil.toJson(Map.of("id", id, "op", param, "val", value));
-        mqttGateway.send("cam/" + clientId + "/cmd", json);
+        sendCommand(clientId, id, json, param, value);
         log.info("发送摄像头参数指令: clientId={}, cmdId={}, param={}, value={}", 
                  clientId, id, param, value);
-        // 记录操作日志
-        operationLogService.log(clientId, param, id, value);
-        return "cmd queued " + id;
+        return id;
     }
 
     /**
@@ -293,41 +337,37 @@ public class CamServiceImpl implements CamService {
      * 设置视频流分辨率
      */
     @Override
-    public String setStreamResolution(String clientId, int framesize) {
-        long id = generateCmdId();
+    public long setStreamResolution(String clientId, int framesize) {
+        long id = cmdIdAllocator.nextId();
         String json = JsonUtil.toJson(Map.of("id", id, "op", "framesize", "val", framesize));
-        mqttGateway.send("cam/" + clientId + "/cmd", json);
+        sendCommand(clientId, id, json, "framesize", framesize);
         log.info("发送分辨率设置指令: clientId={}, cmdId={}, framesize={}", clientId, id, framesize);
-        // 记录操作日志
-        operationLogService.log(clientId, "framesize", id, framesize);
-        return "cmd queued " + id;
+        return id;
     }
 
     /**
      * 设置WiFi配置
      */
     @Override
-    public String setWiFiConfig(String clientId, String ssid, String password) {
-        long id = generateCmdId();
+    public long setWiFiConfig(String clientId, String ssid, String password) {
+        long id = cmdIdAllocator.nextId();
         Map<String, Object> payload = new HashMap<>();
         payload.put("id", id);
         payload.put("op", "set_wifi");
         payload.put("ssid", ssid);
         payload.put("password", password);
         String json = JsonUtil.toJson(payload);
-        mqttGateway.send("cam/" + clientId + "/cmd", json);
+        sendCommand(clientId, id, json, "set_wifi", 0);
         log.info("发送WiFi配置指令: clientId={}, cmdId={}", clientId, id);
-        // 记录操作日志
-        operationLogService.log(clientId, "set_wifi", id, 0);
-        return "cmd queued " + id;
+        return id;
     }
 
     /**
      * 设置MQTT配置
      */
     @Override
-    public String setMQTTConfig(String clientId, String server, int port, String mqttClientId) {
-        long id = generateCmdId();
+    public long setMQTTConfig(String clientId, String server, int port, String mqttClientId) {
+        long id = cmdIdAllocator.nextId();
         Map<String, Object> payload = new HashMap<>();
         payload.put("id", id);
         payload.put("op", "set_mqtt");
@@ -335,130 +375,114 @@ public class CamServiceImpl implements CamService {
         payload.put("port", port);
         payload.put("clientId", mqttClientId);
         String json = JsonUtil.toJson(payload);
-        mqttGateway.send("cam/" + clientId + "/cmd", json);
+        sendCommand(clientId, id, json, "set_mqtt", 0);
         log.info("发送MQTT配置指令: clientId={}, cmdId={}", clientId, id);
-        // 记录操作日志
-        operationLogService.log(clientId, "set_mqtt", id, 0);
-        return "cmd queued " + id;
+        return id;
     }
 
     /**
      * 设置上传URL
      */
     @Override
-    public String setUploadUrl(String clientId, String url) {
-        long id = generateCmdId();
+    public long setUploadUrl(String clientId, String url) {
+        long id = cmdIdAllocator.nextId();
         Map<String, Object> payload = new HashMap<>();
         payload.put("id", id);
         payload.put("op", "set_upload_url");
         payload.put("url", url);
         String json = JsonUtil.toJson(payload);
-        mqttGateway.send("cam/" + clientId + "/cmd", json);
+        sendCommand(clientId, id, json, "set_upload_url", 0);
         log.info("发送上传URL配置指令: clientId={}, cmdId={}, url={}", clientId, id, url);
-        // 记录操作日志
-        operationLogService.log(clientId, "set_upload_url", id, 0);
-        return "cmd queued " + id;
+        return id;
     }
 
     /**
      * 重置配置
      */
     @Override
-    public String resetConfig(String clientId) {
-        long id = generateCmdId();
+    public long resetConfig(String clientId) {
+        long id = cmdIdAllocator.nextId();
         String json = JsonUtil.toJson(Map.of("id", id, "op", "reset_config"));
-        mqttGateway.send("cam/" + clientId + "/cmd", json);
+        sendCommand(clientId, id, json, "reset_config", 0);
         log.info("发送重置配置指令: clientId={}, cmdId={}", clientId, id);
-        // 记录操作日志
-        operationLogService.log(clientId, "reset_config", id, 0);
-        return "cmd queued " + id;
+        return id;
     }
 
     /**
      * 查询配置
      */
     @Override
-    public String getConfig(String clientId) {
-        long id = generateCmdId();
+    public long getConfig(String clientId) {
+        long id = cmdIdAllocator.nextId();
         String json = JsonUtil.toJson(Map.of("id", id, "op", "get_config"));
-        mqttGateway.send("cam/" + clientId + "/cmd", json);
+        sendCommand(clientId, id, json, "get_config", 0);
         log.info("发送查询配置指令: clientId={}, cmdId={}", clientId, id);
-        // 记录操作日志
-        operationLogService.log(clientId, "get_config", id, 0);
-        return "cmd queued " + id;
+        return id;
     }
 
     /**
      * 设置DHT读取间隔
      */
     @Override
-    public String setDhtInterval(String clientId, int interval) {
+    public long setDhtInterval(String clientId, int interval) {
         // 限制范围 1000-60000 毫秒
         if (interval < 1000) interval = 1000;
         if (interval > 60000) interval = 60000;
         
-        long id = generateCmdId();
+        long id = cmdIdAllocator.nextId();
         String json = JsonUtil.toJson(Map.of("id", id, "op", "set_dht_interval", "val", interval));
-        mqttGateway.send("cam/" + clientId + "/cmd", json);
+        sendCommand(clientId, id, json, "set_dht_interval", interval);
         log.info("发送DHT间隔设置指令: clientId={}, cmdId={}, interval={}ms", clientId, id, interval);
-        // 记录操作日志
-        operationLogService.log(clientId, "set_dht_interval", id, interval);
-        return "cmd queued " + id;
+        return id;
     }
     
     /**
      * 设置状态上报间隔
      */
     @Override
-    public String setStatusInterval(String clientId, int interval) {
+    public long setStatusInterval(String clientId, int interval) {
         // 限制范围 1000-300000 毫秒(1秒-5分钟)
         if (interval < 1000) interval = 1000;
         if (interval > 300000) interval = 300000;
         
-        long id = generateCmdId();
+        long id = cmdIdAllocator.nextId();
         String json = JsonUtil.toJson(Map.of("id", id, "op", "set_status_interval", "val", interval));
-        mqttGateway.send("cam/" + clientId + "/cmd", json);
+        sendCommand(clientId, id, json, "set_status_interval", interval);
         log.info("发送状态上报间隔设置指令: clientId={}, cmdId={}, interval={}ms", clientId, id, interval);
-        // 记录操作日志
-        operationLogService.log(clientId, "set_status_interval", id, interval);
-        return "cmd queued " + id;
+        return id;
     }
     
     /**
      * 控制舵机角度 (窗户控制)
      */
     @Override
-    public String controlServo(String clientId, int angle) {
+    public long controlServo(String clientId, int angle) {
         // 限制范围 0-180 度
         if (angle < 0) angle = 0;
         if (angle > 180) angle = 180;
         
-        long id = generateCmdId();
+        long id = cmdIdAllocator.nextId();
         String json = JsonUtil.toJson(Map.of("id", id, "op", "servo", "val", angle));
-        mqttGateway.send("cam/" + clientId + "/cmd", json);
+        sendCommand(clientId, id, json, "servo", angle);
         log.info("发送舵机控制指令: clientId={}, cmdId={}, angle={}°", clientId, id, angle);
-        // 记录操作日志
-        operationLogService.log(clientId, "servo", id, angle);
         // 记录手动操作，暂停自动化
         automationConfigService.recordManualOperation(clientId);
-        return "cmd queued " + id;
+        return id;
     }
     
     /**
      * 控制继电器 (风扇控制)
      */
     @Override
-    public String controlRelay(String clientId, boolean on) {
-        long id = generateCmdId();
+    public long controlRelay(String clientId, boolean on) {
+        long id = cmdIdAllocator.nextId();
         String op = on ? "fan_on" : "fan_off";
         String json = JsonUtil.toJson(Map.of("id", id, "op", op));
-        mqttGateway.send("cam/" + clientId + "/cmd", json);
+        sendCommand(clientId, id, json, op, on ? 1 : 0);
         log.info("发送继电器控制指令: clientId={}, cmdId={}, 状态={}", clientId, id, on ? "开启" : "关闭");
-        // 记录操作日志
-        operationLogService.log(clientId, op, id, on ? 1 : 0);
         // 记录手动操作，暂停自动化
         automationConfigService.recordManualOperation(clientId);
-        return "cmd queued " + id;
+        return id;
     }
     
     /**
@@ -467,19 +491,16 @@ public class CamServiceImpl implements CamService {
      */
     @Override
     public CaptureResult triggerCaptureWithWait(String clientId) {
-        long id = generateCmdId();
+        long id = cmdIdAllocator.nextId();
         String json = JsonUtil.toJson(Map.of("id", id, "op", "capture", "val", 0));
         
         // 创建Future用于等待图片上传完成
-        java.util.concurrent.CompletableFuture<String> future = new java.util.concurrent.CompletableFuture<>();
         String cmdIdStr = String.valueOf(id);
-        pendingCaptures.put(cmdIdStr, future);
+        CompletableFuture<String> future = pendingCaptures.register(cmdIdStr, (captureWaitSeconds + 5) * 1000L);
         log.info("注册拍照等待: cmdId={}", cmdIdStr);
         
         // 发送MQTT指令
-        mqttGateway.send("cam/" + clientId + "/cmd", json);
-        // 记录操作日志
-        operationLogService.log(clientId, "capture", id, 0);
+        sendCommand(clientId, id, json, "capture", 0);
         
         return new CaptureResult(id, future);
     }
@@ -490,10 +511,8 @@ public class CamServiceImpl implements CamService {
      */
     @Override
     public void notifyCaptureComplete(String cmdId, String fileName) {
-        java.util.concurrent.CompletableFuture<String> future = pendingCaptures.remove(cmdId);
-        if (future != null) {
+        if (pendingCaptures.complete(cmdId, fileName)) {
             log.info("通知拍照完成: cmdId={}, fileName={}", cmdId, fileName);
-            future.complete(fileName);
         } else {
             log.debug("未找到等待的拍照请求: cmdId={}", cmdId);
         }
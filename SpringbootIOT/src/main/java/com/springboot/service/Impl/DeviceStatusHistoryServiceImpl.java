@@ -2,18 +2,33 @@ package com.springboot.service.Impl;
 
 import com.springboot.mapper.DeviceStatusHistoryMapper;
 import com.springboot.pojo.DeviceStatusHistory;
+import com.springboot.pojo.SeriesRangeStats;
 import com.springboot.pojo.vo.StatusChartResponse;
+import com.springboot.pojo.vo.WriteBufferStatsResponse;
 import com.springboot.service.DeviceStatusHistoryService;
+import com.springboot.service.TelemetryRollupService;
+import com.springboot.utils.IntTelemetryRing;
+import com.springboot.utils.LttbDownsampler;
+import com.springboot.utils.WriteBehindBuffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 设备状态历史服务实现
+ * 每个设备在内存中保留最近N个采样点的环形缓冲区，入库时同步写入，
+ * 状态图表优先从环形缓冲区取数，只有请求点数超出缓冲区或缓冲区关闭时才查库；
+ * 按时间区间查询时流式读库并用LTTB降采样，返回点数与区间长度无关
  */
 @Slf4j
 @Service
@@ -22,7 +37,54 @@ public class DeviceStatusHistoryServiceImpl implements DeviceStatusHistoryServic
     @Autowired
     private DeviceStatusHistoryMapper mapper;
     
+    @Autowired
+    private TelemetryRollupService telemetryRollupService;
+    
     private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+    /** 跨天区间的时间标签格式 */
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("MM-dd HH:mm:ss");
+    
+    /** 单批最大行数 */
+    @Value("${write-buffer.status.batch-size:200}")
+    private int batchSize;
+    
+    /** 定时写库间隔(ms) */
+    @Value("${write-buffer.status.flush-interval-ms:2000}")
+    private long flushIntervalMs;
+    
+    /** 缓冲区容量 */
+    @Value("${write-buffer.status.capacity:20000}")
+    private int capacity;
+    
+    /** 数据库不可用时的处理策略: DROP=丢弃, PARK=暂存重试 */
+    @Value("${write-buffer.status.failure-policy:PARK}")
+    private WriteBehindBuffer.FailurePolicy failurePolicy;
+    
+    /** PARK策略下最多暂存的行数 */
+    @Value("${write-buffer.status.park-capacity:10000}")
+    private int parkCapacity;
+    
+    /** 状态历史批量写缓冲区 */
+    private WriteBehindBuffer<DeviceStatusHistory> writeBuffer;
+    
+    /** 每个设备环形缓冲区保留的采样点数 */
+    @Value("${telemetry.ring.capacity:1800}")
+    private int ringCapacity;
+    
+    /** 各设备最近采样点 */
+    private final ConcurrentHashMap<String, IntTelemetryRing> rings = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void init() {
+        writeBuffer = new WriteBehindBuffer<>("status", batchSize, flushIntervalMs, capacity,
+                batch -> mapper.insertBatch(batch), failurePolicy, parkCapacity);
+        writeBuffer.start();
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        writeBuffer.shutdown();
+    }
     
     @Override
     public void save(String clientId, int rssi, int freeHeap, long uptime) {
@@ -31,9 +93,19 @@ public class DeviceStatusHistoryServiceImpl implements DeviceStatusHistoryServic
         history.setRssi(rssi);
         history.setFreeHeap(freeHeap);
         history.setUptime(uptime);
-        history.setCreateTime(LocalDateTime.now());
-        mapper.insert(history);
-        log.debug("保存设备状态: clientId={}, rssi={}, freeHeap={}", clientId, rssi, freeHeap);
+        long now = System.currentTimeMillis();
+        history.setCreateTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(now), ZoneId.systemDefault()));
+        writeBuffer.add(history);
+        if (ringCapacity > 0) {
+            rings.computeIfAbsent(clientId, k -> new IntTelemetryRing(ringCapacity)).add(now, rssi, freeHeap);
+        }
+        telemetryRollupService.recordStatus(clientId, history.getCreateTime(), rssi, freeHeap);
+        log.debug("缓冲设备状态: clientId={}, rssi={}, freeHeap={}", clientId, rssi, freeHeap);
+    }
+    
+    @Override
+    public WriteBufferStatsResponse getWriteBufferStats() {
+        return writeBuffer.getStats();
     }
     
     @Override
@@ -43,6 +115,14 @@ public class DeviceStatusHistoryServiceImpl implements DeviceStatusHistoryServic
     
     @Override
     public StatusChartResponse getChartData(String clientId, int limit) {
+        if (ringCapacity > 0) {
+            StatusChartResponse fromRing = fromRing(clientId, limit);
+            if (fromRing != null) {
+                return fromRing;
+            }
+        }
+        
+        // 环形缓冲区关闭或请求点数超过其容量，回退到数据库
         List<DeviceStatusHistory> list = mapper.findLatestByClientId(clientId, limit);
         
         // 反转列表（数据库查询是DESC，图表需要ASC）
@@ -64,4 +144,92 @@ public class DeviceStatusHistoryServiceImpl implements DeviceStatusHistoryServic
                 .freeHeapData(freeHeapData)
                 .build();
     }
+    
+    @Override
+    public StatusChartResponse getChartData(String clientId, LocalDateTime from, LocalDateTime to, int maxPoints) {
+        List<String> labels = new ArrayList<>();
+        List<Integer> rssiData = new ArrayList<>();
+        List<Integer> freeHeapData = new ArrayList<>();
+        StatusChartResponse response = StatusChartResponse.builder()
+                .labels(labels)
+                .rssiData(rssiData)
+                .freeHeapData(freeHeapData)
+                .build();
+        
+        // 先取行数和值域，用于划分LTTB桶和归一化信号/内存两条序列(量纲相差很大)
+        SeriesRangeStats stats = mapper.selectRangeStats(clientId, from, to);
+        if (stats == null || stats.getRowCount() == null || stats.getRowCount() == 0) {
+            return response;
+        }
+        LttbDownsampler sampler = new LttbDownsampler(stats.getRowCount(), maxPoints,
+                stats.getFirstMax() - stats.getFirstMin(), stats.getSecondMax() - stats.getSecondMin());
+        double[] values = new double[2];
+        mapper.streamRange(clientId, from, to, context -> {
+            DeviceStatusHistory h = context.getResultObject();
+            values[0] = h.getRssi();
+            values[1] = h.getFreeHeap();
+            sampler.add(toEpochMilli(h.getCreateTime()), values);
+        });
+        sampler.finish();
+        
+        DateTimeFormatter formatter = from.plusDays(1).isBefore(to) ? DATE_TIME_FORMAT : TIME_FORMAT;
+        for (int i = 0; i < sampler.size(); i++) {
+            labels.add(LocalDateTime.ofInstant(Instant.ofEpochMilli(sampler.time(i)), ZoneId.systemDefault()).format(formatter));
+            rssiData.add((int) sampler.value(0, i));
+            freeHeapData.add((int) sampler.value(1, i) / 1024);  // 转换为KB
+        }
+        log.debug("状态区间降采样: clientId={}, {}行 -> {}点", clientId, sampler.inputCount(), sampler.size());
+        return response;
+    }
+    
+    /**
+     * 从环形缓冲区取图表数据，首次访问时用库里的历史补齐(只查一次)
+     * @return 请求点数超过缓冲区容量时返回null
+     */
+    private StatusChartResponse fromRing(String clientId, int limit) {
+        IntTelemetryRing ring = rings.get(clientId);
+        if (ring == null || !ring.isSeeded()) {
+            List<DeviceStatusHistory> history = mapper.findLatestByClientId(clientId, ringCapacity);
+            if (ring == null) {
+                if (history.isEmpty()) {
+                    // 没有任何数据的设备不建缓冲区
+                    return StatusChartResponse.builder()
+                            .labels(new ArrayList<>()).rssiData(new ArrayList<>()).freeHeapData(new ArrayList<>())
+                            .build();
+                }
+                ring = rings.computeIfAbsent(clientId, k -> new IntTelemetryRing(ringCapacity));
+            }
+            Collections.reverse(history);
+            ring.seed(history, h -> toEpochMilli(h.getCreateTime()),
+                    DeviceStatusHistory::getRssi, DeviceStatusHistory::getFreeHeap);
+        }
+        return toChart(ring, limit);
+    }
+    
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    
+    /**
+     * 用环形缓冲区最近limit个点构建图表数据
+     * @return 缓冲区容量不足以覆盖limit时返回null
+     */
+    private static StatusChartResponse toChart(IntTelemetryRing ring, int limit) {
+        List<String> labels = new ArrayList<>();
+        List<Integer> rssiData = new ArrayList<>();
+        List<Integer> freeHeapData = new ArrayList<>();
+        boolean covered = ring.forEachLatest(limit, (time, rssi, freeHeap) -> {
+            labels.add(LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault()).format(TIME_FORMAT));
+            rssiData.add(rssi);
+            freeHeapData.add(freeHeap / 1024);  // 转换为KB
+        });
+        if (!covered) {
+            return null;
+        }
+        return StatusChartResponse.builder()
+                .labels(labels)
+                .rssiData(rssiData)
+                .freeHeapData(freeHeapData)
+                .build();
+    }
 }
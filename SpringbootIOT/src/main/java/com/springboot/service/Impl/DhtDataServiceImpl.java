@@ -1,20 +1,34 @@
 package com.springboot.service.Impl;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.springboot.mapper.DhtDataMapper;
 import com.springboot.pojo.DhtData;
+import com.springboot.pojo.SeriesRangeStats;
 import com.springboot.pojo.vo.DhtDashboardResponse;
+import com.springboot.pojo.vo.WriteBufferStatsResponse;
 import com.springboot.service.DhtDataService;
+import com.springboot.service.TelemetryRollupService;
+import com.springboot.utils.DoubleTelemetryRing;
+import com.springboot.utils.LttbDownsampler;
+import com.springboot.utils.WriteBehindBuffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * DHT22温湿度数据服务实现
+ * 每个设备在内存中保留最近N个采样点的环形缓冲区，入库时同步写入，
+ * 面板图表优先从环形缓冲区取数，只有请求点数超出缓冲区或缓冲区关闭时才查库；
+ * 按时间区间查询时流式读库并用LTTB降采样，返回点数与区间长度无关
  */
 @Slf4j
 @Service
@@ -23,7 +37,46 @@ public class DhtDataServiceImpl implements DhtDataService {
     @Autowired
     private DhtDataMapper dhtDataMapper;
 
+    @Autowired
+    private TelemetryRollupService telemetryRollupService;
+
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+    /** 跨天区间的时间标签格式 */
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("MM-dd HH:mm:ss");
+
+    /** 单批最大行数 */
+    @Value("${write-buffer.dht.batch-size:200}")
+    private int batchSize;
+
+    /** 定时写库间隔(ms) */
+    @Value("${write-buffer.dht.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    /** 缓冲区容量 */
+    @Value("${write-buffer.dht.capacity:20000}")
+    private int capacity;
+
+    /** 温湿度批量写缓冲区 */
+    private WriteBehindBuffer<DhtData> writeBuffer;
+
+    /** 每个设备环形缓冲区保留的采样点数 */
+    @Value("${telemetry.ring.capacity:1800}")
+    private int ringCapacity;
+
+    /** 各设备最近采样点 */
+    private final ConcurrentHashMap<String, DoubleTelemetryRing> rings = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        writeBuffer = new WriteBehindBuffer<>("dht", batchSize, flushIntervalMs, capacity,
+                batch -> dhtDataMapper.insertBatch(batch));
+        writeBuffer.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        writeBuffer.shutdown();
+    }
 
     @Override
     public void save(String clientId, double temperature, double humidity, Boolean lightDark) {
@@ -32,29 +85,32 @@ public class DhtDataServiceImpl implements DhtDataService {
         data.setTemperature(temperature);
         data.setHumidity(humidity);
         data.setLightDark(lightDark);
-        data.setCreateTime(LocalDateTime.now());
+        long now = System.currentTimeMillis();
+        data.setCreateTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(now), ZoneId.systemDefault()));
 
-        dhtDataMapper.insert(data);
-        log.info("保存温湿度: clientId={}, 温度={}℃, 湿度={}%, 光照:{}", 
+        writeBuffer.add(data);
+        if (ringCapacity > 0) {
+            rings.computeIfAbsent(clientId, k -> new DoubleTelemetryRing(ringCapacity)).add(now, temperature, humidity);
+        }
+        telemetryRollupService.recordDht(clientId, data.getCreateTime(), temperature, humidity);
+        log.debug("缓冲温湿度: clientId={}, 温度={}℃, 湿度={}%, 光照:{}", 
                  clientId, temperature, humidity, lightDark != null ? (lightDark ? "暗" : "亮") : "无");
     }
 
+    @Override
+    public WriteBufferStatsResponse getWriteBufferStats() {
+        return writeBuffer.getStats();
+    }
+
     @Override
     public DhtData getLatest(String clientId) {
-        LambdaQueryWrapper<DhtData> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(DhtData::getClientId, clientId);
-        wrapper.orderByDesc(DhtData::getCreateTime);
-        wrapper.last("LIMIT 1");
-        return dhtDataMapper.selectOne(wrapper);
+        List<DhtData> list = dhtDataMapper.findLatestByClientId(clientId, 1);
+        return list.isEmpty() ? null : list.get(0);
     }
 
     @Override
     public List<DhtData> getLatestList(String clientId, int limit) {
-        LambdaQueryWrapper<DhtData> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(DhtData::getClientId, clientId);
-        wrapper.orderByDesc(DhtData::getCreateTime);
-        wrapper.last("LIMIT " + limit);
-        List<DhtData> list = dhtDataMapper.selectList(wrapper);
+        List<DhtData> list = dhtDataMapper.findLatestByClientId(clientId, limit);
         // 反转顺序，让时间从旧到新
         Collections.reverse(list);
         return list;
@@ -62,18 +118,54 @@ public class DhtDataServiceImpl implements DhtDataService {
 
     @Override
     public DhtDashboardResponse getDashboardData(String clientId, int chartLimit) {
-        DhtDashboardResponse.DhtDashboardResponseBuilder builder = DhtDashboardResponse.builder();
+        if (ringCapacity > 0) {
+            DhtDashboardResponse fromRing = fromRing(clientId, chartLimit);
+            if (fromRing != null) {
+                return fromRing;
+            }
+        }
+        // 环形缓冲区关闭或请求点数超过其容量，回退到数据库
+        return fromDatabase(clientId, chartLimit);
+    }
+
+    /**
+     * 从环形缓冲区取面板数据，首次访问时用库里的历史补齐(只查一次，同一次查询也给出最新值)
+     * @return 请求点数超过缓冲区容量时返回null
+     */
+    private DhtDashboardResponse fromRing(String clientId, int chartLimit) {
+        DoubleTelemetryRing ring = rings.get(clientId);
+        if (ring == null || !ring.isSeeded()) {
+            List<DhtData> history = getLatestList(clientId, ringCapacity);
+            if (ring == null) {
+                if (history.isEmpty()) {
+                    // 没有任何数据的设备不建缓冲区
+                    return DhtDashboardResponse.builder()
+                            .labels(new ArrayList<>()).temperatures(new ArrayList<>()).humidities(new ArrayList<>())
+                            .build();
+                }
+                ring = rings.computeIfAbsent(clientId, k -> new DoubleTelemetryRing(ringCapacity));
+            }
+            ring.seed(history, d -> toEpochMilli(d.getCreateTime()), DhtData::getTemperature, DhtData::getHumidity);
+        }
+        return toDashboard(ring, chartLimit);
+    }
 
-        // 获取最新数据
-        DhtData latest = getLatest(clientId);
-        if (latest != null) {
+    /**
+     * 查库取面板数据: 一次查询同时得到最新值和图表数据(最新值即最近一条)
+     * chartLimit为0时仍查1条用于最新值，图表为空
+     */
+    private DhtDashboardResponse fromDatabase(String clientId, int chartLimit) {
+        DhtDashboardResponse.DhtDashboardResponseBuilder builder = DhtDashboardResponse.builder();
+        List<DhtData> rows = getLatestList(clientId, Math.max(1, chartLimit));
+        if (!rows.isEmpty()) {
+            DhtData latest = rows.get(rows.size() - 1);
             builder.temperature(latest.getTemperature())
                     .humidity(latest.getHumidity())
                     .updateTime(latest.getCreateTime().format(TIME_FORMATTER));
         }
+        int chartSize = Math.min(Math.max(chartLimit, 0), rows.size());
+        List<DhtData> chartData = rows.subList(rows.size() - chartSize, rows.size());
 
-        // 获取图表数据
-        List<DhtData> chartData = getLatestList(clientId, chartLimit);
         List<String> labels = new ArrayList<>();
         List<Double> temperatures = new ArrayList<>();
         List<Double> humidities = new ArrayList<>();
@@ -90,4 +182,84 @@ public class DhtDataServiceImpl implements DhtDataService {
 
         return builder.build();
     }
+
+    @Override
+    public DhtDashboardResponse getDashboardData(String clientId, LocalDateTime from, LocalDateTime to, int maxPoints) {
+        List<String> labels = new ArrayList<>();
+        List<Double> temperatures = new ArrayList<>();
+        List<Double> humidities = new ArrayList<>();
+        DhtDashboardResponse.DhtDashboardResponseBuilder builder = DhtDashboardResponse.builder()
+                .labels(labels)
+                .temperatures(temperatures)
+                .humidities(humidities);
+
+        // 先取行数和值域，用于划分LTTB桶和归一化温湿度两条序列
+        SeriesRangeStats stats = dhtDataMapper.selectRangeStats(clientId, from, to);
+        if (stats == null || stats.getRowCount() == null || stats.getRowCount() == 0) {
+            return builder.build();
+        }
+        LttbDownsampler sampler = new LttbDownsampler(stats.getRowCount(), maxPoints,
+                stats.getFirstMax() - stats.getFirstMin(), stats.getSecondMax() - stats.getSecondMin());
+        double[] values = new double[2];
+        dhtDataMapper.streamRange(clientId, from, to, context -> {
+            DhtData data = context.getResultObject();
+            values[0] = data.getTemperature();
+            values[1] = data.getHumidity();
+            sampler.add(toEpochMilli(data.getCreateTime()), values);
+        });
+        sampler.finish();
+
+        DateTimeFormatter formatter = from.plusDays(1).isBefore(to) ? DATE_TIME_FORMATTER : TIME_FORMATTER;
+        int n = sampler.size();
+        for (int i = 0; i < n; i++) {
+            labels.add(formatTime(sampler.time(i), formatter));
+            temperatures.add(sampler.value(0, i));
+            humidities.add(sampler.value(1, i));
+        }
+        if (n > 0) {
+            builder.temperature(sampler.value(0, n - 1))
+                    .humidity(sampler.value(1, n - 1))
+                    .updateTime(formatTime(sampler.time(n - 1), formatter));
+        }
+        log.debug("温湿度区间降采样: clientId={}, {}行 -> {}点", clientId, sampler.inputCount(), n);
+        return builder.build();
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static String formatTime(long epochMilli) {
+        return formatTime(epochMilli, TIME_FORMATTER);
+    }
+
+    private static String formatTime(long epochMilli, DateTimeFormatter formatter) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneId.systemDefault()).format(formatter);
+    }
+
+    /**
+     * 用环形缓冲区最近limit个点构建面板数据
+     * @return 缓冲区容量不足以覆盖limit时返回null
+     */
+    private static DhtDashboardResponse toDashboard(DoubleTelemetryRing ring, int limit) {
+        List<String> labels = new ArrayList<>();
+        List<Double> temps = new ArrayList<>();
+        List<Double> hums = new ArrayList<>();
+        boolean covered = ring.forEachLatest(limit, (time, temperature, humidity) -> {
+            labels.add(formatTime(time));
+            temps.add(temperature);
+            hums.add(humidity);
+        });
+        if (!covered) {
+            return null;
+        }
+        DhtDashboardResponse.DhtDashboardResponseBuilder builder = DhtDashboardResponse.builder()
+                .labels(labels)
+                .temperatures(temps)
+                .humidities(hums);
+        ring.latest((time, temperature, humidity) -> builder.temperature(temperature)
+                .humidity(humidity)
+                .updateTime(formatTime(time)));
+        return builder.build();
+    }
 }
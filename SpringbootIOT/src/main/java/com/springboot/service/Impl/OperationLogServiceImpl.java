@@ -3,14 +3,25 @@ package com.springboot.service.Impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.springboot.mapper.OperationLogMapper;
 import com.springboot.pojo.OperationLog;
+import com.springboot.pojo.vo.CommandStatsResponse;
 import com.springboot.service.OperationLogService;
 import com.springboot.utils.OperationDesc;
+import com.springboot.utils.TimerWheel;
+import com.springboot.utils.WriteBehindBuffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 操作日志服务实现
@@ -25,6 +36,72 @@ public class OperationLogServiceImpl implements OperationLogService {
     @Autowired
     private com.springboot.service.SseService sseService;
     
+    /** 指令回执超时时间(ms)，超时未回执的指令标记为timeout */
+    @Value("${operation-log.command-timeout-ms:30000}")
+    private long commandTimeoutMs;
+    
+    /** 超时时间轮的tick时长(ms)，即超时判定精度 */
+    @Value("${operation-log.timer-tick-ms:100}")
+    private long timerTickMs;
+    
+    /** 超时时间轮的桶数量 */
+    @Value("${operation-log.timer-wheel-size:512}")
+    private int timerWheelSize;
+    
+    /** 超时标记批量写库的单批最大行数 */
+    @Value("${operation-log.timeout-batch-size:200}")
+    private int timeoutBatchSize;
+    
+    /** 超时标记定时写库间隔(ms) */
+    @Value("${operation-log.timeout-flush-interval-ms:200}")
+    private long timeoutFlushIntervalMs;
+    
+    /** 超时标记缓冲区最大容量 */
+    @Value("${operation-log.timeout-buffer-capacity:10000}")
+    private int timeoutBufferCapacity;
+    
+    /** 数据库不可用时最多暂存的超时标记数(待回执表已摘除，丢弃的行会一直停在pending) */
+    @Value("${operation-log.timeout-park-capacity:10000}")
+    private int timeoutParkCapacity;
+    
+    /**
+     * 待回执指令表 - /result回执时直接按主键更新，无需先查库
+     * Key: cmdId, Value: 日志行信息
+     */
+    private final ConcurrentHashMap<Long, PendingCommand> pendingCommands = new ConcurrentHashMap<>();
+    
+    /** 超时时间轮，所有待回执指令共用一个线程 */
+    private TimerWheel timeoutWheel;
+    
+    /** 已超时待标记的指令，时间轮线程只入队，由写缓冲线程批量UPDATE并推送 */
+    private WriteBehindBuffer<PendingCommand> timeoutBuffer;
+    
+    /** 已超时的指令数 */
+    private final AtomicLong timedOutCommands = new AtomicLong();
+    
+    /**
+     * 待回执指令
+     */
+    private record PendingCommand(Long logId, String clientId, String operation, String operationDesc,
+                                  TimerWheel.Timeout timeout) {}
+    
+    @PostConstruct
+    public void init() {
+        timeoutBuffer = new WriteBehindBuffer<>("cmd-timeout", timeoutBatchSize, timeoutFlushIntervalMs,
+                timeoutBufferCapacity, this::markTimeoutBatch,
+                WriteBehindBuffer.FailurePolicy.PARK, timeoutParkCapacity);
+        timeoutBuffer.start();
+        timeoutWheel = new TimerWheel("cmd-timeout", timerTickMs, timerWheelSize);
+        log.info("指令超时跟踪启动: timeout={}ms, tick={}ms", commandTimeoutMs, timerTickMs);
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        timeoutWheel.stop();
+        // 已到期的超时标记写完再退出
+        timeoutBuffer.shutdown();
+    }
+    
     @Override
     public void log(String clientId, String operation, Long cmdId, Integer value) {
         OperationLog operationLog = new OperationLog();
@@ -36,6 +113,16 @@ public class OperationLogServiceImpl implements OperationLogService {
         operationLog.setCreateTime(LocalDateTime.now());
         
         operationLogMapper.insert(operationLog);
+        Long logId = operationLog.getId();
+        String operationDesc = operationLog.getOperationDesc();
+        TimerWheel.Timeout timeout = timeoutWheel.newTimeout(() -> onTimeout(cmdId, logId), commandTimeoutMs);
+        PendingCommand previous = pendingCommands.put(cmdId,
+                new PendingCommand(logId, clientId, operation, operationDesc, timeout));
+        if (previous != null) {
+            // cmdId重复(极少见)：旧指令不再能收到回执，直接按超时处理
+            previous.timeout().cancel();
+            timeoutBuffer.add(previous);
+        }
         log.info("记录操作日志: clientId={}, operation={}, cmdId={}", clientId, operation, cmdId);
         
         // SSE推送新日志
@@ -44,24 +131,88 @@ public class OperationLogServiceImpl implements OperationLogService {
     
     @Override
     public void updateResult(Long cmdId, boolean success, String message) {
-        LambdaQueryWrapper<OperationLog> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(OperationLog::getCmdId, cmdId);
+        String result = success ? "success" : "failed";
         
-        OperationLog operationLog = operationLogMapper.selectOne(wrapper);
-        if (operationLog != null) {
-            operationLog.setResult(success ? "success" : "failed");
-            operationLog.setResultMsg(message);
-            operationLogMapper.updateById(operationLog);
+        // 优先走内存待回执表：按主键更新
+        PendingCommand pending = pendingCommands.remove(cmdId);
+        if (pending != null) {
+            pending.timeout().cancel();
+            OperationLog update = new OperationLog();
+            update.setId(pending.logId());
+            update.setResult(result);
+            update.setResultMsg(message);
+            operationLogMapper.updateById(update);
             log.info("更新操作结果: cmdId={}, result={}, msg={}", cmdId, success ? "成功" : "失败", message);
             
             // SSE推送更新后的日志
+            sseService.pushOperationLog(pending.clientId(), pending.operation(), 
+                    pending.operationDesc(), result, message);
+            return;
+        }
+        
+        // 兜底(重启或已超时)：取该cmd_id最新的一条按主键更新，查到的行直接用于推送，
+        // 已超时的指令迟到回执仍会覆盖timeout
+        OperationLog operationLog = operationLogMapper.selectLatestByCmdId(cmdId);
+        if (operationLog == null) {
+            log.warn("【警告】未找到操作日志记录: cmdId={}", cmdId);
+        } else if (operationLogMapper.updateResultById(operationLog.getId(), result, message) > 0) {
+            log.info("更新操作结果(兜底): cmdId={}, result={}, msg={}", cmdId, success ? "成功" : "失败", message);
             sseService.pushOperationLog(operationLog.getClientId(), operationLog.getOperation(), 
-                    operationLog.getOperationDesc(), operationLog.getResult(), message);
+                    operationLog.getOperationDesc(), result, message);
         } else {
-            log.warn("【警告】未找到操作日志记录: cmdId={}", cmdId);
+            log.info("操作日志已有结果，忽略重复回执: cmdId={}, logId={}", cmdId, operationLog.getId());
+        }
+    }
+    
+    /**
+     * 时间轮到期回调：指令在超时时间内未回执
+     * 运行在时间轮线程上，只摘除待回执表并入队，写库和推送交给超时缓冲区的线程
+     */
+    private void onTimeout(Long cmdId, Long logId) {
+        // 只摘除本条指令(cmdId可能已被新指令复用)，摘除成功后快速回执路径不会再更新该行
+        PendingCommand pending = pendingCommands.get(cmdId);
+        if (pending != null && logId.equals(pending.logId()) && pendingCommands.remove(cmdId, pending)) {
+            timeoutBuffer.add(pending);
         }
     }
     
+    /**
+     * 将一批仍处于pending的日志一次UPDATE标记为timeout并推送
+     * 入队到写库之间迟到的回执(走兜底路径)可能已把结果改成success/failed，
+     * 此时更新行数少于批量大小，再查一次实际标记为timeout的行，只推送这些
+     */
+    private void markTimeoutBatch(List<PendingCommand> batch) {
+        String message = "设备未在" + commandTimeoutMs / 1000 + "秒内回执";
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (PendingCommand pending : batch) {
+            ids.add(pending.logId());
+        }
+        int rows = operationLogMapper.markTimeoutBatch(ids, message);
+        if (rows == 0) {
+            return;
+        }
+        timedOutCommands.addAndGet(rows);
+        Set<Long> timedOut = rows == ids.size() ? null : new HashSet<>(operationLogMapper.selectTimedOutIds(ids));
+        for (PendingCommand pending : batch) {
+            if (timedOut == null || timedOut.contains(pending.logId())) {
+                log.warn("指令回执超时: logId={}, clientId={}, operation={}",
+                        pending.logId(), pending.clientId(), pending.operation());
+                sseService.pushOperationLog(pending.clientId(), pending.operation(), pending.operationDesc(),
+                        "timeout", message);
+            }
+        }
+    }
+    
+    @Override
+    public CommandStatsResponse getCommandStats() {
+        return CommandStatsResponse.builder()
+                .pendingCommands(pendingCommands.size())
+                .scheduledTimeouts(timeoutWheel.pendingCount())
+                .timedOutCommands(timedOutCommands.get())
+                .timeoutMs(commandTimeoutMs)
+                .build();
+    }
+    
     @Override
     public List<OperationLog> getLatestLogs(int limit) {
         LambdaQueryWrapper<OperationLog> wrapper = new LambdaQueryWrapper<>();
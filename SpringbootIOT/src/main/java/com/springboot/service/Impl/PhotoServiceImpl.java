@@ -0,0 +1,155 @@
+package com.springboot.service.Impl;
+
+import com.springboot.mapper.PhotoMapper;
+import com.springboot.pojo.Photo;
+import com.springboot.pojo.vo.PhotoPageResponse;
+import com.springboot.pojo.vo.PhotoResponse;
+import com.springboot.pojo.vo.WriteBufferStatsResponse;
+import com.springboot.service.PhotoService;
+import com.springboot.utils.WriteBehindBuffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 拍照图片元数据服务实现
+ */
+@Slf4j
+@Service
+public class PhotoServiceImpl implements PhotoService {
+
+    /** 单条DELETE ... IN的最大文件名数 */
+    private static final int DELETE_CHUNK = 500;
+
+    @Autowired
+    private PhotoMapper photoMapper;
+
+    /** 单批最大行数 */
+    @Value("${write-buffer.photo.batch-size:100}")
+    private int batchSize;
+
+    /** 定时写库间隔(ms) */
+    @Value("${write-buffer.photo.flush-interval-ms:2000}")
+    private long flushIntervalMs;
+
+    /** 缓冲区容量 */
+    @Value("${write-buffer.photo.capacity:5000}")
+    private int capacity;
+
+    /** 图片元数据批量写缓冲区 */
+    private WriteBehindBuffer<PendingPhoto> writeBuffer;
+
+    /**
+     * 待落库的图片(尺寸在写库线程中读取，不占用上传请求线程)
+     */
+    private record PendingPhoto(Photo photo, Path path) {}
+
+    @PostConstruct
+    public void init() {
+        writeBuffer = new WriteBehindBuffer<>("photo", batchSize, flushIntervalMs, capacity, this::writeBatch);
+        writeBuffer.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        writeBuffer.shutdown();
+    }
+
+    @Override
+    public void record(String fileName, String clientId, Long cmdId, long size, Path path) {
+        Photo photo = new Photo();
+        photo.setFileName(fileName);
+        photo.setClientId(clientId);
+        photo.setCmdId(cmdId);
+        photo.setSize(size);
+        photo.setCreateTime(LocalDateTime.now());
+        writeBuffer.add(new PendingPhoto(photo, path));
+    }
+
+    /**
+     * 读取尺寸后批量写库
+     */
+    private void writeBatch(List<PendingPhoto> batch) {
+        List<Photo> rows = new ArrayList<>(batch.size());
+        for (PendingPhoto pending : batch) {
+            readDimensions(pending.photo(), pending.path());
+            rows.add(pending.photo());
+        }
+        photoMapper.insertBatch(rows);
+    }
+
+    /**
+     * 只解析图片头读取宽高，不解码像素
+     */
+    private void readDimensions(Photo photo, Path path) {
+        if (photo.getWidth() != null || path == null || !Files.isRegularFile(path)) {
+            return;
+        }
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                photo.setWidth(reader.getWidth(0));
+                photo.setHeight(reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        } catch (Exception e) {
+            log.warn("读取图片尺寸失败: {}, error={}", photo.getFileName(), e.getMessage());
+        }
+    }
+
+    @Override
+    public PhotoPageResponse getPage(String clientId, Long before, int limit) {
+        List<Photo> photos = photoMapper.selectPage(clientId, before, limit);
+        List<PhotoResponse> items = new ArrayList<>(photos.size());
+        for (Photo photo : photos) {
+            items.add(PhotoResponse.builder()
+                    .id(photo.getId())
+                    .fileName(photo.getFileName())
+                    .clientId(photo.getClientId())
+                    .cmdId(photo.getCmdId())
+                    .size(photo.getSize())
+                    .width(photo.getWidth())
+                    .height(photo.getHeight())
+                    .createTime(photo.getCreateTime())
+                    .url("/file/photos/" + photo.getFileName())
+                    .build());
+        }
+        // 不足一页说明已经到底
+        Long nextBefore = photos.size() < limit ? null : photos.get(photos.size() - 1).getId();
+        return PhotoPageResponse.builder()
+                .items(items)
+                .nextBefore(nextBefore)
+                .build();
+    }
+
+    @Override
+    public void deleteByFileNames(List<String> fileNames) {
+        for (int i = 0; i < fileNames.size(); i += DELETE_CHUNK) {
+            photoMapper.deleteByFileNames(fileNames.subList(i, Math.min(i + DELETE_CHUNK, fileNames.size())));
+        }
+    }
+
+    @Override
+    public WriteBufferStatsResponse getWriteBufferStats() {
+        return writeBuffer.getStats();
+    }
+}
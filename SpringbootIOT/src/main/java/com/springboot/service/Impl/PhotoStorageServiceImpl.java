@@ -0,0 +1,423 @@
+package com.springboot.service.Impl;
+
+import com.springboot.pojo.vo.PhotoResponse;
+import com.springboot.pojo.vo.PhotoStorageStatsResponse;
+import com.springboot.pojo.vo.UploadStatsResponse;
+import com.springboot.service.PhotoService;
+import com.springboot.service.PhotoStorageService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 图片存储服务实现
+ * 请求体通过NIO通道直接写入 {clientId}/{yyyy-MM-dd}/ 分片目录，不经过中间临时目录和二次拷贝
+ * 内存索引(文件名 -> 路径、按时间排序)支撑按文件名定位、按设备列出和过期清理，
+ * 启动时扫描一次目录重建索引，之后不再遍历目录
+ */
+@Slf4j
+@Service
+public class PhotoStorageServiceImpl implements PhotoStorageService {
+    
+    /** 单次transferFrom的最大字节数 */
+    private static final long TRANSFER_CHUNK = 1024 * 1024;
+    
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    
+    /** 文件名中解析不出clientId的图片(如网页上传)存放的分片 */
+    private static final String OTHER_CLIENT = "_other";
+    
+    /** 按时间排序(同一时刻按文件名) */
+    private static final Comparator<PhotoEntry> BY_TIME =
+            Comparator.comparingLong(PhotoEntry::createTime).thenComparing(PhotoEntry::fileName);
+    
+    /** 图片保存目录 */
+    @Value("${photos-dir:photos}")
+    private String photosDir;
+    
+    /** 写完后是否fsync(断电不丢图，但会增加上传延迟) */
+    @Value("${upload.fsync:false}")
+    private boolean fsync;
+    
+    /** 单张图片最大字节数 */
+    @Value("${upload.max-bytes:10485760}")
+    private long maxBytes;
+    
+    /** 图片保留天数，0表示不按时间清理 */
+    @Value("${photo.retention.max-age-days:30}")
+    private int maxAgeDays;
+    
+    /** 图片总占用上限(字节)，超出从最旧的开始清理，0表示不限制 */
+    @Value("${photo.retention.max-bytes:10737418240}")
+    private long retentionMaxBytes;
+    
+    /** 清理间隔(ms) */
+    @Value("${photo.retention.sweep-interval-ms:600000}")
+    private long sweepIntervalMs;
+    
+    /** 启动时是否把根目录下的旧图片迁移到分片目录 */
+    @Value("${photo.migrate-flat:true}")
+    private boolean migrateFlat;
+    
+    @Autowired
+    private PhotoService photoService;
+    
+    private Path root;
+    
+    /**
+     * 图片索引条目
+     */
+    private record PhotoEntry(String fileName, String clientId, Path path, long size, long createTime) {}
+    
+    /** 文件名 -> 条目 */
+    private final ConcurrentHashMap<String, PhotoEntry> byName = new ConcurrentHashMap<>();
+    /** 全部条目按时间排序(清理从最旧的开始) */
+    private final ConcurrentSkipListSet<PhotoEntry> byTime = new ConcurrentSkipListSet<>(BY_TIME);
+    /** 设备 -> 该设备的条目(按时间排序) */
+    private final ConcurrentHashMap<String, ConcurrentSkipListSet<PhotoEntry>> byClient = new ConcurrentHashMap<>();
+    /** 索引中图片的总字节数 */
+    private final AtomicLong storedBytes = new AtomicLong();
+    
+    /** 过期清理线程 */
+    private ScheduledExecutorService sweeper;
+    private final AtomicLong sweptFiles = new AtomicLong();
+    private final AtomicLong sweptBytes = new AtomicLong();
+    private volatile long lastSweepMs;
+    
+    private final AtomicLong uploads = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+    /** 累计写入耗时(ns) */
+    private final AtomicLong totalNanos = new AtomicLong();
+    private volatile long lastBytesPerSecond;
+    private volatile long lastUploadMs;
+    
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(photosDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        loadIndex();
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "photo-retention");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweepSafely, 60_000, sweepIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        sweeper.shutdownNow();
+    }
+    
+    /**
+     * 启动时扫描目录重建索引，根目录下的旧图片按修改日期迁移到分片目录
+     */
+    private void loadIndex() throws IOException {
+        long start = System.nanoTime();
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(root, 3)) {
+            files = stream.filter(Files::isRegularFile).toList();
+        }
+        int migrated = 0;
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            if (fileName.startsWith(".")) {
+                continue;
+            }
+            if (fileName.endsWith(".part")) {
+                // 上次没写完的残留
+                Files.deleteIfExists(file);
+                continue;
+            }
+            long mtime = Files.getLastModifiedTime(file).toMillis();
+            String clientId = clientIdOf(fileName);
+            Path path = file;
+            if (migrateFlat && file.getParent().equals(root)) {
+                path = shardPath(clientId, mtime, fileName);
+                Files.createDirectories(path.getParent());
+                Files.move(file, path, StandardCopyOption.REPLACE_EXISTING);
+                migrated++;
+            }
+            index(new PhotoEntry(fileName, clientId, path, Files.size(path), mtime));
+        }
+        log.info("图片索引加载完成: {} 张, {} bytes, 迁移 {} 张, 耗时 {}ms", byName.size(), storedBytes.get(),
+                migrated, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+    
+    @Override
+    public StoredPhoto save(String fileName, InputStream in, long expectedLength) throws IOException {
+        validate(fileName);
+        if (expectedLength > maxBytes) {
+            failures.incrementAndGet();
+            throw new IOException("图片过大: " + expectedLength + " bytes");
+        }
+        String clientId = clientIdOf(fileName);
+        long now = System.currentTimeMillis();
+        Path target = shardPath(clientId, now, fileName);
+        Files.createDirectories(target.getParent());
+        
+        // 先写同目录下的临时文件，完整后原子改名，读取方不会看到半张图；
+        // 临时文件名唯一，同名图片并发上传时各写各的，最后完成的改名覆盖
+        Path tmp = Files.createTempFile(target.getParent(), fileName + ".", ".part");
+        long start = System.nanoTime();
+        long written = 0;
+        try (ReadableByteChannel src = Channels.newChannel(in);
+             FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            long n;
+            while ((n = out.transferFrom(src, written, TRANSFER_CHUNK)) > 0) {
+                written += n;
+                if (written > maxBytes) {
+                    throw new IOException("图片过大: 超过 " + maxBytes + " bytes");
+                }
+            }
+            if (expectedLength >= 0 && written != expectedLength) {
+                throw new IOException("上传不完整: 期望 " + expectedLength + " bytes, 实际 " + written + " bytes");
+            }
+            if (fsync) {
+                out.force(false);
+            }
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        index(new PhotoEntry(fileName, clientId, target, written, now));
+        
+        long nanos = Math.max(1, System.nanoTime() - start);
+        long bytesPerSecond = (long) (written * 1e9 / nanos);
+        uploads.incrementAndGet();
+        totalBytes.addAndGet(written);
+        totalNanos.addAndGet(nanos);
+        lastBytesPerSecond = bytesPerSecond;
+        lastUploadMs = TimeUnit.NANOSECONDS.toMillis(nanos);
+        log.info("图片保存成功: {}, 大小: {} bytes, 耗时: {}ms, 速率: {} KB/s",
+                fileName, written, lastUploadMs, bytesPerSecond / 1024);
+        return new StoredPhoto(fileName, target, written, bytesPerSecond);
+    }
+    
+    @Override
+    public Path resolve(String fileName) {
+        PhotoEntry entry = byName.get(fileName);
+        if (entry != null) {
+            return entry.path();
+        }
+        // 未迁移的旧图片仍在根目录
+        if (fileName.contains("/") || fileName.contains("\\") || fileName.contains("..")) {
+            return null;
+        }
+        Path flat = root.resolve(fileName);
+        return Files.isRegularFile(flat) ? flat : null;
+    }
+    
+    @Override
+    public List<PhotoResponse> listRecent(String clientId, int limit) {
+        ConcurrentSkipListSet<PhotoEntry> entries = byClient.get(clientId);
+        if (entries == null) {
+            return List.of();
+        }
+        List<PhotoResponse> result = new ArrayList<>(Math.min(limit, entries.size()));
+        for (PhotoEntry entry : entries.descendingSet()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(PhotoResponse.builder()
+                    .fileName(entry.fileName())
+                    .clientId(entry.clientId())
+                    .size(entry.size())
+                    .createTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.createTime()), ZoneId.systemDefault()))
+                    .url("/file/photos/" + entry.fileName())
+                    .build());
+        }
+        return result;
+    }
+    
+    /**
+     * 加入索引，同名旧图片(其它日期目录下)一并删除
+     */
+    private synchronized void index(PhotoEntry entry) {
+        PhotoEntry old = byName.put(entry.fileName(), entry);
+        if (old != null) {
+            unindex(old);
+            if (!old.path().equals(entry.path())) {
+                deleteFile(old.path());
+            }
+        }
+        byTime.add(entry);
+        byClient.computeIfAbsent(entry.clientId(), k -> new ConcurrentSkipListSet<>(BY_TIME)).add(entry);
+        storedBytes.addAndGet(entry.size());
+    }
+    
+    /**
+     * 从索引中删除并删除文件
+     * @return 是否删除(已被新图片替换则不删)
+     */
+    private synchronized boolean remove(PhotoEntry entry) {
+        if (!byName.remove(entry.fileName(), entry)) {
+            return false;
+        }
+        unindex(entry);
+        deleteFile(entry.path());
+        return true;
+    }
+    
+    private void unindex(PhotoEntry entry) {
+        byTime.remove(entry);
+        ConcurrentSkipListSet<PhotoEntry> entries = byClient.get(entry.clientId());
+        if (entries != null) {
+            entries.remove(entry);
+        }
+        storedBytes.addAndGet(-entry.size());
+    }
+    
+    /**
+     * 删除文件，顺带删除变空的历史日期目录(当天目录保留，避免和正在写入的上传冲突)
+     */
+    private void deleteFile(Path path) {
+        try {
+            Files.deleteIfExists(path);
+            Path dayDir = path.getParent();
+            if (!dayDir.equals(root) && !dayDir.getFileName().toString().equals(LocalDate.now().format(DAY_FORMAT))) {
+                Files.delete(dayDir);
+            }
+        } catch (DirectoryNotEmptyException ignored) {
+            // 目录里还有其它图片
+        } catch (IOException e) {
+            log.warn("删除图片失败: {}, error={}", path, e.getMessage());
+        }
+    }
+    
+    /**
+     * 按保留天数和总占用清理，从最旧的图片开始
+     */
+    private void sweep() {
+        long start = System.nanoTime();
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(maxAgeDays);
+        long bytes = 0;
+        List<String> removed = new ArrayList<>();
+        for (PhotoEntry entry : byTime) {
+            boolean expired = maxAgeDays > 0 && entry.createTime() < cutoff;
+            boolean overQuota = retentionMaxBytes > 0 && storedBytes.get() > retentionMaxBytes;
+            if (!expired && !overQuota) {
+                break;
+            }
+            if (remove(entry)) {
+                removed.add(entry.fileName());
+                bytes += entry.size();
+            }
+        }
+        int files = removed.size();
+        if (files > 0) {
+            // 同步删除图片库中的元数据
+            photoService.deleteByFileNames(removed);
+        }
+        sweptFiles.addAndGet(files);
+        sweptBytes.addAndGet(bytes);
+        lastSweepMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (files > 0) {
+            log.info("图片清理完成: 删除 {} 张, {} bytes, 剩余 {} bytes, 耗时 {}ms",
+                    files, bytes, storedBytes.get(), lastSweepMs);
+        }
+    }
+    
+    private void sweepSafely() {
+        try {
+            sweep();
+        } catch (Throwable e) {
+            // 定时任务抛异常会被取消，这里兜底
+            log.error("图片清理异常: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 分片路径: {clientId}/{yyyy-MM-dd}/{文件名}
+     */
+    private Path shardPath(String clientId, long timeMs, String fileName) {
+        String day = LocalDate.ofInstant(Instant.ofEpochMilli(timeMs), ZoneId.systemDefault()).format(DAY_FORMAT);
+        return root.resolve(clientId).resolve(day).resolve(fileName);
+    }
+    
+    /**
+     * 从文件名解析clientId(格式: clientId_cmdId.jpg)
+     */
+    private String clientIdOf(String fileName) {
+        int underscore = fileName.indexOf('_');
+        return underscore > 0 ? fileName.substring(0, underscore) : OTHER_CLIENT;
+    }
+    
+    /**
+     * 拒绝带路径的文件名
+     */
+    private void validate(String fileName) {
+        if (fileName == null || fileName.isBlank() || fileName.contains("/") || fileName.contains("\\")
+                || fileName.contains("..")) {
+            failures.incrementAndGet();
+            throw new IllegalArgumentException("非法文件名: " + fileName);
+        }
+    }
+    
+    @Override
+    public UploadStatsResponse getUploadStats() {
+        long nanos = totalNanos.get();
+        return UploadStatsResponse.builder()
+                .uploads(uploads.get())
+                .failures(failures.get())
+                .totalBytes(totalBytes.get())
+                .lastBytesPerSecond(lastBytesPerSecond)
+                .avgBytesPerSecond(nanos == 0 ? 0 : (long) (totalBytes.get() * 1e9 / nanos))
+                .lastUploadMs(lastUploadMs)
+                .fsync(fsync)
+                .build();
+    }
+    
+    @Override
+    public PhotoStorageStatsResponse getStorageStats() {
+        return PhotoStorageStatsResponse.builder()
+                .photos(byName.size())
+                .devices((int) byClient.values().stream().filter(set -> !set.isEmpty()).count())
+                .totalBytes(storedBytes.get())
+                .maxAgeDays(maxAgeDays)
+                .maxBytes(retentionMaxBytes)
+                .sweptFiles(sweptFiles.get())
+                .sweptBytes(sweptBytes.get())
+                .lastSweepMs(lastSweepMs)
+                .build();
+    }
+}
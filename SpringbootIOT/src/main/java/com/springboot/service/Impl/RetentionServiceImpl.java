@@ -0,0 +1,302 @@
+package com.springboot.service.Impl;
+
+import com.springboot.mapper.RetentionMapper;
+import com.springboot.pojo.vo.RetentionStatsResponse;
+import com.springboot.service.RetentionService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 原始数据保留清理服务实现
+ * 单线程定时清理，每张表按主键区间分块DELETE(每块只锁一小段主键范围、自动提交)，
+ * 块之间停顿一下，让出锁和IO给入库写入；
+ * 开启分区清理且表已按天RANGE分区时，整天过期的分区直接DROP PARTITION，并预建未来几天的分区，
+ * 剩余不足一天的过期行仍按块删除
+ */
+@Slf4j
+@Service
+public class RetentionServiceImpl implements RetentionService {
+
+    private static final DateTimeFormatter PARTITION_DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+    /** 按天分区命名: pYYYYMMDD，存放当天的数据 */
+    private static final Pattern DAY_PARTITION = Pattern.compile("p(\\d{8})");
+    private static final String MAX_PARTITION = "pmax";
+
+    @Autowired
+    private RetentionMapper mapper;
+
+    /** 是否启用 */
+    @Value("${retention.enabled:true}")
+    private boolean enabled;
+
+    /** 清理间隔(ms) */
+    @Value("${retention.sweep-interval-ms:3600000}")
+    private long sweepIntervalMs;
+
+    /** 每次DELETE覆盖的主键区间长度 */
+    @Value("${retention.chunk-size:2000}")
+    private int chunkSize;
+
+    /** 两次DELETE之间的停顿(ms) */
+    @Value("${retention.chunk-pause-ms:100}")
+    private long chunkPauseMs;
+
+    /** 温湿度数据保留天数，0表示不清理 */
+    @Value("${retention.dht-data-days:30}")
+    private int dhtDataDays;
+
+    /** 设备状态历史保留天数，0表示不清理 */
+    @Value("${retention.status-history-days:30}")
+    private int statusHistoryDays;
+
+    /** 操作日志保留天数，0表示不清理 */
+    @Value("${retention.operation-log-days:90}")
+    private int operationLogDays;
+
+    /** 遥测聚合写库标记多少天未更新即删除(异常退出的实例留下的)，0表示不清理 */
+    @Value("${retention.flush-mark-days:7}")
+    private int flushMarkDays;
+
+    /** 已分区的表是否按分区清理 */
+    @Value("${retention.partition.enabled:false}")
+    private boolean partitionEnabled;
+
+    /** 预建未来几天的分区 */
+    @Value("${retention.partition.premake-days:3}")
+    private int premakeDays;
+
+    private List<TableState> tables;
+    private ScheduledExecutorService sweeper;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong totalRunMs = new AtomicLong();
+    private volatile long lastRunMs;
+
+    @PostConstruct
+    public void init() {
+        tables = List.of(
+                new TableState("dht_data", dhtDataDays),
+                new TableState("device_status_history", statusHistoryDays),
+                new TableState("operation_log", operationLogDays));
+        if (!enabled) {
+            log.info("原始数据保留清理未启用");
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "telemetry-retention");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweepSafely, 60_000, sweepIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (sweeper != null) {
+            // 中断块间停顿，正在执行的DELETE提交后即退出
+            sweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * 逐表清理
+     */
+    private void sweep() throws InterruptedException {
+        long start = System.nanoTime();
+        for (TableState table : tables) {
+            if (table.days <= 0) {
+                continue;
+            }
+            long tableStart = System.nanoTime();
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(table.days);
+            long purged = 0;
+            try {
+                if (partitionEnabled) {
+                    maintainPartitions(table, cutoff);
+                }
+                purged = purgeChunks(table, cutoff);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                log.error("清理{}失败: {}", table.table, e.getMessage(), e);
+            }
+            table.lastPurgedRows = purged;
+            table.lastRunMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - tableStart);
+            if (purged > 0) {
+                log.info("清理{}完成: 删除 {} 行(早于{}), 耗时 {}ms", table.table, purged, cutoff, table.lastRunMs);
+            }
+        }
+        if (flushMarkDays > 0) {
+            try {
+                int marks = mapper.deleteStaleFlushMarks(LocalDateTime.now().minusDays(flushMarkDays));
+                if (marks > 0) {
+                    log.info("清理遥测聚合写库标记: 删除 {} 行({}天未更新)", marks, flushMarkDays);
+                }
+            } catch (Exception e) {
+                log.error("清理遥测聚合写库标记失败: {}", e.getMessage(), e);
+            }
+        }
+        runs.incrementAndGet();
+        lastRunMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        totalRunMs.addAndGet(lastRunMs);
+    }
+
+    private void sweepSafely() {
+        try {
+            sweep();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            // 定时任务抛异常会被取消，这里兜底
+            log.error("原始数据清理异常: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 从最小主键开始，按主键区间分块删除到最后一条过期行
+     * @return 删除的行数
+     */
+    private long purgeChunks(TableState table, LocalDateTime cutoff) throws InterruptedException {
+        Long lastExpired = mapper.selectLastExpiredId(table.table, cutoff);
+        if (lastExpired == null) {
+            return 0;
+        }
+        Long minId = mapper.selectMinId(table.table);
+        if (minId == null) {
+            return 0;
+        }
+        long purged = 0;
+        for (long from = minId; from <= lastExpired; from += chunkSize) {
+            long to = Math.min(from + chunkSize, lastExpired + 1);
+            int rows = mapper.deleteChunk(table.table, from, to, cutoff);
+            table.chunks.incrementAndGet();
+            table.purgedRows.addAndGet(rows);
+            purged += rows;
+            if (rows > 0 && chunkPauseMs > 0) {
+                Thread.sleep(chunkPauseMs);
+            }
+        }
+        return purged;
+    }
+
+    /**
+     * 删除整天过期的分区，并从pmax中拆出到未来premakeDays天的按天分区
+     * 表未分区时什么都不做
+     */
+    private void maintainPartitions(TableState table, LocalDateTime cutoff) {
+        List<String> partitions = mapper.selectPartitions(table.table);
+        table.partitioned = !partitions.isEmpty();
+        if (partitions.isEmpty()) {
+            return;
+        }
+        List<String> expired = new ArrayList<>();
+        LocalDate lastDay = null;
+        boolean hasMax = false;
+        for (String name : partitions) {
+            if (MAX_PARTITION.equals(name)) {
+                hasMax = true;
+                continue;
+            }
+            Matcher m = DAY_PARTITION.matcher(name);
+            if (!m.matches()) {
+                continue;
+            }
+            LocalDate day = LocalDate.parse(m.group(1), PARTITION_DAY);
+            // 分区内最晚的数据也早于截止时间才整体删除
+            if (!day.plusDays(1).atStartOfDay().isAfter(cutoff)) {
+                expired.add(name);
+            }
+            if (lastDay == null || day.isAfter(lastDay)) {
+                lastDay = day;
+            }
+        }
+        if (!hasMax && expired.size() == partitions.size()) {
+            // 表至少要保留一个分区
+            expired.remove(expired.size() - 1);
+        }
+        if (!expired.isEmpty()) {
+            mapper.dropPartitions(table.table, String.join(",", expired));
+            table.droppedPartitions.addAndGet(expired.size());
+            log.info("删除{}过期分区: {}", table.table, expired);
+        }
+        if (!hasMax) {
+            log.warn("{}没有{}分区，无法预建按天分区", table.table, MAX_PARTITION);
+            return;
+        }
+        // 从最后一个按天分区的次日(最早从今天)建到今天+premakeDays
+        LocalDate today = LocalDate.now();
+        LocalDate day = lastDay == null || lastDay.isBefore(today) ? today : lastDay.plusDays(1);
+        LocalDate until = today.plusDays(premakeDays);
+        List<String> definitions = new ArrayList<>();
+        for (; !day.isAfter(until); day = day.plusDays(1)) {
+            definitions.add("PARTITION p" + day.format(PARTITION_DAY)
+                    + " VALUES LESS THAN ('" + day.plusDays(1) + " 00:00:00')");
+        }
+        if (!definitions.isEmpty()) {
+            mapper.splitMaxPartition(table.table, String.join(", ", definitions));
+            log.info("{}预建 {} 个按天分区(到{})", table.table, definitions.size(), until);
+        }
+    }
+
+    @Override
+    public RetentionStatsResponse getStats() {
+        List<RetentionStatsResponse.TableStats> tableStats = new ArrayList<>();
+        for (TableState table : tables) {
+            tableStats.add(RetentionStatsResponse.TableStats.builder()
+                    .table(table.table)
+                    .retentionDays(table.days)
+                    .partitioned(table.partitioned)
+                    .purgedRows(table.purgedRows.get())
+                    .droppedPartitions(table.droppedPartitions.get())
+                    .chunks(table.chunks.get())
+                    .lastPurgedRows(table.lastPurgedRows)
+                    .lastRunMs(table.lastRunMs)
+                    .build());
+        }
+        return RetentionStatsResponse.builder()
+                .enabled(enabled)
+                .partitionEnabled(partitionEnabled)
+                .chunkSize(chunkSize)
+                .chunkPauseMs(chunkPauseMs)
+                .runs(runs.get())
+                .lastRunMs(lastRunMs)
+                .totalRunMs(totalRunMs.get())
+                .tables(tableStats)
+                .build();
+    }
+
+    /**
+     * 单表清理配置和统计
+     */
+    private static final class TableState {
+        private final String table;
+        private final int days;
+        private volatile boolean partitioned;
+        private final AtomicLong purgedRows = new AtomicLong();
+        private final AtomicLong droppedPartitions = new AtomicLong();
+        private final AtomicLong chunks = new AtomicLong();
+        private volatile long lastPurgedRows;
+        private volatile long lastRunMs;
+
+        private TableState(String table, int days) {
+            this.table = table;
+            this.days = days;
+        }
+    }
+}
@@ -1,36 +1,126 @@
 package com.springboot.service.Impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.pojo.vo.SseStatsResponse;
 import com.springboot.service.SseService;
+import com.springboot.utils.JacksonObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * SSE推送服务实现
+ * 每个连接一个有界发送队列，由共享的小线程池串行发送：
+ * 单个连接内事件有序，慢连接队列满时丢弃最旧事件，不影响其他连接
+ * 连接按订阅的clientId建索引，设备事件只推给订阅该设备(或"all")的连接
+ * 每个事件只序列化一次，编码好的字节帧由所有连接共享
  */
 @Slf4j
 @Service
 public class SseServiceImpl implements SseService {
     
-    private final CopyOnWriteArrayList<SseEmitter> emitterList = new CopyOnWriteArrayList<>();
+    /** 单次调度最多发送的事件数，发完让出线程给其他连接 */
+    private static final int DRAIN_BATCH = 32;
+    
+    /** 预编码数据的媒体类型：走字节转换器原样写出，不再经过Jackson */
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType("text", "plain", StandardCharsets.UTF_8);
+    
+    /** 与MVC消息转换器一致的ObjectMapper，保证推送的JSON格式不变(Long转字符串等) */
+    private final ObjectMapper objectMapper = new JacksonObjectMapper();
+    
+    /** 全部连接 */
+    private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    
+    /**
+     * 按订阅设备索引的连接
+     * Key: clientId (ALL_DEVICES表示订阅全部设备), Value: 订阅该设备的连接
+     */
+    private final ConcurrentHashMap<String, CopyOnWriteArrayList<Subscriber>> subscribersByClient = new ConcurrentHashMap<>();
     private final DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm:ss");
     
+    /** 广播线程数 */
+    @Value("${sse.broadcast-threads:2}")
+    private int broadcastThreads;
+    
+    /** 每个连接的发送队列容量 */
+    @Value("${sse.emitter-queue-capacity:256}")
+    private int emitterQueueCapacity;
+    
+    /** 广播线程池(每个连接同一时刻最多占用一个任务，任务队列天然受连接数约束) */
+    private ExecutorService broadcastExecutor;
+    
+    /** 广播的事件数 */
+    private final AtomicLong publishedEvents = new AtomicLong();
+    /** 已发送的事件数(按连接计) */
+    private final AtomicLong sentEvents = new AtomicLong();
+    /** 慢连接队列满被丢弃的事件数 */
+    private final AtomicLong droppedEvents = new AtomicLong();
+    
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        broadcastExecutor = new ThreadPoolExecutor(broadcastThreads, broadcastThreads,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "sse-broadcast-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        log.info("SSE广播线程池初始化: threads={}, emitterQueueCapacity={}", broadcastThreads, emitterQueueCapacity);
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        broadcastExecutor.shutdownNow();
+    }
+    
     @Override
     public SseEmitter createConnection(String clientId) {
-        SseEmitter emitter = new SseEmitter(30 * 60 * 1000L);
+        return register(clientId, new SseEmitter(30 * 60 * 1000L));
+    }
+    
+    /**
+     * 登记连接并发送连接成功消息(包内可见，基准测试用桩emitter直接登记)
+     */
+    SseEmitter register(String clientId, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(clientId, emitter);
         
-        emitterList.add(emitter);
-        log.info("SSE连接建立: {}, 当前连接数: {}", clientId, emitterList.size());
+        subscribers.add(subscriber);
+        subscribersByClient.compute(clientId, (k, list) -> {
+            if (list == null) {
+                list = new CopyOnWriteArrayList<>();
+            }
+            list.add(subscriber);
+            return list;
+        });
+        log.info("SSE连接建立: {}, 当前连接数: {}", clientId, subscribers.size());
         
         Runnable removeEmitter = () -> {
-            emitterList.remove(emitter);
-            log.debug("SSE连接移除, 剩余: {}", emitterList.size());
+            removeSubscriber(subscriber);
+            log.debug("SSE连接移除, 剩余: {}", subscribers.size());
         };
         
         emitter.onCompletion(removeEmitter);
@@ -38,11 +128,30 @@ public class SseServiceImpl implements SseService {
         emitter.onError(e -> removeEmitter.run());
         
         // 发送连接成功消息
-        sendSafe(emitter, "connected", new ConnectedMessage("connected", clientId));
+        SseEvent connected = encode("connected", new ConnectedMessage("connected", clientId));
+        if (connected != null) {
+            subscriber.offer(connected);
+        }
         
         return emitter;
     }
     
+    @Override
+    public SseStatsResponse getStats() {
+        int queued = 0;
+        for (Subscriber subscriber : subscribers) {
+            queued += subscriber.size();
+        }
+        return SseStatsResponse.builder()
+                .connections(subscribers.size())
+                .subscribedDevices(subscribersByClient.size())
+                .queuedEvents(queued)
+                .publishedEvents(publishedEvents.get())
+                .sentEvents(sentEvents.get())
+                .droppedEvents(droppedEvents.get())
+                .build();
+    }
+    
     @Override
     public void pushDhtData(String clientId, double temperature, double humidity, Boolean lightDark) {
         // 创建DhtData对象用于推送
@@ -53,7 +162,7 @@ public class SseServiceImpl implements SseService {
         data.setLightDark(lightDark);
         data.setTime(LocalDateTime.now().format(timeFormatter));
         
-        broadcastAsync("dht", data);
+        broadcastToClient(clientId, "dht", data);
     }
     
     @Override
@@ -67,47 +176,113 @@ public class SseServiceImpl implements SseService {
         log.setResultMsg(resultMsg != null ? resultMsg : "");
         log.setTime(LocalDateTime.now().format(timeFormatter));
         
-        broadcastAsync("log", log);
+        broadcastToClient(clientId, "log", log);
     }
     
     @Override
     public void pushDeviceConfig(String clientId, Object config) {
-        broadcastAsync("config", config);
+        broadcastToClient(clientId, "config", config);
     }
     
     @Override
     public void pushDeviceStatus(String clientId, Object status) {
-        broadcastAsync("status", status);
+        broadcastToClient(clientId, "status", status);
     }
     
+    /**
+     * 推送给所有连接(与设备无关的事件，如AI响应)
+     */
     private void broadcastAsync(String eventName, Object data) {
-        // 使用线程安全的方式广播，捕获所有异常防止日志刷屏
-        new Thread(() -> {
-            for (SseEmitter emitter : emitterList) {
-                try {
-                    sendSafe(emitter, eventName, data);
-                } catch (Throwable ignored) {
-                    // 完全静默处理，防止任何异常泄露
-                }
-            }
-        }).start();
+        publishedEvents.incrementAndGet();
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        // 只序列化一次后入队，由广播线程池异步发送
+        SseEvent event = encode(eventName, data);
+        if (event == null) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+    
+    /**
+     * 推送给订阅了该设备和订阅了全部设备的连接
+     */
+    private void broadcastToClient(String clientId, String eventName, Object data) {
+        publishedEvents.incrementAndGet();
+        List<Subscriber> deviceSubscribers = null;
+        if (clientId != null && !ALL_DEVICES.equals(clientId)) {
+            deviceSubscribers = subscribersByClient.get(clientId);
+        }
+        List<Subscriber> allSubscribers = subscribersByClient.get(ALL_DEVICES);
+        if (isEmpty(deviceSubscribers) && isEmpty(allSubscribers)) {
+            // 没有订阅者，不做序列化
+            return;
+        }
+        SseEvent event = encode(eventName, data);
+        if (event == null) {
+            return;
+        }
+        offerAll(deviceSubscribers, event);
+        offerAll(allSubscribers, event);
+    }
+    
+    private void offerAll(List<Subscriber> list, SseEvent event) {
+        if (list == null) {
+            return;
+        }
+        for (Subscriber subscriber : list) {
+            subscriber.offer(event);
+        }
     }
     
-    private void sendSafe(SseEmitter emitter, String eventName, Object data) {
+    private boolean isEmpty(List<Subscriber> list) {
+        return list == null || list.isEmpty();
+    }
+    
+    /**
+     * 把事件编码成可直接写出的SSE帧
+     * JSON序列化为字节后以text/plain写出，由字节转换器原样输出，所有连接共享同一份帧
+     */
+    private SseEvent encode(String eventName, Object data) {
         try {
-            emitter.send(SseEmitter.event()
+            byte[] json = objectMapper.writeValueAsBytes(data);
+            Set<ResponseBodyEmitter.DataWithMediaType> frame = SseEmitter.event()
                     .name(eventName)
-                    .data(data, MediaType.APPLICATION_JSON));
+                    .data(json, TEXT_PLAIN_UTF8)
+                    .build();
+            return new SseEvent(eventName, frame);
+        } catch (JsonProcessingException e) {
+            log.error("SSE事件序列化失败: event={}, error={}", eventName, e.getMessage());
+            return null;
+        }
+    }
+    
+    private void removeSubscriber(Subscriber subscriber) {
+        subscriber.close();
+        subscribers.remove(subscriber);
+        subscribersByClient.computeIfPresent(subscriber.clientId, (k, list) -> {
+            list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        });
+    }
+    
+    private void sendSafe(Subscriber subscriber, SseEvent event) {
+        try {
+            subscriber.emitter.send(event.frame());
+            sentEvents.incrementAndGet();
         } catch (java.io.IOException e) {
             // 客户端断开连接，静默移除（这是正常现象）
-            emitterList.remove(emitter);
+            removeSubscriber(subscriber);
             // 使用debug级别，不会输出到控制台
         } catch (IllegalStateException e) {
             // emitter已关闭
-            emitterList.remove(emitter);
+            removeSubscriber(subscriber);
         } catch (Exception e) {
             // 其他异常也静默处理
-            emitterList.remove(emitter);
+            removeSubscriber(subscriber);
         }
     }
     
@@ -119,7 +294,7 @@ public class SseServiceImpl implements SseService {
         data.setImageFile(imageFile);
         data.setTime(LocalDateTime.now().format(timeFormatter));
         
-        broadcastAsync("capture", data);
+        broadcastToClient(clientId, "capture", data);
         log.info("SSE推送拍照结果: clientId={}, imageFile={}", clientId, imageFile);
     }
     
@@ -136,6 +311,87 @@ public class SseServiceImpl implements SseService {
         log.info("SSE推送AI响应: sessionId={}, taskId={}", sessionId, taskId);
     }
 
+    // 内部记录：已编码的待发送事件(frame为共享只读数据，不可修改)
+    private record SseEvent(String name, Set<ResponseBodyEmitter.DataWithMediaType> frame) {}
+    
+    /**
+     * 内部类：单个SSE连接及其有界发送队列
+     * draining标志保证同一连接同一时刻只有一个线程在发送
+     */
+    private class Subscriber {
+        private final String clientId;
+        private final SseEmitter emitter;
+        private final ArrayDeque<SseEvent> queue = new ArrayDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private volatile boolean closed = false;
+        
+        Subscriber(String clientId, SseEmitter emitter) {
+            this.clientId = clientId;
+            this.emitter = emitter;
+        }
+        
+        void offer(SseEvent event) {
+            if (closed) {
+                return;
+            }
+            synchronized (queue) {
+                // 慢连接：丢弃最旧的事件
+                if (queue.size() >= emitterQueueCapacity) {
+                    queue.pollFirst();
+                    droppedEvents.incrementAndGet();
+                }
+                queue.addLast(event);
+            }
+            schedule();
+        }
+        
+        int size() {
+            synchronized (queue) {
+                return queue.size();
+            }
+        }
+        
+        void close() {
+            closed = true;
+            synchronized (queue) {
+                queue.clear();
+            }
+        }
+        
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    broadcastExecutor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+        
+        private void drain() {
+            try {
+                for (int i = 0; i < DRAIN_BATCH && !closed; i++) {
+                    SseEvent event;
+                    synchronized (queue) {
+                        event = queue.pollFirst();
+                    }
+                    if (event == null) {
+                        break;
+                    }
+                    sendSafe(this, event);
+                }
+            } catch (Throwable ignored) {
+                // 完全静默处理，防止任何异常泄露
+            } finally {
+                draining.set(false);
+            }
+            // 还有积压(本轮未发完或发送期间有新事件)则重新调度
+            if (!closed && size() > 0) {
+                schedule();
+            }
+        }
+    }
+
     // 内部类：拍照结果推送对象
     @Data
     private static class CaptureResultPush {
@@ -0,0 +1,425 @@
+package com.springboot.service.Impl;
+
+import com.springboot.mapper.TelemetryRollupMapper;
+import com.springboot.pojo.TelemetryRollup;
+import com.springboot.pojo.vo.TelemetryPointResponse;
+import com.springboot.pojo.vo.TelemetryRangeResponse;
+import com.springboot.service.TelemetryRollupService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 遥测聚合服务实现
+ * 采样先按(设备, 分钟)在内存中累加，定时把这批部分聚合同时合并进分钟/小时/日三张表，
+ * 聚合表只存最小/最大/累加和/采样数，任意两次写入都能直接合并，不需要回扫原始数据
+ * 查询时尚未落库的部分聚合(包括正在写库的一批)也一并合并进结果
+ */
+@Slf4j
+@Service
+public class TelemetryRollupServiceImpl implements TelemetryRollupService {
+
+    /**
+     * 聚合粒度(从细到粗)
+     */
+    enum Resolution {
+        MINUTE("minute", "telemetry_rollup_minute", ChronoUnit.MINUTES),
+        HOUR("hour", "telemetry_rollup_hour", ChronoUnit.HOURS),
+        DAY("day", "telemetry_rollup_day", ChronoUnit.DAYS);
+
+        private final String label;
+        private final String table;
+        private final ChronoUnit unit;
+
+        Resolution(String label, String table, ChronoUnit unit) {
+            this.label = label;
+            this.table = table;
+            this.unit = unit;
+        }
+
+        LocalDateTime bucket(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+    }
+
+    record BucketKey(String clientId, LocalDateTime bucket) {
+    }
+
+    @Autowired
+    private TelemetryRollupMapper mapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /** 部分聚合合并写库的间隔(ms) */
+    @Value("${telemetry.rollup.flush-interval-ms:10000}")
+    private long flushIntervalMs;
+
+    /** 未落库的分钟部分聚合，受自身锁保护 */
+    private Map<BucketKey, Agg> pending = new HashMap<>();
+    private final Object lock = new Object();
+
+    /**
+     * 已从pending取出、尚未确认落库的一批，写锁保护
+     * 写库期间(及提交结果未知、还没查清时)查询仍把它算进结果
+     */
+    private Map<BucketKey, Agg> inFlight = new HashMap<>();
+    /** inFlight对应的批次序号 */
+    private long inFlightSeq;
+    /** 本实例最近分配的批次序号 */
+    private long flushSeq;
+    /** 本实例ID，写库标记表按它记录最近提交的批次序号 */
+    private final String instanceId = UUID.randomUUID().toString();
+    /**
+     * 写库(写锁)与区间查询(读锁)互斥: 查询读到的库中聚合和内存中的inFlight
+     * 要么都是提交前的，要么都是提交后的，不会漏掉也不会重复计入同一批
+     */
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "telemetry-rollup");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+        // 实例ID每次启动都重新生成，停止后标记不再有用，删掉以免每次重启在表里留一行
+        try {
+            mapper.deleteFlushMark(instanceId);
+        } catch (Exception e) {
+            log.warn("遥测聚合写库标记删除失败, 由保留清理按更新时间删除: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void recordDht(String clientId, LocalDateTime time, double temperature, double humidity) {
+        BucketKey key = new BucketKey(clientId, Resolution.MINUTE.bucket(time));
+        synchronized (lock) {
+            pending.computeIfAbsent(key, k -> new Agg()).addDht(temperature, humidity);
+        }
+    }
+
+    @Override
+    public void recordStatus(String clientId, LocalDateTime time, int rssi, int freeHeap) {
+        BucketKey key = new BucketKey(clientId, Resolution.MINUTE.bucket(time));
+        synchronized (lock) {
+            pending.computeIfAbsent(key, k -> new Agg()).addStatus(rssi, freeHeap);
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Throwable e) {
+            // 定时任务抛异常会被取消，这里兜底
+            log.error("遥测聚合写库异常: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 把当前的分钟部分聚合合并写入三张聚合表
+     * 同一事务里记下本批序号；写库抛异常时按序号查清是否已提交，
+     * 未提交才放回内存与新数据合并重试，已提交则丢弃，不会重复累加
+     */
+    private void flush() {
+        flushLock.writeLock().lock();
+        try {
+            // 上一批提交结果未知且当时没能查清，先查清再写新的一批
+            if (!inFlight.isEmpty() && !resolveInFlight()) {
+                return;
+            }
+            synchronized (lock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                inFlight = pending;
+                pending = new HashMap<>();
+            }
+            Map<BucketKey, Agg> batch = inFlight;
+            long seq = ++flushSeq;
+            inFlightSeq = seq;
+
+            long start = System.nanoTime();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (Resolution resolution : Resolution.values()) {
+                        // 分钟部分聚合再按小时/日合并，一个时间桶每轮只写一行
+                        Map<BucketKey, Agg> rolled = resolution == Resolution.MINUTE ? batch : rollUp(batch, resolution);
+                        List<TelemetryRollup> rows = new ArrayList<>(rolled.size());
+                        rolled.forEach((key, agg) -> rows.add(agg.toRollup(key)));
+                        mapper.upsertBatch(resolution.table, rows);
+                    }
+                    mapper.markFlushed(instanceId, seq);
+                });
+            } catch (Exception e) {
+                log.error("遥测聚合写库异常, {} 个分钟桶待确认是否已提交: {}", batch.size(), e.getMessage());
+                resolveInFlight();
+                return;
+            }
+            inFlight = new HashMap<>();
+            log.debug("遥测聚合写库: {} 个分钟桶, 耗时={}ms", batch.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按写库标记查清inFlight是否已提交: 已提交则丢弃，未提交则放回pending(调用方持有写锁)
+     * @return 是否已查清(查询失败时inFlight保留，下一轮再查)
+     */
+    private boolean resolveInFlight() {
+        Long committedSeq;
+        try {
+            committedSeq = mapper.selectFlushSeq(instanceId);
+        } catch (Exception e) {
+            log.error("遥测聚合写库标记查询失败, {} 个分钟桶下一轮再确认: {}", inFlight.size(), e.getMessage());
+            return false;
+        }
+        Map<BucketKey, Agg> batch = inFlight;
+        inFlight = new HashMap<>();
+        if (committedSeq != null && committedSeq >= inFlightSeq) {
+            log.warn("遥测聚合写库异常但已提交, 丢弃内存中的 {} 个分钟桶", batch.size());
+            return true;
+        }
+        synchronized (lock) {
+            batch.forEach((key, agg) -> pending.merge(key, agg, Agg::merge));
+        }
+        log.error("遥测聚合写库未提交, {} 个分钟桶放回内存重试", batch.size());
+        return true;
+    }
+
+    private static Map<BucketKey, Agg> rollUp(Map<BucketKey, Agg> minutes, Resolution resolution) {
+        Map<BucketKey, Agg> result = new HashMap<>();
+        minutes.forEach((key, agg) -> result.computeIfAbsent(
+                new BucketKey(key.clientId(), resolution.bucket(key.bucket())), k -> new Agg()).merge(agg));
+        return result;
+    }
+
+    @Override
+    public TelemetryRangeResponse getRange(String clientId, LocalDateTime from, LocalDateTime to, int maxPoints) {
+        Resolution resolution = pickResolution(from, to, maxPoints);
+
+        // 库中的聚合行 + 尚未落库的部分聚合，按时间桶合并
+        LocalDateTime firstBucket = resolution.bucket(from);
+        TreeMap<LocalDateTime, Agg> buckets = new TreeMap<>();
+        flushLock.readLock().lock();
+        try {
+            for (TelemetryRollup row : mapper.selectRange(resolution.table, clientId, firstBucket, to)) {
+                buckets.computeIfAbsent(row.getBucketTime(), k -> new Agg()).merge(Agg.of(row));
+            }
+            mergeUnflushed(inFlight, buckets, clientId, firstBucket, to, resolution);
+            synchronized (lock) {
+                mergeUnflushed(pending, buckets, clientId, firstBucket, to, resolution);
+            }
+        } finally {
+            flushLock.readLock().unlock();
+        }
+
+        List<TelemetryPointResponse> points = new ArrayList<>(buckets.size());
+        buckets.forEach((time, agg) -> points.add(agg.toPoint(time)));
+        return TelemetryRangeResponse.builder()
+                .clientId(clientId)
+                .resolution(resolution.label)
+                .from(from)
+                .to(to)
+                .points(points)
+                .build();
+    }
+
+    private static void mergeUnflushed(Map<BucketKey, Agg> unflushed, TreeMap<LocalDateTime, Agg> buckets,
+                                       String clientId, LocalDateTime firstBucket, LocalDateTime to,
+                                       Resolution resolution) {
+        unflushed.forEach((key, agg) -> {
+            if (key.clientId().equals(clientId) && !key.bucket().isBefore(firstBucket) && key.bucket().isBefore(to)) {
+                buckets.computeIfAbsent(resolution.bucket(key.bucket()), k -> new Agg()).merge(agg);
+            }
+        });
+    }
+
+    /**
+     * 选择时间桶数不超过maxPoints的最细粒度，都超过时用日粒度
+     */
+    static Resolution pickResolution(LocalDateTime from, LocalDateTime to, int maxPoints) {
+        Duration span = Duration.between(from, to);
+        for (Resolution resolution : Resolution.values()) {
+            if (span.dividedBy(resolution.unit.getDuration()) <= maxPoints) {
+                return resolution;
+            }
+        }
+        return Resolution.DAY;
+    }
+
+    /**
+     * 可合并的部分聚合
+     */
+    static final class Agg {
+        private double tempMin = Double.POSITIVE_INFINITY;
+        private double tempMax = Double.NEGATIVE_INFINITY;
+        private double tempSum;
+        private int tempCount;
+        private double humMin = Double.POSITIVE_INFINITY;
+        private double humMax = Double.NEGATIVE_INFINITY;
+        private double humSum;
+        private int humCount;
+        private int rssiMin = Integer.MAX_VALUE;
+        private int rssiMax = Integer.MIN_VALUE;
+        private long rssiSum;
+        private int rssiCount;
+        private int heapMin = Integer.MAX_VALUE;
+        private int heapMax = Integer.MIN_VALUE;
+        private long heapSum;
+        private int heapCount;
+
+        void addDht(double temperature, double humidity) {
+            tempMin = Math.min(tempMin, temperature);
+            tempMax = Math.max(tempMax, temperature);
+            tempSum += temperature;
+            tempCount++;
+            humMin = Math.min(humMin, humidity);
+            humMax = Math.max(humMax, humidity);
+            humSum += humidity;
+            humCount++;
+        }
+
+        void addStatus(int rssi, int freeHeap) {
+            rssiMin = Math.min(rssiMin, rssi);
+            rssiMax = Math.max(rssiMax, rssi);
+            rssiSum += rssi;
+            rssiCount++;
+            heapMin = Math.min(heapMin, freeHeap);
+            heapMax = Math.max(heapMax, freeHeap);
+            heapSum += freeHeap;
+            heapCount++;
+        }
+
+        Agg merge(Agg o) {
+            tempMin = Math.min(tempMin, o.tempMin);
+            tempMax = Math.max(tempMax, o.tempMax);
+            tempSum += o.tempSum;
+            tempCount += o.tempCount;
+            humMin = Math.min(humMin, o.humMin);
+            humMax = Math.max(humMax, o.humMax);
+            humSum += o.humSum;
+            humCount += o.humCount;
+            rssiMin = Math.min(rssiMin, o.rssiMin);
+            rssiMax = Math.max(rssiMax, o.rssiMax);
+            rssiSum += o.rssiSum;
+            rssiCount += o.rssiCount;
+            heapMin = Math.min(heapMin, o.heapMin);
+            heapMax = Math.max(heapMax, o.heapMax);
+            heapSum += o.heapSum;
+            heapCount += o.heapCount;
+            return this;
+        }
+
+        static Agg of(TelemetryRollup row) {
+            Agg agg = new Agg();
+            if (row.getTempCount() != null && row.getTempCount() > 0) {
+                agg.tempMin = row.getTempMin();
+                agg.tempMax = row.getTempMax();
+                agg.tempSum = row.getTempSum();
+                agg.tempCount = row.getTempCount();
+            }
+            if (row.getHumCount() != null && row.getHumCount() > 0) {
+                agg.humMin = row.getHumMin();
+                agg.humMax = row.getHumMax();
+                agg.humSum = row.getHumSum();
+                agg.humCount = row.getHumCount();
+            }
+            if (row.getRssiCount() != null && row.getRssiCount() > 0) {
+                agg.rssiMin = row.getRssiMin();
+                agg.rssiMax = row.getRssiMax();
+                agg.rssiSum = row.getRssiSum();
+                agg.rssiCount = row.getRssiCount();
+            }
+            if (row.getHeapCount() != null && row.getHeapCount() > 0) {
+                agg.heapMin = row.getHeapMin();
+                agg.heapMax = row.getHeapMax();
+                agg.heapSum = row.getHeapSum();
+                agg.heapCount = row.getHeapCount();
+            }
+            return agg;
+        }
+
+        TelemetryRollup toRollup(BucketKey key) {
+            TelemetryRollup row = new TelemetryRollup();
+            row.setClientId(key.clientId());
+            row.setBucketTime(key.bucket());
+            row.setTempMin(tempCount > 0 ? tempMin : null);
+            row.setTempMax(tempCount > 0 ? tempMax : null);
+            row.setTempSum(tempSum);
+            row.setTempCount(tempCount);
+            row.setHumMin(humCount > 0 ? humMin : null);
+            row.setHumMax(humCount > 0 ? humMax : null);
+            row.setHumSum(humSum);
+            row.setHumCount(humCount);
+            row.setRssiMin(rssiCount > 0 ? rssiMin : null);
+            row.setRssiMax(rssiCount > 0 ? rssiMax : null);
+            row.setRssiSum(rssiSum);
+            row.setRssiCount(rssiCount);
+            row.setHeapMin(heapCount > 0 ? heapMin : null);
+            row.setHeapMax(heapCount > 0 ? heapMax : null);
+            row.setHeapSum(heapSum);
+            row.setHeapCount(heapCount);
+            return row;
+        }
+
+        TelemetryPointResponse toPoint(LocalDateTime time) {
+            return TelemetryPointResponse.builder()
+                    .time(time)
+                    .temperatureMin(tempCount > 0 ? tempMin : null)
+                    .temperatureMax(tempCount > 0 ? tempMax : null)
+                    .temperatureAvg(tempCount > 0 ? round2(tempSum / tempCount) : null)
+                    .humidityMin(humCount > 0 ? humMin : null)
+                    .humidityMax(humCount > 0 ? humMax : null)
+                    .humidityAvg(humCount > 0 ? round2(humSum / humCount) : null)
+                    .rssiMin(rssiCount > 0 ? rssiMin : null)
+                    .rssiMax(rssiCount > 0 ? rssiMax : null)
+                    .rssiAvg(rssiCount > 0 ? round2((double) rssiSum / rssiCount) : null)
+                    .freeHeapMin(heapCount > 0 ? heapMin / 1024 : null)
+                    .freeHeapMax(heapCount > 0 ? heapMax / 1024 : null)
+                    .freeHeapAvg(heapCount > 0 ? round2((double) heapSum / heapCount / 1024) : null)
+                    .dhtCount(tempCount)
+                    .statusCount(heapCount)
+                    .build();
+        }
+
+        private static double round2(double v) {
+            return Math.round(v * 100) / 100.0;
+        }
+    }
+}
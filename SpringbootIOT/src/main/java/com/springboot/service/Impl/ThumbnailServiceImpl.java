@@ -0,0 +1,318 @@
+package com.springboot.service.Impl;
+
+import com.springboot.pojo.vo.ThumbnailStatsResponse;
+import com.springboot.service.PhotoStorageService;
+import com.springboot.service.ThumbnailService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 缩略图服务实现
+ * 缩略图按 {宽度}/{文件名} 存放在磁盘缓存目录，按总字节数做LRU淘汰
+ * 解码时按整数倍降采样，只解码到约2倍目标宽度，不会在堆上展开完整的1080p位图
+ */
+@Slf4j
+@Service
+public class ThumbnailServiceImpl implements ThumbnailService {
+
+    @Autowired
+    private PhotoStorageService photoStorageService;
+
+    /** 缩略图缓存目录 */
+    @Value("${thumbnail.dir:thumbs}")
+    private String thumbnailDir;
+
+    /** 允许的缩略图宽度档位，请求宽度向上对齐到档位 */
+    @Value("${thumbnail.widths:160,320,640}")
+    private int[] widths;
+
+    /** 上传完成后预生成的宽度 */
+    @Value("${thumbnail.pregenerate-widths:320}")
+    private int[] pregenerateWidths;
+
+    /** 缓存占用上限(字节)，超出按最近最少使用淘汰 */
+    @Value("${thumbnail.max-bytes:268435456}")
+    private long maxBytes;
+
+    /** JPEG压缩质量(0-1) */
+    @Value("${thumbnail.quality:0.8}")
+    private float quality;
+
+    private Path cacheRoot;
+
+    /**
+     * LRU索引(按访问顺序)，受自身锁保护
+     * Key: {宽度}/{文件名}, Value: 文件字节数
+     */
+    private final LinkedHashMap<String, Long> lru = new LinkedHashMap<>(256, 0.75f, true);
+    private long cachedBytes;
+
+    /** 生成中的缩略图，同一张图并发请求只生成一次 */
+    private final ConcurrentHashMap<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    /** 上传后预生成线程 */
+    private ThreadPoolExecutor pregenerator;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong totalGenerateMs = new AtomicLong();
+
+    @PostConstruct
+    public void init() throws IOException {
+        Arrays.sort(widths);
+        cacheRoot = Paths.get(thumbnailDir).toAbsolutePath().normalize();
+        Files.createDirectories(cacheRoot);
+        loadIndex();
+        pregenerator = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(100), r -> {
+                    Thread t = new Thread(r, "thumbnail-pregen");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+        log.info("缩略图缓存: dir={}, entries={}, bytes={}, maxBytes={}", cacheRoot, lru.size(), cachedBytes, maxBytes);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        pregenerator.shutdownNow();
+    }
+
+    /**
+     * 启动时扫描缓存目录重建LRU索引(按修改时间近似访问顺序)
+     */
+    private void loadIndex() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(cacheRoot, 2)) {
+            files = stream.filter(Files::isRegularFile)
+                    .filter(p -> !p.getFileName().toString().endsWith(".part"))
+                    .sorted(Comparator.comparingLong(p -> p.toFile().lastModified()))
+                    .toList();
+        }
+        for (Path file : files) {
+            record(cacheRoot.relativize(file).toString().replace('\\', '/'), file.toFile().length());
+        }
+    }
+
+    @Override
+    public Path getThumbnail(String fileName, int width) throws IOException {
+        if (fileName.contains("/") || fileName.contains("\\") || fileName.contains("..")) {
+            throw new IllegalArgumentException("非法文件名: " + fileName);
+        }
+        Path source = photoStorageService.resolve(fileName);
+        if (source == null || !Files.isRegularFile(source)) {
+            return null;
+        }
+        int w = snapWidth(width);
+        String key = w + "/" + fileName;
+        Path thumb = cacheRoot.resolve(key);
+
+        // 缓存命中(原图被覆盖过则重新生成)
+        if (Files.isRegularFile(thumb)
+                && Files.getLastModifiedTime(thumb).compareTo(Files.getLastModifiedTime(source)) >= 0) {
+            hits.incrementAndGet();
+            boolean indexed;
+            synchronized (lru) {
+                // get会刷新访问顺序
+                indexed = lru.get(key) != null;
+            }
+            if (!indexed) {
+                record(key, Files.size(thumb));
+            }
+            return thumb;
+        }
+
+        CompletableFuture<Path> mine = new CompletableFuture<>();
+        CompletableFuture<Path> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            }
+        }
+        try {
+            Path result = generate(source, thumb, w);
+            if (result == thumb) {
+                record(key, Files.size(thumb));
+            }
+            mine.complete(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * 生成缩略图
+     * @return 缩略图路径；原图不比目标宽度大时直接返回原图
+     */
+    private Path generate(Path source, Path thumb, int width) throws IOException {
+        long start = System.nanoTime();
+        BufferedImage scaled;
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("不支持的图片格式: " + source.getFileName());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                // 只读文件头拿尺寸，不解码像素
+                int srcWidth = reader.getWidth(0);
+                int srcHeight = reader.getHeight(0);
+                if (srcWidth <= width) {
+                    return source;
+                }
+                // 解码时隔行隔列采样到不小于2倍目标宽度，再平滑缩放到目标尺寸
+                int factor = Math.max(1, srcWidth / (width * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(factor, factor, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+
+                int height = Math.max(1, (int) Math.round((double) srcHeight * width / srcWidth));
+                scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+                Graphics2D g = scaled.createGraphics();
+                try {
+                    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    g.drawImage(decoded, 0, 0, width, height, null);
+                } finally {
+                    g.dispose();
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        Files.createDirectories(thumb.getParent());
+        Path tmp = thumb.resolveSibling(thumb.getFileName() + ".part");
+        Files.deleteIfExists(tmp);
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(tmp.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(scaled, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        Files.move(tmp, thumb, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        long cost = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        generated.incrementAndGet();
+        totalGenerateMs.addAndGet(cost);
+        log.debug("生成缩略图: {}, width={}, 耗时={}ms", source.getFileName(), width, cost);
+        return thumb;
+    }
+
+    /**
+     * 记录缓存条目，超出容量时淘汰最久未访问的缩略图
+     */
+    private void record(String key, long size) {
+        List<String> victims = new ArrayList<>();
+        synchronized (lru) {
+            Long old = lru.put(key, size);
+            cachedBytes += size - (old == null ? 0 : old);
+            Iterator<Map.Entry<String, Long>> it = lru.entrySet().iterator();
+            while (cachedBytes > maxBytes && lru.size() > 1 && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                cachedBytes -= eldest.getValue();
+                victims.add(eldest.getKey());
+                it.remove();
+            }
+        }
+        // 删除文件放在锁外
+        for (String victim : victims) {
+            try {
+                Files.deleteIfExists(cacheRoot.resolve(victim));
+                evictions.incrementAndGet();
+            } catch (IOException e) {
+                log.warn("删除缩略图失败: {}, error={}", victim, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 请求宽度向上对齐到档位，超过最大档位取最大档位
+     */
+    private int snapWidth(int width) {
+        for (int w : widths) {
+            if (w >= width) {
+                return w;
+            }
+        }
+        return widths[widths.length - 1];
+    }
+
+    @Override
+    public void pregenerateAsync(String fileName) {
+        pregenerator.execute(() -> {
+            for (int w : pregenerateWidths) {
+                try {
+                    getThumbnail(fileName, w);
+                } catch (Exception e) {
+                    log.warn("预生成缩略图失败: {}, width={}, error={}", fileName, w, e.getMessage());
+                }
+            }
+        });
+    }
+
+    @Override
+    public ThumbnailStatsResponse getStats() {
+        long count = generated.get();
+        synchronized (lru) {
+            return ThumbnailStatsResponse.builder()
+                    .entries(lru.size())
+                    .cachedBytes(cachedBytes)
+                    .maxBytes(maxBytes)
+                    .hits(hits.get())
+                    .generated(count)
+                    .evictions(evictions.get())
+                    .avgGenerateMs(count == 0 ? 0 : totalGenerateMs.get() / count)
+                    .build();
+        }
+    }
+}
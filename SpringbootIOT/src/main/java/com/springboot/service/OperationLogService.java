@@ -1,6 +1,7 @@
 package com.springboot.service;
 
 import com.springboot.pojo.OperationLog;
+import com.springboot.pojo.vo.CommandStatsResponse;
 
 import java.util.List;
 
@@ -10,7 +11,8 @@ import java.util.List;
 public interface OperationLogService {
     
     /**
-     * 记录操作日志
+     * 记录操作日志并登记待回执
+     * 须在指令发送前调用，回执再快也能按主键更新到这一行
      */
     void log(String clientId, String operation, Long cmdId, Integer value);
     
@@ -44,4 +46,9 @@ public interface OperationLogService {
      * @param description 操作描述
      */
     void logAutoCommand(String clientId, String operation, String description);
+    
+    /**
+     * 获取待回执指令/超时统计
+     */
+    CommandStatsResponse getCommandStats();
 }
@@ -0,0 +1,42 @@
+package com.springboot.service;
+
+import com.springboot.pojo.vo.PhotoPageResponse;
+import com.springboot.pojo.vo.WriteBufferStatsResponse;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 拍照图片元数据服务接口
+ */
+public interface PhotoService {
+    
+    /**
+     * 记录一张上传完成的图片（写入批量缓冲区，异步落库，落库前读取图片尺寸）
+     * @param fileName 文件名
+     * @param clientId 设备ID
+     * @param cmdId 拍照指令ID
+     * @param size 文件大小(字节)
+     * @param path 文件路径(用于读取尺寸)
+     */
+    void record(String fileName, String clientId, Long cmdId, long size, Path path);
+    
+    /**
+     * 键集分页查询图片
+     * @param clientId 设备ID，为空查全部设备
+     * @param before 上一页返回的nextBefore，为空从最新开始
+     * @param limit 每页条数
+     */
+    PhotoPageResponse getPage(String clientId, Long before, int limit);
+    
+    /**
+     * 图片文件被清理后删除对应元数据
+     * @param fileNames 文件名列表
+     */
+    void deleteByFileNames(List<String> fileNames);
+    
+    /**
+     * 获取批量写缓冲区统计（积压、写库耗时）
+     */
+    WriteBufferStatsResponse getWriteBufferStats();
+}
@@ -0,0 +1,62 @@
+package com.springboot.service;
+
+import com.springboot.pojo.vo.PhotoResponse;
+import com.springboot.pojo.vo.PhotoStorageStatsResponse;
+import com.springboot.pojo.vo.UploadStatsResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 图片存储服务接口
+ * 图片按 {clientId}/{yyyy-MM-dd}/{文件名} 分目录存放，文件名全局唯一，
+ * 通过内存索引按文件名定位、按设备列出最近图片
+ */
+public interface PhotoStorageService {
+    
+    /**
+     * 流式保存图片
+     * 数据直接写入目标目录下的临时文件，写完(可选fsync)后原子改名为最终文件名
+     * @param fileName 文件名(不能包含路径)
+     * @param in 图片数据流
+     * @param expectedLength 期望字节数(Content-Length)，未知传-1
+     * @return 保存结果
+     */
+    StoredPhoto save(String fileName, InputStream in, long expectedLength) throws IOException;
+    
+    /**
+     * 按文件名定位图片
+     * @param fileName 文件名
+     * @return 文件路径，不存在返回null
+     */
+    Path resolve(String fileName);
+    
+    /**
+     * 列出设备最近的图片(走内存索引，不扫描目录)
+     * @param clientId 设备ID
+     * @param limit 最多返回条数
+     * @return 按时间倒序的图片列表
+     */
+    List<PhotoResponse> listRecent(String clientId, int limit);
+    
+    /**
+     * 获取上传统计
+     */
+    UploadStatsResponse getUploadStats();
+    
+    /**
+     * 获取存储与清理统计
+     */
+    PhotoStorageStatsResponse getStorageStats();
+    
+    /**
+     * 保存结果
+     * @param fileName 文件名
+     * @param path 文件绝对路径
+     * @param size 字节数
+     * @param bytesPerSecond 写入速率(字节/秒)
+     */
+    record StoredPhoto(String fileName, Path path, long size, long bytesPerSecond) {}
+}
@@ -0,0 +1,15 @@
+package com.springboot.service;
+
+import com.springboot.pojo.vo.RetentionStatsResponse;
+
+/**
+ * 原始数据保留清理服务接口
+ * 定时删除dht_data/device_status_history/operation_log中超过保留天数的行
+ */
+public interface RetentionService {
+    
+    /**
+     * 获取清理统计（各表删除行数、删除分区数、耗时）
+     */
+    RetentionStatsResponse getStats();
+}
@@ -1,5 +1,6 @@
 package com.springboot.service;
 
+import com.springboot.pojo.vo.SseStatsResponse;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
@@ -7,8 +8,14 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
  */
 public interface SseService {
     
+    /**
+     * 订阅全部设备的clientId通配符
+     */
+    String ALL_DEVICES = "all";
+    
     /**
      * 创建新的SSE连接
+     * 只接收该clientId设备的事件，传ALL_DEVICES则接收全部设备的事件
      */
     SseEmitter createConnection(String clientId);
     
@@ -42,4 +49,9 @@ public interface SseService {
      * 推送AI响应
      */
     void pushAiResponse(String sessionId, String taskId, String response, String imageFile);
+    
+    /**
+     * 获取推送统计（连接数、排队/丢弃事件数）
+     */
+    SseStatsResponse getStats();
 }
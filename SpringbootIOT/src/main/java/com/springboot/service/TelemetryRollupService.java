@@ -0,0 +1,31 @@
+package com.springboot.service;
+
+import com.springboot.pojo.vo.TelemetryRangeResponse;
+
+import java.time.LocalDateTime;
+
+/**
+ * 遥测聚合服务接口
+ * 入库时增量维护分钟/小时/日聚合表，区间查询按时间跨度自动选择粒度
+ */
+public interface TelemetryRollupService {
+    
+    /**
+     * 记录一次温湿度采样(在内存中累加，定时合并写入聚合表)
+     */
+    void recordDht(String clientId, LocalDateTime time, double temperature, double humidity);
+    
+    /**
+     * 记录一次设备状态采样(在内存中累加，定时合并写入聚合表)
+     */
+    void recordStatus(String clientId, LocalDateTime time, int rssi, int freeHeap);
+    
+    /**
+     * 区间查询
+     * 选择点数不超过maxPoints的最细粒度(分钟 → 小时 → 日)
+     * @param from 起始时间(含)
+     * @param to 结束时间(不含)
+     * @param maxPoints 最多返回的点数
+     */
+    TelemetryRangeResponse getRange(String clientId, LocalDateTime from, LocalDateTime to, int maxPoints);
+}
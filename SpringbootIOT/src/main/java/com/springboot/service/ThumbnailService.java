@@ -0,0 +1,31 @@
+package com.springboot.service;
+
+import com.springboot.pojo.vo.ThumbnailStatsResponse;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 缩略图服务接口
+ */
+public interface ThumbnailService {
+    
+    /**
+     * 获取图片的缩略图，缓存未命中时生成
+     * @param fileName 原图文件名
+     * @param width 期望宽度(会对齐到配置的档位)
+     * @return 缩略图文件路径，原图不存在返回null
+     */
+    Path getThumbnail(String fileName, int width) throws IOException;
+    
+    /**
+     * 异步预生成配置的缩略图档位(上传完成后调用)
+     * @param fileName 原图文件名
+     */
+    void pregenerateAsync(String fileName);
+    
+    /**
+     * 获取缩略图缓存统计
+     */
+    ThumbnailStatsResponse getStats();
+}
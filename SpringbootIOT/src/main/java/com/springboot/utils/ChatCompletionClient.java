@@ -0,0 +1,112 @@
+package com.springboot.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.springboot.pojo.vo.ExecutorStatsResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * OpenAI兼容 chat/completions 接口客户端
+ * 底层是JDK HttpClient(连接复用、连接超时、HTTP/2多路复用)，请求体直接流式写入连接；
+ * 调用在DeadlineExecutor上执行: 并发数有上限，超出的排队，队列满立即拒绝，
+ * 每个请求从提交起有截止时间(含排队)，到期结束等待并中断请求
+ */
+public class ChatCompletionClient {
+
+    /** 兜底读超时比截止时间多出的余量(ms) */
+    private static final long READ_TIMEOUT_MARGIN_MS = 1000;
+
+    private final String apiUrl;
+    private final String apiKey;
+    private final String model;
+    private final long requestTimeoutMs;
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    /** 请求体写出器(不关闭目标流，连接输出流由HTTP客户端负责关闭) */
+    private final ObjectWriter requestWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private final DeadlineExecutor executor;
+
+    /**
+     * @param apiUrl 接口地址
+     * @param apiKey API Key
+     * @param model 模型名
+     * @param connectTimeoutMs 建连超时(ms)
+     * @param requestTimeoutMs 单个请求截止时间(ms，从提交算起，含排队)
+     * @param maxConcurrency 最大并发请求数
+     * @param queueCapacity 排队容量
+     */
+    public ChatCompletionClient(String apiUrl, String apiKey, String model, long connectTimeoutMs,
+                                long requestTimeoutMs, int maxConcurrency, int queueCapacity) {
+        this.apiUrl = apiUrl;
+        this.apiKey = apiKey;
+        this.model = model;
+        this.requestTimeoutMs = requestTimeoutMs;
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        // 等待响应的兜底超时，留出时间轮精度的余量，保证截止时间先触发
+        // (兜底超时先到时请求以CancellationException结束，调用方拿不到TimeoutException)
+        factory.setReadTimeout(Duration.ofMillis(requestTimeoutMs + READ_TIMEOUT_MARGIN_MS));
+        this.restTemplate = new RestTemplate(factory);
+        this.executor = new DeadlineExecutor("ai-http", maxConcurrency, queueCapacity);
+    }
+
+    /**
+     * 异步调用
+     * @param messages 消息列表(可包含ImageDataUrl，发送时流式编码)
+     * @return 模型回复文本；排队满以RejectedExecutionException结束，超过截止时间以TimeoutException结束
+     */
+    public CompletableFuture<String> chat(List<Map<String, Object>> messages) {
+        return executor.submit(() -> execute(messages), requestTimeoutMs);
+    }
+
+    private String execute(List<Map<String, Object>> messages) throws IOException {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", model);
+        requestBody.put("messages", messages);
+
+        // 请求体直接序列化进连接输出流，不在内存中拼出完整JSON
+        JsonNode root = restTemplate.execute(apiUrl, HttpMethod.POST, request -> {
+            request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            request.getHeaders().setBearerAuth(apiKey);
+            if (request instanceof StreamingHttpOutputMessage streaming) {
+                streaming.setBody(out -> requestWriter.writeValue(out, requestBody));
+            } else {
+                requestWriter.writeValue(request.getBody(), requestBody);
+            }
+        }, response -> objectMapper.readTree(response.getBody()));
+
+        JsonNode choices = root == null ? null : root.path("choices");
+        if (choices == null || choices.isEmpty()) {
+            throw new IOException("AI响应缺少choices: " + root);
+        }
+        return choices.get(0).path("message").path("content").asText();
+    }
+
+    /**
+     * 获取并发/排队统计
+     */
+    public ExecutorStatsResponse getStats() {
+        return executor.getStats();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
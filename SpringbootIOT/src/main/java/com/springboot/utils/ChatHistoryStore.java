@@ -0,0 +1,418 @@
+package com.springboot.utils;
+
+import com.springboot.pojo.vo.AiHistoryStatsResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AI会话历史存储
+ * 每个会话只保留最近maxTurns轮、估算不超过maxTokens个token的消息，
+ * 只有最近imageTurns条用户消息携带图片，更早的图片替换为"[图片: 文件名]"占位文本，
+ * 会话按最近访问顺序排列，超过会话数上限或空闲超过idleTtlMs的会话被淘汰
+ * 图片只保存文件路径及记录时的大小和修改时间，发送时才从磁盘流式编码(ImageDataUrl)；
+ * 同名图片可能被重新上传覆盖(语音拍照_0.jpg、cmdId回绕)，发送前大小或修改时间不一致的按占位文本发送
+ */
+@Slf4j
+public class ChatHistoryStore {
+
+    /** 单条消息的固定开销估算(对象头+字段+Map条目) */
+    private static final int MESSAGE_OVERHEAD_BYTES = 96;
+    /** 图片引用的固定开销估算(ImageRef+Path+文件名) */
+    private static final int IMAGE_REF_BYTES = 160;
+
+    private final int maxTurns;
+    private final int maxTokens;
+    private final int imageTurns;
+    private final int imageTokens;
+    private final long idleTtlMs;
+    private final int maxSessions;
+
+    /** 会话表(按访问顺序)，受自身锁保护 */
+    private final LinkedHashMap<String, Session> sessions = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final ScheduledExecutorService sweeper;
+
+    private final AtomicLong evictedSessions = new AtomicLong();
+    private final AtomicLong trimmedMessages = new AtomicLong();
+    private final AtomicLong strippedImages = new AtomicLong();
+
+    /**
+     * @param maxTurns 每个会话保留的最大轮数(一问一答为一轮)
+     * @param maxTokens 每个会话历史的估算token上限
+     * @param imageTurns 保留图片的最近用户消息条数
+     * @param imageTokens 每张图片按多少token估算
+     * @param idleTtlMs 会话空闲多久后淘汰(ms)
+     * @param maxSessions 最多保留的会话数，超出淘汰最久未访问的
+     */
+    public ChatHistoryStore(int maxTurns, int maxTokens, int imageTurns, int imageTokens,
+                            long idleTtlMs, int maxSessions) {
+        this.maxTurns = maxTurns;
+        this.maxTokens = maxTokens;
+        // 当前这条消息的图片必须发出去
+        this.imageTurns = Math.max(1, imageTurns);
+        this.imageTokens = imageTokens;
+        this.idleTtlMs = idleTtlMs;
+        this.maxSessions = maxSessions;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ai-history-sweep");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 启动空闲会话定时清理(间隔取空闲超时的1/4，至少1分钟)
+     */
+    public void start() {
+        long interval = Math.max(TimeUnit.MINUTES.toMillis(1), idleTtlMs / 4);
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                int evicted = evictIdle();
+                if (evicted > 0) {
+                    log.info("清理空闲AI会话: {} 个", evicted);
+                }
+            } catch (Throwable e) {
+                log.error("清理空闲AI会话异常: {}", e.getMessage(), e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("AI会话历史: maxTurns={}, maxTokens={}, imageTurns={}, idleTtlMs={}, maxSessions={}",
+                maxTurns, maxTokens, imageTurns, idleTtlMs, maxSessions);
+    }
+
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * 追加用户消息
+     * @param image 图片路径(可为null)，记录此刻的大小和修改时间，读取失败按无图处理
+     */
+    public void addUser(String sessionId, String text, Path image) {
+        append(sessionId, new Message("user", text, image == null ? null : ImageRef.of(image)));
+    }
+
+    /**
+     * 追加AI回复
+     */
+    public void addAssistant(String sessionId, String text) {
+        append(sessionId, new Message("assistant", text, null));
+    }
+
+    private void append(String sessionId, Message message) {
+        List<String> victims = new ArrayList<>();
+        synchronized (sessions) {
+            Session session = sessions.computeIfAbsent(sessionId, k -> new Session());
+            session.lastAccess = System.currentTimeMillis();
+            session.add(message);
+            if (message.image != null) {
+                stripOldImages(session);
+            }
+            trim(session);
+            // 超出会话数上限，淘汰最久未访问的会话
+            Iterator<Map.Entry<String, Session>> it = sessions.entrySet().iterator();
+            while (sessions.size() > maxSessions && it.hasNext()) {
+                Map.Entry<String, Session> eldest = it.next();
+                if (eldest.getKey().equals(sessionId)) {
+                    continue;
+                }
+                victims.add(eldest.getKey());
+                it.remove();
+            }
+        }
+        if (!victims.isEmpty()) {
+            evictedSessions.addAndGet(victims.size());
+            log.info("AI会话数超过上限{}, 淘汰: {}", maxSessions, victims);
+        }
+    }
+
+    /**
+     * 只保留最近imageTurns条用户消息的图片
+     */
+    private void stripOldImages(Session session) {
+        int kept = 0;
+        Iterator<Message> it = session.messages.descendingIterator();
+        while (it.hasNext()) {
+            Message m = it.next();
+            if (m.image == null) {
+                continue;
+            }
+            if (kept < imageTurns) {
+                kept++;
+                continue;
+            }
+            session.remove(m);
+            m.stripImage();
+            session.add0(m);
+            strippedImages.incrementAndGet();
+        }
+    }
+
+    /**
+     * 从最早的消息开始裁剪，直到轮数和token都不超限(至少保留最新一条)，
+     * 裁剪后历史总是以用户消息开头
+     */
+    private void trim(Session session) {
+        int trimmed = 0;
+        while (session.messages.size() > 1
+                && (session.messages.size() > maxTurns * 2 || session.tokens > maxTokens)) {
+            session.remove(session.messages.pollFirst());
+            trimmed++;
+        }
+        while (session.messages.size() > 1 && !"user".equals(session.messages.peekFirst().role)) {
+            session.remove(session.messages.pollFirst());
+            trimmed++;
+        }
+        if (trimmed > 0) {
+            trimmedMessages.addAndGet(trimmed);
+        }
+    }
+
+    /**
+     * 按OpenAI兼容格式构建历史消息
+     * 携带图片的用户消息展开为image_url+text，图片文件已被清理或被同名新图覆盖的按占位文本发送
+     */
+    public List<Map<String, Object>> toMessages(String sessionId) {
+        List<MessageView> snapshot = snapshot(sessionId);
+        List<Map<String, Object>> result = new ArrayList<>(snapshot.size());
+        for (MessageView m : snapshot) {
+            if (m.image() != null && m.image().unchanged()) {
+                result.add(Map.of("role", m.role(), "content", List.of(
+                        Map.of("type", "image_url", "image_url", Map.of("url", new ImageDataUrl(m.image().path()))),
+                        Map.of("type", "text", "text", m.text()))));
+            } else {
+                result.add(Map.of("role", m.role(), "content", m.displayText()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取纯文本历史(前端展示)
+     */
+    public List<Map<String, String>> toSimple(String sessionId) {
+        List<MessageView> snapshot = snapshot(sessionId);
+        List<Map<String, String>> result = new ArrayList<>(snapshot.size());
+        for (MessageView m : snapshot) {
+            result.add(Map.of("role", m.role(), "content", m.text()));
+        }
+        return result;
+    }
+
+    /**
+     * 在锁内复制会话消息(校验图片文件放到锁外)
+     */
+    private List<MessageView> snapshot(String sessionId) {
+        synchronized (sessions) {
+            Session session = sessions.get(sessionId);
+            if (session == null) {
+                return List.of();
+            }
+            session.lastAccess = System.currentTimeMillis();
+            List<MessageView> result = new ArrayList<>(session.messages.size());
+            for (Message m : session.messages) {
+                result.add(new MessageView(m.role, m.text, m.image, m.displayText()));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 删除会话
+     */
+    public void remove(String sessionId) {
+        synchronized (sessions) {
+            sessions.remove(sessionId);
+        }
+    }
+
+    /**
+     * 淘汰空闲超时的会话
+     * @return 淘汰数
+     */
+    public int evictIdle() {
+        long deadline = System.currentTimeMillis() - idleTtlMs;
+        int evicted = 0;
+        synchronized (sessions) {
+            Iterator<Session> it = sessions.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().lastAccess < deadline) {
+                    it.remove();
+                    evicted++;
+                }
+            }
+        }
+        evictedSessions.addAndGet(evicted);
+        return evicted;
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public AiHistoryStatsResponse getStats() {
+        int count;
+        int messages = 0;
+        int images = 0;
+        long tokens = 0;
+        long bytes = 0;
+        synchronized (sessions) {
+            count = sessions.size();
+            for (Session session : sessions.values()) {
+                messages += session.messages.size();
+                images += session.images;
+                tokens += session.tokens;
+                bytes += session.bytes;
+            }
+        }
+        return AiHistoryStatsResponse.builder()
+                .sessions(count)
+                .maxSessions(maxSessions)
+                .messages(messages)
+                .images(images)
+                .estimatedTokens(tokens)
+                .estimatedBytes(bytes)
+                .evictedSessions(evictedSessions.get())
+                .trimmedMessages(trimmedMessages.get())
+                .strippedImages(strippedImages.get())
+                .build();
+    }
+
+    /**
+     * 估算文本token数: 中文等非ASCII字符按1个token，ASCII按4个字符1个token
+     */
+    static long estimateTokens(String text) {
+        long ascii = 0;
+        long other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < 128) {
+                ascii++;
+            } else {
+                other++;
+            }
+        }
+        return other + (ascii + 3) / 4;
+    }
+
+    /**
+     * 会话(消息队列+累计估算值)，受会话表锁保护
+     */
+    private static final class Session {
+        private final ArrayDeque<Message> messages = new ArrayDeque<>();
+        private long tokens;
+        private long bytes;
+        private int images;
+        private long lastAccess;
+
+        private void add(Message m) {
+            messages.addLast(m);
+            add0(m);
+        }
+
+        /** 只累计估算值 */
+        private void add0(Message m) {
+            tokens += m.tokens();
+            bytes += m.bytes();
+            images += m.image == null ? 0 : 1;
+        }
+
+        /** 只扣减估算值(消息本身由调用方移出队列) */
+        private void remove(Message m) {
+            tokens -= m.tokens();
+            bytes -= m.bytes();
+            images -= m.image == null ? 0 : 1;
+        }
+    }
+
+    /**
+     * 消息快照
+     * @param displayText 不带图片发送时的文本
+     */
+    private record MessageView(String role, String text, ImageRef image, String displayText) {
+    }
+
+    /**
+     * 图片引用: 路径及记录时的文件大小和修改时间
+     */
+    private record ImageRef(Path path, long size, long lastModified) {
+
+        /**
+         * @return 读取文件属性失败(如已被清理)返回null
+         */
+        private static ImageRef of(Path path) {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                return new ImageRef(path, attrs.size(), attrs.lastModifiedTime().toMillis());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        /**
+         * 文件仍存在且大小、修改时间与记录时一致
+         * (上传写完整后原子改名落盘，被覆盖时修改时间必然变化)
+         */
+        private boolean unchanged() {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                return attrs.isRegularFile() && attrs.size() == size
+                        && attrs.lastModifiedTime().toMillis() == lastModified;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 单条消息
+     */
+    private final class Message {
+        private final String role;
+        private final String text;
+        private ImageRef image;
+        /** 图片被剥离后的占位文本 */
+        private String placeholder;
+
+        private Message(String role, String text, ImageRef image) {
+            this.role = role;
+            this.text = text;
+            this.image = image;
+        }
+
+        private void stripImage() {
+            placeholder = "[图片: " + image.path().getFileName() + "]";
+            image = null;
+        }
+
+        /** 不带图片发送时的文本 */
+        private String displayText() {
+            if (image != null) {
+                return "[图片: " + image.path().getFileName() + "]\n" + text;
+            }
+            return placeholder == null ? text : placeholder + "\n" + text;
+        }
+
+        private long tokens() {
+            return estimateTokens(text) + (image != null ? imageTokens : 0)
+                    + (placeholder != null ? estimateTokens(placeholder) : 0);
+        }
+
+        private long bytes() {
+            return MESSAGE_OVERHEAD_BYTES + 2L * text.length()
+                    + (image != null ? IMAGE_REF_BYTES : 0)
+                    + (placeholder != null ? 2L * placeholder.length() : 0);
+        }
+    }
+}
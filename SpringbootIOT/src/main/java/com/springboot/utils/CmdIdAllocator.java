@@ -0,0 +1,48 @@
+package com.springboot.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 指令ID分配器
+ * ESP32端用int32保存指令ID，这里在[1, Integer.MAX_VALUE]范围内单调递增分配，到顶后回绕到1
+ * 单次分配只有一次原子自增，无锁；连续约21亿个ID内不会重复
+ */
+public class CmdIdAllocator {
+
+    /** ID上限(ESP32 int32) */
+    public static final long MAX_ID = Integer.MAX_VALUE;
+
+    /** 按时钟生成种子时每秒预留的ID数 */
+    private static final long CLOCK_SEED_IDS_PER_SECOND = 16;
+
+    private final AtomicLong counter;
+
+    /**
+     * @param seed 起始ID，会被规整到[1, MAX_ID]
+     */
+    public CmdIdAllocator(long seed) {
+        this.counter = new AtomicLong(normalize(seed) - 1);
+    }
+
+    /**
+     * 分配下一个指令ID
+     */
+    public long nextId() {
+        return Math.floorMod(counter.getAndIncrement(), MAX_ID) + 1;
+    }
+
+    /**
+     * 把任意数值规整到[1, MAX_ID]
+     */
+    public static long normalize(long value) {
+        return Math.floorMod(value - 1, MAX_ID) + 1;
+    }
+
+    /**
+     * 基于时钟的种子：没有历史ID可参考时使用
+     * 只要平均分配速度不超过每秒CLOCK_SEED_IDS_PER_SECOND个，重启后的种子就在之前分配的ID之后
+     */
+    public static long clockSeed() {
+        return normalize(System.currentTimeMillis() / 1000 * CLOCK_SEED_IDS_PER_SECOND);
+    }
+}
@@ -0,0 +1,150 @@
+package com.springboot.utils;
+
+import com.springboot.pojo.vo.ExecutorStatsResponse;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 限并发、带截止时间的执行器
+ * 最多maxConcurrency个任务同时执行，其余在有界队列中排队，队列满直接拒绝；
+ * 每个任务的截止时间从提交时算起(含排队时间)，到期时结果Future以TimeoutException结束，
+ * 仍在排队的任务移出队列不再执行，正在执行的任务被中断
+ * 截止时间由时间轮调度，任务数多少都只占一个定时线程
+ */
+public class DeadlineExecutor {
+
+    private final String name;
+    private final int maxConcurrency;
+    private final int queueCapacity;
+    private final ThreadPoolExecutor pool;
+    private final TimerWheel timer;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong totalQueueWaitMs = new AtomicLong();
+    private final AtomicLong totalExecMs = new AtomicLong();
+    private volatile long maxQueueWaitMs;
+
+    /**
+     * @param name 名称(线程名和统计)
+     * @param maxConcurrency 最大并发数
+     * @param queueCapacity 排队容量
+     */
+    public DeadlineExecutor(String name, int maxConcurrency, int queueCapacity) {
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+        this.queueCapacity = queueCapacity;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+                    Thread t = new Thread(r, name + "-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.timer = new TimerWheel(name, 100, 512);
+    }
+
+    /**
+     * 提交任务
+     * @param task 任务
+     * @param deadlineMs 截止时间(ms，从现在算起，含排队时间)
+     * @return 结果Future；队列满时以RejectedExecutionException结束，到期未完成以TimeoutException结束
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task, long deadlineMs) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long enqueuedAt = System.nanoTime();
+        submitted.incrementAndGet();
+
+        Future<?> future;
+        try {
+            future = pool.submit(() -> run(task, result, enqueuedAt));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            result.completeExceptionally(new RejectedExecutionException(
+                    "执行器[" + name + "]排队已满(" + queueCapacity + ")"));
+            return result;
+        }
+
+        TimerWheel.Timeout timeout = timer.newTimeout(() -> {
+            if (result.completeExceptionally(new TimeoutException("执行器[" + name + "]任务超过截止时间: " + deadlineMs + "ms"))) {
+                timedOut.incrementAndGet();
+                // 排队中的直接移出队列，执行中的中断
+                future.cancel(true);
+                pool.remove((Runnable) future);
+            }
+        }, deadlineMs);
+        result.whenComplete((v, e) -> timeout.cancel());
+        return result;
+    }
+
+    private <T> void run(Callable<T> task, CompletableFuture<T> result, long enqueuedAt) {
+        long startedAt = System.nanoTime();
+        long waitMs = TimeUnit.NANOSECONDS.toMillis(startedAt - enqueuedAt);
+        started.incrementAndGet();
+        totalQueueWaitMs.addAndGet(waitMs);
+        if (waitMs > maxQueueWaitMs) {
+            maxQueueWaitMs = waitMs;
+        }
+        if (result.isDone()) {
+            return;
+        }
+        active.incrementAndGet();
+        try {
+            T value = task.call();
+            if (result.complete(value)) {
+                completed.incrementAndGet();
+            }
+        } catch (Throwable e) {
+            if (result.completeExceptionally(e)) {
+                failed.incrementAndGet();
+            }
+        } finally {
+            active.decrementAndGet();
+            totalExecMs.addAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        }
+    }
+
+    /**
+     * 停止执行器，排队中的任务不再执行，执行中的任务被中断
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+        timer.stop();
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public ExecutorStatsResponse getStats() {
+        long count = started.get();
+        return ExecutorStatsResponse.builder()
+                .name(name)
+                .maxConcurrency(maxConcurrency)
+                .active(active.get())
+                .queued(pool.getQueue().size())
+                .queueCapacity(queueCapacity)
+                .submitted(submitted.get())
+                .completed(completed.get())
+                .failed(failed.get())
+                .timedOut(timedOut.get())
+                .rejected(rejected.get())
+                .avgQueueWaitMs(count == 0 ? 0 : totalQueueWaitMs.get() / count)
+                .maxQueueWaitMs(maxQueueWaitMs)
+                .avgExecMs(count == 0 ? 0 : totalExecMs.get() / count)
+                .build();
+    }
+}
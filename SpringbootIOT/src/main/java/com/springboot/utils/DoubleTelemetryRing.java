@@ -0,0 +1,77 @@
+package com.springboot.utils;
+
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 两条double读数序列的遥测环形缓冲区(温度/湿度)
+ */
+public class DoubleTelemetryRing extends TelemetryRing {
+
+    private final double[] first;
+    private final double[] second;
+
+    /**
+     * 遍历采样点的回调
+     */
+    @FunctionalInterface
+    public interface PointConsumer {
+        void accept(long time, double first, double second);
+    }
+
+    /**
+     * @param capacity 保留的采样点数
+     */
+    public DoubleTelemetryRing(int capacity) {
+        this(capacity, new double[capacity], new double[capacity]);
+    }
+
+    private DoubleTelemetryRing(int capacity, double[] first, double[] second) {
+        super(capacity, first, second);
+        this.first = first;
+        this.second = second;
+    }
+
+    /**
+     * 追加一个采样点(覆盖最旧的点)
+     */
+    public synchronized void add(long time, double firstValue, double secondValue) {
+        int slot = append(time);
+        first[slot] = firstValue;
+        second[slot] = secondValue;
+    }
+
+    /**
+     * 用库中历史补齐(只补一次)
+     * @param history 库中最近的数据(时间正序)
+     */
+    public <T> void seed(List<T> history, ToLongFunction<T> time,
+                         ToDoubleFunction<T> firstValue, ToDoubleFunction<T> secondValue) {
+        seed(history, time, (row, slot) -> {
+            first[slot] = firstValue.applyAsDouble(row);
+            second[slot] = secondValue.applyAsDouble(row);
+        });
+    }
+
+    /**
+     * 按时间正序遍历最近limit个点
+     * @return 缓冲区容量不足以覆盖limit时不遍历并返回false(调用方应查库)
+     */
+    public synchronized boolean forEachLatest(int limit, PointConsumer consumer) {
+        return forEachLatestSlot(limit, slot -> consumer.accept(times[slot], first[slot], second[slot]));
+    }
+
+    /**
+     * 取最新一个点
+     * @return 缓冲区为空返回false
+     */
+    public synchronized boolean latest(PointConsumer consumer) {
+        int slot = latestSlot();
+        if (slot < 0) {
+            return false;
+        }
+        consumer.accept(times[slot], first[slot], second[slot]);
+        return true;
+    }
+}
@@ -0,0 +1,126 @@
+package com.springboot.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 图片data URL(data:image/jpeg;base64,...)的延迟引用
+ * 消息里只保存图片文件路径，Jackson序列化到这个值时才打开文件，
+ * 边读边Base64编码直接写进JSON输出流，堆上只有固定大小的读写缓冲区，
+ * 不会出现完整的图片字节数组、Base64字符串或整个请求体字符串
+ * @param path 图片文件路径
+ * @param mimeType 图片MIME类型
+ */
+@JsonSerialize(using = ImageDataUrl.Serializer.class)
+public record ImageDataUrl(Path path, String mimeType) {
+
+    public ImageDataUrl(Path path) {
+        this(path, "image/jpeg");
+    }
+
+    /**
+     * 序列化为JSON字符串值，内容从文件流式读取
+     */
+    public static class Serializer extends StdSerializer<ImageDataUrl> {
+
+        public Serializer() {
+            super(ImageDataUrl.class);
+        }
+
+        @Override
+        public void serialize(ImageDataUrl value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            try (Reader reader = new DataUrlReader("data:" + value.mimeType() + ";base64,",
+                    Files.newInputStream(value.path()))) {
+                // len=-1 表示一直读到流结束，Jackson按自身字符缓冲区分段写出
+                gen.writeString(reader, -1);
+            }
+        }
+    }
+
+    /**
+     * data URL字符流: 先输出前缀，再输出文件内容的Base64编码
+     */
+    private static final class DataUrlReader extends Reader {
+
+        /** 每次读取的原始字节数，取3的整数倍保证分块编码中间不会出现填充符 */
+        private static final int CHUNK = 3 * 1024;
+
+        private final String prefix;
+        private final InputStream in;
+        private final byte[] raw = new byte[CHUNK];
+        private final byte[] encoded = new byte[CHUNK / 3 * 4];
+        private int prefixPos;
+        private int pos;
+        private int limit;
+        private boolean eof;
+
+        private DataUrlReader(String prefix, InputStream in) {
+            this.prefix = prefix;
+            this.in = in;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (prefixPos < prefix.length()) {
+                int n = Math.min(len, prefix.length() - prefixPos);
+                prefix.getChars(prefixPos, prefixPos + n, cbuf, off);
+                prefixPos += n;
+                return n;
+            }
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            int n = Math.min(len, limit - pos);
+            for (int i = 0; i < n; i++) {
+                cbuf[off + i] = (char) encoded[pos + i];
+            }
+            pos += n;
+            return n;
+        }
+
+        /**
+         * 读满一块原始字节并编码
+         * @return 是否还有数据
+         */
+        private boolean fill() throws IOException {
+            if (eof) {
+                return false;
+            }
+            int filled = 0;
+            while (filled < CHUNK) {
+                int n = in.read(raw, filled, CHUNK - filled);
+                if (n < 0) {
+                    eof = true;
+                    break;
+                }
+                filled += n;
+            }
+            if (filled == 0) {
+                return false;
+            }
+            // 只有最后一块可能不满，带填充符单独编码一次
+            byte[] src = filled == CHUNK ? raw : Arrays.copyOf(raw, filled);
+            limit = Base64.getEncoder().encode(src, encoded);
+            pos = 0;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
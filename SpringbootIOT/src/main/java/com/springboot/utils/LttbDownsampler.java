@@ -0,0 +1,263 @@
+package com.springboot.utils;
+
+import java.util.Arrays;
+
+/**
+ * 流式LTTB(Largest-Triangle-Three-Buckets)降采样
+ * 按时间顺序逐点输入，只缓存当前桶和下一个桶，内存与输入总点数无关；
+ * 输出保留首尾点，中间每个桶选出与"上一个选中点、下一个桶均值"构成三角形面积最大的点，
+ * 曲线的峰谷和拐点都能保住
+ * 多条序列共用同一组选中点(共用时间轴)，面积按各序列值域归一化后相加，量纲不同的序列权重相当
+ * 桶按点序号划分，需要预先知道总点数(可用COUNT查询得到；实际点数与预估不一致时多出的点并入最后一个桶)
+ */
+public class LttbDownsampler {
+
+    private final int threshold;
+    private final int series;
+    private final double[] scales;
+    /** 每个桶的点数(浮点) */
+    private final double every;
+    /** 输入点数不超过阈值时原样输出 */
+    private final boolean passthrough;
+
+    /** 当前桶(待选点)和下一个桶(提供均值) */
+    private final Bucket current;
+    private final Bucket next;
+    private int currentIndex;
+    /** 正在填充的桶序号及其结束位置(不含)，桶i覆盖点序号[floor(i*every)+1, floor((i+1)*every)+1) */
+    private int fillIndex;
+    private long fillEnd;
+
+    /** 上一个选中点 */
+    private long prevTime;
+    private final double[] prevValues;
+
+    /** 输出 */
+    private long[] outTimes;
+    private final double[][] outValues;
+    private int outSize;
+
+    /** 已输入点数 */
+    private long count;
+
+    /**
+     * @param expectedPoints 预估的输入总点数
+     * @param threshold 输出点数上限(不小于3)
+     * @param ranges 各序列的值域(最大值-最小值)，用于面积归一化
+     */
+    public LttbDownsampler(long expectedPoints, int threshold, double... ranges) {
+        this.threshold = Math.max(3, threshold);
+        this.series = ranges.length;
+        this.scales = new double[series];
+        for (int s = 0; s < series; s++) {
+            scales[s] = ranges[s] > 0 ? 1.0 / ranges[s] : 1.0;
+        }
+        this.passthrough = expectedPoints <= this.threshold;
+        this.every = passthrough ? 1 : (double) (expectedPoints - 2) / (this.threshold - 2);
+        this.fillEnd = (long) Math.floor(every) + 1;
+        int bucketCapacity = passthrough ? 1 : (int) Math.ceil(every) + 1;
+        this.current = new Bucket(bucketCapacity, series);
+        this.next = new Bucket(bucketCapacity, series);
+        this.prevValues = new double[series];
+        int outCapacity = passthrough ? (int) Math.max(1, expectedPoints) : this.threshold;
+        this.outTimes = new long[outCapacity];
+        this.outValues = new double[series][outCapacity];
+    }
+
+    /**
+     * 输入一个点(必须按时间正序)
+     * @param values 各序列的值，调用方可复用数组
+     */
+    public void add(long time, double[] values) {
+        if (passthrough) {
+            emit(time, values);
+            count++;
+            return;
+        }
+        if (count == 0) {
+            emit(time, values);
+            prevTime = time;
+            System.arraycopy(values, 0, prevValues, 0, series);
+            count++;
+            return;
+        }
+        if (count >= fillEnd && fillIndex < threshold - 3) {
+            fillIndex++;
+            fillEnd = (long) Math.floor((fillIndex + 1) * every) + 1;
+        }
+        if (fillIndex > currentIndex + 1) {
+            // 下一个桶已经收满，可以确定当前桶的选中点
+            selectFrom(current, next.avgTime(), next.avgValues());
+            current.copyFrom(next);
+            next.clear();
+            currentIndex++;
+        }
+        (fillIndex == currentIndex ? current : next).add(time, values);
+        count++;
+    }
+
+    /**
+     * 输入结束，确定剩余桶的选中点并输出最后一个点
+     */
+    public void finish() {
+        if (passthrough || count <= 1) {
+            return;
+        }
+        Bucket tail = next.size > 0 ? next : current;
+        long lastTime = tail.times[tail.size - 1];
+        double[] lastValues = new double[series];
+        for (int s = 0; s < series; s++) {
+            lastValues[s] = tail.values[s][tail.size - 1];
+        }
+        tail.size--;
+        if (current.size > 0) {
+            if (next.size > 0) {
+                selectFrom(current, next.avgTime(), next.avgValues());
+                selectFrom(next, lastTime, lastValues);
+            } else {
+                selectFrom(current, lastTime, lastValues);
+            }
+        }
+        emit(lastTime, lastValues);
+    }
+
+    /**
+     * 在桶中选出与上一个选中点、参考点(c)构成三角形面积最大的点
+     */
+    private void selectFrom(Bucket bucket, double cTime, double[] cValues) {
+        if (bucket.size == 0) {
+            return;
+        }
+        int best = 0;
+        double bestArea = -1;
+        for (int i = 0; i < bucket.size; i++) {
+            double area = 0;
+            for (int s = 0; s < series; s++) {
+                double a = Math.abs((prevTime - cTime) * (bucket.values[s][i] - prevValues[s])
+                        - (prevTime - bucket.times[i]) * (cValues[s] - prevValues[s]));
+                area += a * scales[s];
+            }
+            if (area > bestArea) {
+                bestArea = area;
+                best = i;
+            }
+        }
+        prevTime = bucket.times[best];
+        for (int s = 0; s < series; s++) {
+            prevValues[s] = bucket.values[s][best];
+        }
+        emit(prevTime, prevValues);
+    }
+
+    private void emit(long time, double[] values) {
+        if (outSize == outTimes.length) {
+            // 实际点数超过预估(仅原样输出模式)
+            int capacity = outTimes.length * 2;
+            outTimes = Arrays.copyOf(outTimes, capacity);
+            for (int s = 0; s < series; s++) {
+                outValues[s] = Arrays.copyOf(outValues[s], capacity);
+            }
+        }
+        outTimes[outSize] = time;
+        for (int s = 0; s < series; s++) {
+            outValues[s][outSize] = values[s];
+        }
+        outSize++;
+    }
+
+    /**
+     * 输出点数
+     */
+    public int size() {
+        return outSize;
+    }
+
+    /**
+     * 第i个输出点的时间
+     */
+    public long time(int i) {
+        return outTimes[i];
+    }
+
+    /**
+     * 第i个输出点在序列s上的值
+     */
+    public double value(int s, int i) {
+        return outValues[s][i];
+    }
+
+    /**
+     * 已输入点数
+     */
+    public long inputCount() {
+        return count;
+    }
+
+    /**
+     * 单个桶的点缓存(基本类型数组，容量不足时扩容)
+     */
+    private static final class Bucket {
+        private long[] times;
+        private double[][] values;
+        private int size;
+
+        private Bucket(int capacity, int series) {
+            times = new long[capacity];
+            values = new double[series][capacity];
+        }
+
+        private void add(long time, double[] v) {
+            if (size == times.length) {
+                // 实际点数超过预估时多出的点都进最后一个桶
+                int capacity = times.length * 2;
+                times = Arrays.copyOf(times, capacity);
+                for (int s = 0; s < values.length; s++) {
+                    values[s] = Arrays.copyOf(values[s], capacity);
+                }
+            }
+            times[size] = time;
+            for (int s = 0; s < values.length; s++) {
+                values[s][size] = v[s];
+            }
+            size++;
+        }
+
+        private void copyFrom(Bucket o) {
+            if (times.length < o.size) {
+                times = new long[o.times.length];
+                for (int s = 0; s < values.length; s++) {
+                    values[s] = new double[o.times.length];
+                }
+            }
+            System.arraycopy(o.times, 0, times, 0, o.size);
+            for (int s = 0; s < values.length; s++) {
+                System.arraycopy(o.values[s], 0, values[s], 0, o.size);
+            }
+            size = o.size;
+        }
+
+        private void clear() {
+            size = 0;
+        }
+
+        private double avgTime() {
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += times[i];
+            }
+            return sum / size;
+        }
+
+        private double[] avgValues() {
+            double[] avg = new double[values.length];
+            for (int s = 0; s < values.length; s++) {
+                double sum = 0;
+                for (int i = 0; i < size; i++) {
+                    sum += values[s][i];
+                }
+                avg[s] = sum / size;
+            }
+            return avg;
+        }
+    }
+}
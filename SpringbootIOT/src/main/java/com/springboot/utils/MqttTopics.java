@@ -0,0 +1,29 @@
+package com.springboot.utils;
+
+/**
+ * MQTT topic工具类
+ * topic格式: cam/{clientId}/xxx
+ * 入站分片和消息处理共用同一套解析，保证分片键和处理时识别的设备一致
+ */
+public class MqttTopics {
+    
+    /** 无法解析出clientId时使用的值 */
+    public static final String UNKNOWN_CLIENT = "unknown";
+    
+    private MqttTopics() {
+    }
+    
+    /**
+     * 从MQTT topic中提取clientId
+     * topic格式: cam/{clientId}/result 或 cam/{clientId}/status
+     */
+    public static String clientIdOf(String topic) {
+        if (topic != null) {
+            String[] parts = topic.split("/");
+            if (parts.length >= 2) {
+                return parts[1];
+            }
+        }
+        return UNKNOWN_CLIENT;
+    }
+}
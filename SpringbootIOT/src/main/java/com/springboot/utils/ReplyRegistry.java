@@ -0,0 +1,155 @@
+package com.springboot.utils;
+
+import com.springboot.pojo.vo.ReplyRegistryStatsResponse;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 请求/回执关联表
+ * 发出请求前按key注册Future，收到回执时按key完成，
+ * 条目保留到截止时间才移出表(回执先于调用方查询到达时调用方仍能拿到结果)，
+ * 截止时仍未回执的Future以TimeoutException结束
+ * 到期由传入的时间轮触发(多个关联表可共用一个时间轮线程)，等待方取消Future时条目立即移除并取消定时，表中不会残留
+ * @param <K> 关联键(如cmdId)
+ * @param <V> 回执类型
+ */
+public class ReplyRegistry<K, V> {
+
+    private final String name;
+    private final TimerWheel timer;
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> pending = new ConcurrentHashMap<>();
+
+    /** 已注册数 */
+    private final AtomicLong registered = new AtomicLong();
+    /** 收到回执数 */
+    private final AtomicLong completed = new AtomicLong();
+    /** 超时数 */
+    private final AtomicLong expired = new AtomicLong();
+    /** 被等待方取消数 */
+    private final AtomicLong cancelled = new AtomicLong();
+    /** 仍在等待(未完成)的数量 */
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    /**
+     * @param name 名称(统计用)
+     * @param timer 截止时间定时器(由调用方负责停止)
+     */
+    public ReplyRegistry(String name, TimerWheel timer) {
+        this.name = name;
+        this.timer = timer;
+    }
+
+    /**
+     * 注册等待回执
+     * @param key 关联键
+     * @param timeoutMs 截止时间(ms)
+     * @return 回执Future
+     */
+    public CompletableFuture<V> register(K key, long timeoutMs) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> previous = pending.put(key, future);
+        if (previous != null) {
+            // 同一个key被复用，旧的等待者不可能再收到回执
+            previous.cancel(false);
+        }
+        registered.incrementAndGet();
+        waiting.incrementAndGet();
+        TimerWheel.Timeout timeout = timer.newTimeout(() -> {
+            pending.remove(key, future);
+            if (future.completeExceptionally(new TimeoutException("等待回执超时: " + key))) {
+                expired.incrementAndGet();
+            }
+        }, timeoutMs);
+        future.whenComplete((v, e) -> {
+            waiting.decrementAndGet();
+            if (e instanceof CancellationException) {
+                cancelled.incrementAndGet();
+                pending.remove(key, future);
+                timeout.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 在较短的时间内等待已注册的回执(不阻塞线程)
+     * 返回的是独立的Future: 到期以TimeoutException结束，取消它不影响关联表中的条目和其他等待方
+     * @param key 关联键
+     * @param timeoutMs 最长等待时间(ms)
+     * @return 未注册或已过截止时间返回null
+     */
+    public CompletableFuture<V> await(K key, long timeoutMs) {
+        CompletableFuture<V> future = pending.get(key);
+        if (future == null) {
+            return null;
+        }
+        CompletableFuture<V> waiter = new CompletableFuture<>();
+        TimerWheel.Timeout timeout = timer.newTimeout(
+                () -> waiter.completeExceptionally(new TimeoutException("等待回执超时: " + key)), timeoutMs);
+        future.whenComplete((v, e) -> {
+            timeout.cancel();
+            if (e != null) {
+                waiter.completeExceptionally(e);
+            } else {
+                waiter.complete(v);
+            }
+        });
+        return waiter;
+    }
+
+    /**
+     * 回执到达，完成对应的Future
+     * @return 是否完成了一个等待中的Future
+     */
+    public boolean complete(K key, V value) {
+        CompletableFuture<V> future = pending.get(key);
+        if (future == null || !future.complete(value)) {
+            return false;
+        }
+        completed.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 获取已注册的回执Future(截止时间内即使已回执也能取到)
+     * @return 未注册或已过截止时间返回null
+     */
+    public CompletableFuture<V> get(K key) {
+        return pending.get(key);
+    }
+
+    /**
+     * 当前跟踪中的数量(含截止前已回执的)
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * 当前仍在等待回执的数量
+     */
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public ReplyRegistryStatsResponse getStats() {
+        return ReplyRegistryStatsResponse.builder()
+                .name(name)
+                .waiting(waiting.get())
+                .tracked(pending.size())
+                .registered(registered.get())
+                .completed(completed.get())
+                .expired(expired.get())
+                .cancelled(cancelled.get())
+                .build();
+    }
+}
@@ -0,0 +1,152 @@
+package com.springboot.utils;
+
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * 单设备遥测环形缓冲区(多条序列共用时间轴，如温度/湿度、信号/内存)
+ * 时间戳和读数都存在基本类型数组里，不装箱、不随采样产生对象，受自身锁保护；
+ * 本类只管时间轴、写入位置和补齐，读数列的类型由子类决定(DoubleTelemetryRing/IntTelemetryRing)
+ * 首次被查询时可用库中历史补齐一次(seed)，之后只靠实时采样滚动
+ */
+public abstract class TelemetryRing {
+
+    protected final long[] times;
+    /** 读数列(基本类型数组)，补齐时与时间轴一起重排 */
+    private final Object[] columns;
+    /** 下一个写入位置 */
+    private int next;
+    private int size;
+    /** 是否已用库中历史补齐 */
+    private volatile boolean seeded;
+
+    /**
+     * @param capacity 保留的采样点数
+     * @param columns 子类的读数列，长度均为capacity
+     */
+    protected TelemetryRing(int capacity, Object... columns) {
+        this.times = new long[capacity];
+        this.columns = columns;
+    }
+
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    public int capacity() {
+        return times.length;
+    }
+
+    /**
+     * 追加一个时间点(覆盖最旧的点)，子类在返回的下标写入读数(调用方持有锁)
+     * @return 写入位置
+     */
+    protected int append(long time) {
+        int slot = next;
+        times[slot] = time;
+        next = (next + 1) % times.length;
+        if (size < times.length) {
+            size++;
+        }
+        return slot;
+    }
+
+    /**
+     * 把库中比缓冲区最早点更早的历史补到前面(只补一次)
+     * 库里的时间只精确到秒(四舍五入)，早于缓冲区最早点1秒以上的才算缓冲区之前的数据
+     * @param history 库中最近的数据(时间正序)
+     * @param values 把一行的读数写到指定下标
+     */
+    protected synchronized <T> void seed(List<T> history, ToLongFunction<T> time, ObjIntConsumer<T> values) {
+        if (seeded) {
+            return;
+        }
+        seeded = true;
+        long oldest = size == 0 ? Long.MAX_VALUE : times[slot(size, 0)];
+        int olderCount = 0;
+        for (T row : history) {
+            if (time.applyAsLong(row) + 1000 <= oldest) {
+                olderCount++;
+            }
+        }
+        int keepOlder = Math.min(olderCount, times.length - size);
+        if (keepOlder == 0) {
+            return;
+        }
+        // 按时间正序重排: 现有采样挪到keepOlder之后，库中历史补在前面
+        int first = slot(size, 0);
+        moveToFront(times, first, keepOlder);
+        for (Object column : columns) {
+            moveToFront(column, first, keepOlder);
+        }
+        int pos = 0;
+        int skip = olderCount - keepOlder;
+        for (T row : history) {
+            long rowTime = time.applyAsLong(row);
+            if (rowTime + 1000 > oldest) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            times[pos] = rowTime;
+            values.accept(row, pos);
+            pos++;
+        }
+        size += keepOlder;
+        next = size % times.length;
+    }
+
+    /**
+     * 把从first开始的size个点按时间顺序搬到[offset, offset + size)
+     */
+    private void moveToFront(Object column, int first, int offset) {
+        Object copy = copyOf(column);
+        int head = Math.min(size, times.length - first);
+        System.arraycopy(copy, first, column, offset, head);
+        System.arraycopy(copy, 0, column, offset + head, size - head);
+    }
+
+    private static Object copyOf(Object column) {
+        if (column instanceof long[] array) {
+            return array.clone();
+        }
+        if (column instanceof double[] array) {
+            return array.clone();
+        }
+        return ((int[]) column).clone();
+    }
+
+    /**
+     * 按时间正序遍历最近limit个点的下标
+     * @return 缓冲区容量不足以覆盖limit时不遍历并返回false(调用方应查库)
+     */
+    protected synchronized boolean forEachLatestSlot(int limit, IntConsumer consumer) {
+        if (limit > times.length) {
+            return false;
+        }
+        int n = Math.min(limit, size);
+        for (int i = 0; i < n; i++) {
+            consumer.accept(slot(n, i));
+        }
+        return true;
+    }
+
+    /**
+     * 最新一个点的下标
+     * @return 缓冲区为空返回-1
+     */
+    protected synchronized int latestSlot() {
+        return size == 0 ? -1 : (next - 1 + times.length) % times.length;
+    }
+
+    /**
+     * 最近n个点中第i个(时间正序)所在的数组下标
+     */
+    private int slot(int n, int i) {
+        return (next - n + i + times.length) % times.length;
+    }
+}
@@ -0,0 +1,176 @@
+package com.springboot.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 时间轮定时器
+ * 单个工作线程按tick推进，定时任务按到期tick散列到环形桶中，
+ * 新增/取消都是O(1)，不论挂了多少定时任务都只占一个线程
+ * 到期任务在工作线程中执行，应保持轻量
+ */
+@Slf4j
+public class TimerWheel {
+
+    private static final int ST_INIT = 0;
+    private static final int ST_EXPIRED = 1;
+    private static final int ST_CANCELLED = 2;
+
+    private final String name;
+    private final long tickNanos;
+    private final int mask;
+    private final List<List<Timeout>> wheel;
+
+    /** 新增的定时任务，由工作线程在每个tick转移到桶中 */
+    private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+    /** 未到期且未取消的任务数 */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final Thread worker;
+    private final long startTime;
+    private volatile boolean running = true;
+    private long tick;
+
+    /**
+     * @param name 名称(线程名)
+     * @param tickMs 每个tick的时长(ms)，即定时精度
+     * @param wheelSize 桶数量，会向上取整到2的幂
+     */
+    public TimerWheel(String name, long tickMs, int wheelSize) {
+        this.name = name;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.mask = size - 1;
+        this.wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::run, "timer-wheel-" + name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 注册定时任务
+     * @param task 到期后执行的任务
+     * @param delayMs 延迟(ms)
+     * @return 可用于取消的句柄
+     */
+    public Timeout newTimeout(Runnable task, long delayMs) {
+        Timeout timeout = new Timeout(task, System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(delayMs));
+        pending.incrementAndGet();
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * 未到期的定时任务数
+     */
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * 停止工作线程，未到期的任务不再执行
+     */
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long sleepNanos = startTime + (tick + 1) * tickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                }
+                continue;
+            }
+            transferNewTimeouts();
+            expireBucket(wheel.get((int) (tick & mask)));
+            tick++;
+        }
+    }
+
+    private void transferNewTimeouts() {
+        Timeout timeout;
+        while ((timeout = newTimeouts.poll()) != null) {
+            if (timeout.state.get() != ST_INIT) {
+                continue;
+            }
+            long expireTick = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (expireTick - tick) / wheel.size();
+            // 已经过期的放到当前桶，本tick立即执行
+            long targetTick = Math.max(expireTick, tick);
+            wheel.get((int) (targetTick & mask)).add(timeout);
+        }
+    }
+
+    private void expireBucket(List<Timeout> bucket) {
+        Iterator<Timeout> it = bucket.iterator();
+        while (it.hasNext()) {
+            Timeout timeout = it.next();
+            if (timeout.state.get() == ST_CANCELLED) {
+                it.remove();
+            } else if (timeout.remainingRounds <= 0) {
+                it.remove();
+                timeout.expire();
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+
+    /**
+     * 定时任务句柄
+     */
+    public class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+        /** 还需转几圈才到期(仅工作线程访问) */
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * 取消定时任务
+         * @return 是否取消成功(已到期或已取消返回false)
+         */
+        public boolean cancel() {
+            if (state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+                pending.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            pending.decrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.error("时间轮[{}]任务执行异常: {}", name, e.getMessage(), e);
+            }
+        }
+    }
+}
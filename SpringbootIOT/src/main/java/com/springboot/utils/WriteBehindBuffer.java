@@ -0,0 +1,280 @@
+package com.springboot.utils;
+
+import com.springboot.pojo.vo.WriteBufferStatsResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 批量异步写缓冲区(write-behind)
+ * 调用方只负责入队，攒够batchSize条或每隔flushIntervalMs由后台线程批量写库
+ * 关闭时会把剩余数据全部写完，关闭后再添加的数据直接丢弃并计入droppedRows
+ * 写库失败时按FailurePolicy处理: DROP直接丢弃该批, PARK暂存该批并在下轮优先重试
+ * @param <T> 行数据类型
+ */
+@Slf4j
+public class WriteBehindBuffer<T> {
+
+    /**
+     * 写库失败处理策略
+     */
+    public enum FailurePolicy {
+        /** 丢弃失败批次 */
+        DROP,
+        /** 暂存失败批次，下次写库时优先重试(数据库恢复前新数据也转入暂存，不再尝试写入) */
+        PARK
+    }
+
+    private final String name;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final Consumer<List<T>> writer;
+    private final FailurePolicy failurePolicy;
+    private final int parkCapacity;
+
+    private final LinkedBlockingQueue<T> queue;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    /** 是否已关闭 */
+    private volatile boolean closed;
+
+    /** 写库失败暂存的批次(仅PARK策略，受flush锁保护) */
+    private final Deque<List<T>> parked = new ArrayDeque<>();
+    private volatile int parkedRows;
+
+    /** 已写入行数 */
+    private final AtomicLong flushedRows = new AtomicLong();
+    /** 写库批次数 */
+    private final AtomicLong flushCount = new AtomicLong();
+    /** 写库失败(或暂存溢出)丢失的行数 */
+    private final AtomicLong failedRows = new AtomicLong();
+    /** 缓冲区满被丢弃的行数 */
+    private final AtomicLong droppedRows = new AtomicLong();
+    /** 累计写库耗时(ms) */
+    private final AtomicLong totalFlushMs = new AtomicLong();
+    private volatile long lastFlushMs;
+    private volatile long maxFlushMs;
+
+    /**
+     * @param name 缓冲区名称(日志和线程名)
+     * @param batchSize 单批最大行数，积压达到该值立即触发写库
+     * @param flushIntervalMs 定时写库间隔(ms)
+     * @param capacity 缓冲区最大容量，满了丢弃新数据
+     * @param writer 批量写库回调
+     */
+    public WriteBehindBuffer(String name, int batchSize, long flushIntervalMs, int capacity,
+                             Consumer<List<T>> writer) {
+        this(name, batchSize, flushIntervalMs, capacity, writer, FailurePolicy.DROP, 0);
+    }
+
+    /**
+     * @param name 缓冲区名称(日志和线程名)
+     * @param batchSize 单批最大行数，积压达到该值立即触发写库
+     * @param flushIntervalMs 定时写库间隔(ms)
+     * @param capacity 缓冲区最大容量，满了丢弃新数据
+     * @param writer 批量写库回调
+     * @param failurePolicy 写库失败处理策略
+     * @param parkCapacity PARK策略下最多暂存的行数，超出丢弃最早的批次
+     */
+    public WriteBehindBuffer(String name, int batchSize, long flushIntervalMs, int capacity,
+                             Consumer<List<T>> writer, FailurePolicy failurePolicy, int parkCapacity) {
+        this.name = name;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.writer = writer;
+        this.failurePolicy = failurePolicy;
+        this.parkCapacity = parkCapacity;
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "write-behind-" + name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 启动定时写库
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("写缓冲区[{}]启动: batchSize={}, flushIntervalMs={}, failurePolicy={}",
+                name, batchSize, flushIntervalMs, failurePolicy);
+    }
+
+    /**
+     * 添加一行数据
+     */
+    public void add(T item) {
+        if (closed) {
+            droppedRows.incrementAndGet();
+            log.warn("写缓冲区[{}]已关闭，丢弃数据", name);
+            return;
+        }
+        if (!queue.offer(item)) {
+            droppedRows.incrementAndGet();
+            log.warn("写缓冲区[{}]已满，丢弃数据", name);
+            return;
+        }
+        if (closed && queue.remove(item)) {
+            // 与关闭并发: 最后一次写库可能已经结束
+            droppedRows.incrementAndGet();
+            return;
+        }
+        // 积压达到一批，提前触发写库(同一时刻只排一个任务)
+        if (queue.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(() -> {
+                    flushRequested.set(false);
+                    flushSafely();
+                });
+            } catch (Exception e) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * 停止定时任务并写完剩余数据
+     */
+    public void shutdown() {
+        closed = true;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        // 数据库不可用时剩下的暂存批次，以及与关闭并发、在最后一次写库之后才入队的行
+        // 用drainTo取出剩余行: 与add中的queue.remove互斥，每行只会计入failedRows或droppedRows之一
+        synchronized (this) {
+            List<T> rest = new ArrayList<>();
+            queue.drainTo(rest);
+            int lost = parkedRows + rest.size();
+            if (lost > 0) {
+                failedRows.addAndGet(lost);
+                parked.clear();
+                parkedRows = 0;
+                log.warn("写缓冲区[{}]关闭时未能写入, 丢失 {} 行", name, lost);
+            }
+        }
+        log.info("写缓冲区[{}]已关闭, 累计写入 {} 行", name, flushedRows.get());
+    }
+
+    /**
+     * 把当前积压全部按批写入
+     */
+    public synchronized void flush() {
+        // 先按顺序重试暂存的批次，仍失败说明数据库未恢复，本轮不再尝试写新数据
+        while (!parked.isEmpty()) {
+            List<T> batch = parked.peekFirst();
+            if (!writeBatch(batch)) {
+                parkQueued();
+                return;
+            }
+            parked.pollFirst();
+            parkedRows -= batch.size();
+        }
+
+        List<T> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            if (!writeBatch(batch)) {
+                if (failurePolicy == FailurePolicy.PARK) {
+                    park(batch);
+                    parkQueued();
+                    return;
+                }
+                failedRows.addAndGet(batch.size());
+                log.error("写缓冲区[{}]批量写入失败, 丢弃 {} 行", name, batch.size());
+            }
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    /**
+     * 数据库不可用期间把积压按批转入暂存，缓冲区不会因此写满而丢弃最新的数据
+     */
+    private void parkQueued() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            park(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    /**
+     * 暂存失败批次，超过暂存上限时丢弃最早的批次
+     */
+    private void park(List<T> batch) {
+        parked.addLast(batch);
+        parkedRows += batch.size();
+        while (parkedRows > parkCapacity && parked.size() > 1) {
+            List<T> oldest = parked.pollFirst();
+            parkedRows -= oldest.size();
+            failedRows.addAndGet(oldest.size());
+            log.warn("写缓冲区[{}]暂存已满, 丢弃最早的 {} 行", name, oldest.size());
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Throwable e) {
+            // 定时任务抛异常会被取消，这里兜底
+            log.error("写缓冲区[{}]写库异常: {}", name, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 写入一批数据
+     * @return 是否写入成功
+     */
+    private boolean writeBatch(List<T> batch) {
+        long start = System.nanoTime();
+        try {
+            writer.accept(batch);
+            flushedRows.addAndGet(batch.size());
+            return true;
+        } catch (Exception e) {
+            log.error("写缓冲区[{}]批量写入失败({} 行): {}", name, batch.size(), e.getMessage());
+            return false;
+        } finally {
+            long cost = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            flushCount.incrementAndGet();
+            totalFlushMs.addAndGet(cost);
+            lastFlushMs = cost;
+            if (cost > maxFlushMs) {
+                maxFlushMs = cost;
+            }
+        }
+    }
+
+    /**
+     * 获取缓冲区统计信息
+     */
+    public WriteBufferStatsResponse getStats() {
+        long count = flushCount.get();
+        return WriteBufferStatsResponse.builder()
+                .name(name)
+                .backlog(queue.size())
+                .parkedRows(parkedRows)
+                .flushedRows(flushedRows.get())
+                .flushCount(count)
+                .failedRows(failedRows.get())
+                .droppedRows(droppedRows.get())
+                .lastFlushMs(lastFlushMs)
+                .maxFlushMs(maxFlushMs)
+                .avgFlushMs(count == 0 ? 0 : totalFlushMs.get() / count)
+                .build();
+    }
+}
@@ -0,0 +1,212 @@
+package com.springboot.mapper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * 温湿度"最近N条"查询索引基准(需要本地MySQL)
+ * 在同一份多设备数据上对比:
+ *   旧: idx_client_id + idx_create_time 分开建，面板先查最新1条再查最近N条(两次往返)
+ *   新: (client_id, create_time, temperature, humidity) 联合索引，一次查询同时得到最新值和图表数据
+ * 另外对比一天区间的行数/值域统计(LTTB降采样的第一步)
+ * 运行: mvn test -Dtest=ClientTimeIndexBenchmarkTest -Dbenchmark=true [-Dbenchmark.rows=3000000]
+ *      连接参数 -Dbenchmark.jdbc-url / -Dbenchmark.username / -Dbenchmark.password，
+ *      默认连本机的独立库iot_bench(不存在则创建)，不碰应用的iot库
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ClientTimeIndexBenchmarkTest {
+
+    private static final String URL = System.getProperty("benchmark.jdbc-url",
+            "jdbc:mysql://127.0.0.1:3306/iot_bench?useSSL=false&serverTimezone=Asia/Shanghai"
+                    + "&rewriteBatchedStatements=true&createDatabaseIfNotExist=true");
+    private static final String USERNAME = System.getProperty("benchmark.username", "root");
+    private static final String PASSWORD = System.getProperty("benchmark.password", "123456");
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 3_000_000);
+    private static final int DEVICES = 20;
+    private static final int CHART_LIMIT = 30;
+    private static final int QUERIES = 2000;
+    /** 采样间隔(ms) */
+    private static final long INTERVAL_MS = 2000;
+
+    private static final String OLD_TABLE = "bench_dht_separate";
+    private static final String NEW_TABLE = "bench_dht_client_time";
+
+    @Test
+    void compositeIndexAndSingleQuery() throws Exception {
+        try (Connection conn = DriverManager.getConnection(URL, USERNAME, PASSWORD)) {
+            try {
+                createTables(conn);
+                load(conn);
+
+                System.out.println("EXPLAIN 旧: " + explain(conn, OLD_TABLE));
+                System.out.println("EXPLAIN 新: " + explain(conn, NEW_TABLE));
+
+                // 预热
+                latestTwoQueries(conn, OLD_TABLE, QUERIES / 10);
+                latestOneQuery(conn, NEW_TABLE, QUERIES / 10);
+
+                long twoQueries = latestTwoQueries(conn, OLD_TABLE, QUERIES);
+                long oneQueryOldIndex = latestOneQuery(conn, OLD_TABLE, QUERIES);
+                long oneQueryNewIndex = latestOneQuery(conn, NEW_TABLE, QUERIES);
+                System.out.printf("rows=%,d devices=%d limit=%d%n", ROWS, DEVICES, CHART_LIMIT);
+                System.out.printf("面板(旧索引, 两次查询): %,8d µs/次%n", twoQueries);
+                System.out.printf("面板(旧索引, 一次查询): %,8d µs/次%n", oneQueryOldIndex);
+                System.out.printf("面板(联合索引, 一次查询): %,6d µs/次  (%.1fx)%n",
+                        oneQueryNewIndex, (double) twoQueries / Math.max(1, oneQueryNewIndex));
+
+                long statsOld = dayStats(conn, OLD_TABLE, QUERIES / 20);
+                long statsNew = dayStats(conn, NEW_TABLE, QUERIES / 20);
+                System.out.printf("一天区间统计(旧索引): %,8d µs/次%n", statsOld);
+                System.out.printf("一天区间统计(联合索引): %,6d µs/次  (%.1fx)%n",
+                        statsNew, (double) statsOld / Math.max(1, statsNew));
+            } finally {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("DROP TABLE IF EXISTS " + OLD_TABLE);
+                    st.execute("DROP TABLE IF EXISTS " + NEW_TABLE);
+                }
+            }
+        }
+    }
+
+    private void createTables(Connection conn) throws SQLException {
+        String columns = "id BIGINT PRIMARY KEY AUTO_INCREMENT, client_id VARCHAR(64) NOT NULL, "
+                + "temperature DECIMAL(5,2) NOT NULL, humidity DECIMAL(5,2) NOT NULL, "
+                + "light_dark TINYINT(1) DEFAULT NULL, create_time DATETIME NOT NULL, ";
+        try (Statement st = conn.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + OLD_TABLE);
+            st.execute("DROP TABLE IF EXISTS " + NEW_TABLE);
+            st.execute("CREATE TABLE " + OLD_TABLE + " (" + columns
+                    + "INDEX idx_client_id (client_id), INDEX idx_create_time (create_time)) ENGINE=InnoDB");
+            st.execute("CREATE TABLE " + NEW_TABLE + " (" + columns
+                    + "INDEX idx_client_time (client_id, create_time, temperature, humidity), "
+                    + "INDEX idx_create_time (create_time)) ENGINE=InnoDB");
+        }
+    }
+
+    /**
+     * 按时间顺序交错写入各设备的数据(与实际入库顺序一致)，再复制到新表
+     */
+    private void load(Connection conn) throws SQLException {
+        long start = System.nanoTime();
+        Random random = new Random(1);
+        long firstMs = System.currentTimeMillis() - (long) (ROWS / DEVICES) * INTERVAL_MS;
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO " + OLD_TABLE
+                + " (client_id, temperature, humidity, light_dark, create_time) VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                int device = i % DEVICES;
+                long time = firstMs + (long) (i / DEVICES) * INTERVAL_MS;
+                ps.setString(1, clientId(device));
+                ps.setDouble(2, 20 + random.nextGaussian() * 3);
+                ps.setDouble(3, 60 + random.nextGaussian() * 10);
+                ps.setBoolean(4, random.nextBoolean());
+                ps.setTimestamp(5, new Timestamp(time));
+                ps.addBatch();
+                if ((i + 1) % 5000 == 0) {
+                    ps.executeBatch();
+                    conn.commit();
+                }
+            }
+            ps.executeBatch();
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        try (Statement st = conn.createStatement()) {
+            st.execute("INSERT INTO " + NEW_TABLE + " SELECT * FROM " + OLD_TABLE);
+            st.execute("ANALYZE TABLE " + OLD_TABLE + ", " + NEW_TABLE);
+        }
+        System.out.printf("写入 %,d 行耗时 %,d ms%n", ROWS, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 旧面板查询: 最新1条 + 最近N条
+     * @return 平均耗时(µs)
+     */
+    private long latestTwoQueries(Connection conn, String table, int queries) throws SQLException {
+        Random random = new Random(2);
+        String sql = "SELECT * FROM " + table + " WHERE client_id = ? ORDER BY create_time DESC LIMIT ?";
+        long start = System.nanoTime();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int q = 0; q < queries; q++) {
+                String clientId = clientId(random.nextInt(DEVICES));
+                drain(ps, clientId, 1);
+                drain(ps, clientId, CHART_LIMIT);
+            }
+        }
+        return (System.nanoTime() - start) / 1000 / queries;
+    }
+
+    /**
+     * 新面板查询: 最近N条(最新值即最后一个点)
+     * @return 平均耗时(µs)
+     */
+    private long latestOneQuery(Connection conn, String table, int queries) throws SQLException {
+        Random random = new Random(2);
+        String sql = "SELECT * FROM " + table + " WHERE client_id = ? ORDER BY create_time DESC LIMIT ?";
+        long start = System.nanoTime();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int q = 0; q < queries; q++) {
+                drain(ps, clientId(random.nextInt(DEVICES)), CHART_LIMIT);
+            }
+        }
+        return (System.nanoTime() - start) / 1000 / queries;
+    }
+
+    /**
+     * 最近一天的行数和值域统计
+     * @return 平均耗时(µs)
+     */
+    private long dayStats(Connection conn, String table, int queries) throws SQLException {
+        Random random = new Random(3);
+        String sql = "SELECT COUNT(*), MIN(temperature), MAX(temperature), MIN(humidity), MAX(humidity) FROM "
+                + table + " WHERE client_id = ? AND create_time >= ? AND create_time < ?";
+        LocalDateTime to = LocalDateTime.now();
+        long start = System.nanoTime();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int q = 0; q < queries; q++) {
+                ps.setString(1, clientId(random.nextInt(DEVICES)));
+                ps.setTimestamp(2, Timestamp.valueOf(to.minusDays(1)));
+                ps.setTimestamp(3, Timestamp.valueOf(to));
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                }
+            }
+        }
+        return (System.nanoTime() - start) / 1000 / queries;
+    }
+
+    private String explain(Connection conn, String table) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("EXPLAIN SELECT * FROM " + table
+                     + " WHERE client_id = 'bench-00' ORDER BY create_time DESC LIMIT " + CHART_LIMIT)) {
+            rs.next();
+            return "key=" + rs.getString("key") + ", rows=" + rs.getString("rows") + ", Extra=" + rs.getString("Extra");
+        }
+    }
+
+    private static void drain(PreparedStatement ps, String clientId, int limit) throws SQLException {
+        ps.setString(1, clientId);
+        ps.setInt(2, limit);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                rs.getDouble("temperature");
+            }
+        }
+    }
+
+    private static String clientId(int device) {
+        return String.format("bench-%02d", device);
+    }
+}
@@ -0,0 +1,94 @@
+package com.springboot.service.Impl;
+
+import com.springboot.mapper.AutomationConfigMapper;
+import com.springboot.pojo.AutomationConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 自动化配置缓存测试
+ * 覆盖保存后立即读到新配置，以及保存前开始的查库不会把旧行写回缓存
+ */
+class AutomationConfigServiceImplTest {
+
+    private static final String CLIENT_ID = "esp32-cam-01";
+
+    @Test
+    void saveRefreshesCacheWithoutExtraRead() {
+        AtomicReference<AutomationConfig> row = new AtomicReference<>(config(1L, 30));
+        AutomationConfigMapper mapper = mapperOver(row, null, null);
+        AutomationConfigServiceImpl service = newService(mapper);
+
+        assertEquals(30, service.getConfig(CLIENT_ID).getTempHigh());
+        service.saveConfig(config(null, 35));
+
+        assertEquals(35, service.getConfig(CLIENT_ID).getTempHigh());
+        // 首次读取1次 + 保存时查已有配置1次 + 刷新缓存1次，之后的读取走缓存
+        verify(mapper, times(3)).selectOne(any());
+    }
+
+    @Test
+    void staleLoadDoesNotOverwriteSavedConfig() throws Exception {
+        AtomicReference<AutomationConfig> row = new AtomicReference<>(config(1L, 30));
+        CountDownLatch loaded = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AutomationConfigServiceImpl service = newService(mapperOver(row, loaded, release));
+
+        // 读线程先查到旧行，在写缓存前被挂起
+        CompletableFuture<AutomationConfig> reading = CompletableFuture.supplyAsync(() -> service.getConfig(CLIENT_ID));
+        assertTrue(loaded.await(5, TimeUnit.SECONDS));
+        service.saveConfig(config(null, 35));
+        release.countDown();
+
+        assertEquals(35, reading.get(5, TimeUnit.SECONDS).getTempHigh());
+        assertEquals(35, service.getConfig(CLIENT_ID).getTempHigh());
+    }
+
+    private static AutomationConfigServiceImpl newService(AutomationConfigMapper mapper) {
+        AutomationConfigServiceImpl service = new AutomationConfigServiceImpl();
+        ReflectionTestUtils.setField(service, "configMapper", mapper);
+        ReflectionTestUtils.setField(service, "configCacheTtlMs", 60_000L);
+        return service;
+    }
+
+    /**
+     * 以row为库中唯一一行的配置表桩；loaded/release不为空时第一次查询读到行后挂起
+     */
+    private static AutomationConfigMapper mapperOver(AtomicReference<AutomationConfig> row,
+                                                     CountDownLatch loaded, CountDownLatch release) {
+        AutomationConfigMapper mapper = mock(AutomationConfigMapper.class);
+        AtomicBoolean first = new AtomicBoolean(loaded != null);
+        when(mapper.selectOne(any())).thenAnswer(invocation -> {
+            AutomationConfig snapshot = row.get();
+            if (first.compareAndSet(true, false)) {
+                loaded.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return snapshot;
+        });
+        when(mapper.updateById(any(AutomationConfig.class))).thenAnswer(invocation -> {
+            row.set(invocation.getArgument(0));
+            return 1;
+        });
+        return mapper;
+    }
+
+    private static AutomationConfig config(Long id, int tempHigh) {
+        AutomationConfig config = new AutomationConfig();
+        config.setId(id);
+        config.setClientId(CLIENT_ID);
+        config.setEnabled(true);
+        config.setTempHigh(tempHigh);
+        return config;
+    }
+}
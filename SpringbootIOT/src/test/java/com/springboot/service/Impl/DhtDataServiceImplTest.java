@@ -0,0 +1,99 @@
+package com.springboot.service.Impl;
+
+import com.springboot.mapper.DhtDataMapper;
+import com.springboot.pojo.DhtData;
+import com.springboot.pojo.vo.DhtDashboardResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 温湿度面板测试
+ * 覆盖环形缓冲区只在首次访问时查库、缓冲区关闭时每次一次查询，以及chartLimit为0时仍给出最新值
+ */
+class DhtDataServiceImplTest {
+
+    private static final String CLIENT_ID = "esp32-cam-01";
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 10, 17, 10, 0);
+
+    @Test
+    void ringQueriesDatabaseOnlyWhenSeeding() {
+        DhtDataMapper mapper = mapperWithRows(50);
+        DhtDataServiceImpl service = newService(mapper, 1800);
+
+        DhtDashboardResponse first = service.getDashboardData(CLIENT_ID, 30);
+        DhtDashboardResponse second = service.getDashboardData(CLIENT_ID, 30);
+
+        verify(mapper, times(1)).findLatestByClientId(eq(CLIENT_ID), anyInt());
+        assertEquals(30, second.getLabels().size());
+        assertEquals(first, second);
+        assertLatestIsNewestRow(second);
+    }
+
+    @Test
+    void disabledRingUsesOneQueryPerRequest() {
+        DhtDataMapper mapper = mapperWithRows(50);
+        DhtDataServiceImpl service = newService(mapper, 0);
+
+        DhtDashboardResponse data = service.getDashboardData(CLIENT_ID, 30);
+        service.getDashboardData(CLIENT_ID, 30);
+
+        verify(mapper, times(2)).findLatestByClientId(CLIENT_ID, 30);
+        assertEquals(30, data.getTemperatures().size());
+        assertEquals("10:01:38", data.getLabels().get(data.getLabels().size() - 1));
+        assertLatestIsNewestRow(data);
+    }
+
+    @Test
+    void zeroChartLimitStillReportsLatest() {
+        DhtDashboardResponse fromDatabase = newService(mapperWithRows(50), 0).getDashboardData(CLIENT_ID, 0);
+        DhtDashboardResponse fromRing = newService(mapperWithRows(50), 1800).getDashboardData(CLIENT_ID, 0);
+
+        for (DhtDashboardResponse data : List.of(fromDatabase, fromRing)) {
+            assertTrue(data.getLabels().isEmpty());
+            assertLatestIsNewestRow(data);
+        }
+    }
+
+    private static void assertLatestIsNewestRow(DhtDashboardResponse data) {
+        assertEquals(20.49, data.getTemperature());
+        assertEquals(60.49, data.getHumidity());
+        assertEquals("10:01:38", data.getUpdateTime());
+    }
+
+    private static DhtDataServiceImpl newService(DhtDataMapper mapper, int ringCapacity) {
+        DhtDataServiceImpl service = new DhtDataServiceImpl();
+        ReflectionTestUtils.setField(service, "dhtDataMapper", mapper);
+        ReflectionTestUtils.setField(service, "ringCapacity", ringCapacity);
+        return service;
+    }
+
+    /**
+     * 库中共count条、每2秒一条，按时间倒序返回最近limit条(与findLatestByClientId一致)
+     */
+    static DhtDataMapper mapperWithRows(int count) {
+        DhtDataMapper mapper = mock(DhtDataMapper.class);
+        when(mapper.findLatestByClientId(eq(CLIENT_ID), anyInt())).thenAnswer(invocation -> {
+            int limit = invocation.getArgument(1);
+            List<DhtData> rows = new ArrayList<>();
+            for (int i = count - 1; i >= 0 && rows.size() < limit; i--) {
+                DhtData data = new DhtData();
+                data.setClientId(CLIENT_ID);
+                data.setTemperature(20 + i / 100.0);
+                data.setHumidity(60 + i / 100.0);
+                data.setCreateTime(T0.plusSeconds(i * 2L));
+                rows.add(data);
+            }
+            return rows;
+        });
+        return mapper;
+    }
+}
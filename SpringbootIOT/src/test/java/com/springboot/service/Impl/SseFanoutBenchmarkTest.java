@@ -0,0 +1,121 @@
+package com.springboot.service.Impl;
+
+import com.springboot.pojo.vo.SseStatsResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SSE扇出端到端基准
+ * 通过SseServiceImpl.pushDhtData推送，经每个连接的发送队列和广播线程池，
+ * 由桩emitter的send接收并写出帧字节，测量1/100/1000个订阅者下单个事件扇出到全部连接的耗时
+ * 运行: mvn test -Dtest=SseFanoutBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SseFanoutBenchmarkTest {
+
+    private static final int[] SUBSCRIBERS = {1, 100, 1000};
+    private static final int WARMUP_EVENTS = 20_000;
+    private static final int MEASURE_EVENTS = 20_000;
+    private static final String CLIENT_ID = "esp32-cam-01";
+
+    @Test
+    void fanOutThroughService() throws Exception {
+        for (int subscribers : SUBSCRIBERS) {
+            int events = Math.max(50, MEASURE_EVENTS / subscribers);
+            run(subscribers, Math.max(50, WARMUP_EVENTS / subscribers));
+            long nanos = run(subscribers, events);
+            System.out.printf("subscribers=%4d  %,12d ns/event  %,8d ns/frame%n",
+                    subscribers, nanos, nanos / subscribers);
+        }
+    }
+
+    /**
+     * 新建服务、登记订阅者、推送events个事件并等待全部送达
+     * @return 单个事件扇出到全部订阅者的平均耗时(ns)
+     */
+    private long run(int subscribers, int events) throws Exception {
+        SseServiceImpl service = new SseServiceImpl();
+        ReflectionTestUtils.setField(service, "broadcastThreads", 2);
+        // 队列容量足够容纳全部事件，送达数可以精确断言
+        ReflectionTestUtils.setField(service, "emitterQueueCapacity", events + 1);
+        service.init();
+        try {
+            List<CountingEmitter> emitters = new ArrayList<>(subscribers);
+            for (int i = 0; i < subscribers; i++) {
+                CountingEmitter emitter = new CountingEmitter();
+                emitters.add(emitter);
+                // 一半订阅该设备，一半订阅全部设备
+                service.register(i % 2 == 0 ? CLIENT_ID : "all", emitter);
+            }
+            // 连接成功消息送达后再开始计时
+            awaitFrames(emitters, 1);
+
+            long start = System.nanoTime();
+            for (int e = 0; e < events; e++) {
+                service.pushDhtData(CLIENT_ID, 21.5, 60.0 + e % 10, e % 2 == 0);
+            }
+            awaitFrames(emitters, 1 + events);
+            long elapsed = System.nanoTime() - start;
+
+            SseStatsResponse stats = service.getStats();
+            assertEquals(0, stats.getDroppedEvents());
+            assertEquals((long) subscribers * (1 + events), stats.getSentEvents());
+            for (CountingEmitter emitter : emitters) {
+                assertEquals(1 + events, emitter.frames.get());
+                String last = emitter.lastFrame.get();
+                assertTrue(last.startsWith("event:dht\n"), last);
+                assertTrue(last.contains("\"clientId\":\"" + CLIENT_ID + "\""), last);
+                assertTrue(last.contains("\"temperature\":21.5"), last);
+            }
+            return elapsed / events;
+        } finally {
+            service.destroy();
+        }
+    }
+
+    private static void awaitFrames(List<CountingEmitter> emitters, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        for (CountingEmitter emitter : emitters) {
+            while (emitter.frames.get() < expected) {
+                if (System.nanoTime() > deadline) {
+                    fail("60秒内未送达: 期望 " + expected + " 帧, 实际 " + emitter.frames.get());
+                }
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * 桩emitter: 把帧的各部分按写出时的方式转成字节，记录帧数和最后一帧内容
+     */
+    private static class CountingEmitter extends SseEmitter {
+        private final AtomicLong frames = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicReference<String> lastFrame = new AtomicReference<>("");
+
+        @Override
+        public synchronized void send(Set<DataWithMediaType> items) {
+            StringBuilder frame = new StringBuilder();
+            for (DataWithMediaType item : items) {
+                Object data = item.getData();
+                byte[] raw = data instanceof byte[] b ? b : data.toString().getBytes(StandardCharsets.UTF_8);
+                bytes.addAndGet(raw.length);
+                frame.append(new String(raw, StandardCharsets.UTF_8));
+            }
+            lastFrame.set(frame.toString());
+            frames.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.springboot.service.Impl;
+
+import com.springboot.mapper.TelemetryRollupMapper;
+import com.springboot.pojo.TelemetryRollup;
+import com.springboot.pojo.vo.TelemetryPointResponse;
+import com.springboot.pojo.vo.TelemetryRangeResponse;
+import com.springboot.service.Impl.TelemetryRollupServiceImpl.Agg;
+import com.springboot.service.Impl.TelemetryRollupServiceImpl.BucketKey;
+import com.springboot.service.Impl.TelemetryRollupServiceImpl.Resolution;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 遥测聚合测试
+ * 覆盖部分聚合合并、粒度选择，写库失败/提交结果未知/写库进行中时查询不漏算也不重复计入，
+ * 以及停止时写完最后一批再删除本实例的写库标记
+ */
+class TelemetryRollupServiceImplTest {
+
+    private static final String CLIENT_ID = "esp32-cam-01";
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 10, 17, 10, 0);
+
+    @Test
+    void mergeCombinesMinMaxSumAndCount() {
+        Agg first = new Agg();
+        first.addDht(20.0, 50.0);
+        first.addDht(22.0, 40.0);
+        first.addStatus(-60, 100 * 1024);
+        Agg second = new Agg();
+        second.addDht(19.0, 55.0);
+
+        TelemetryPointResponse point = first.merge(second).toPoint(T0);
+
+        assertEquals(19.0, point.getTemperatureMin());
+        assertEquals(22.0, point.getTemperatureMax());
+        assertEquals(20.33, point.getTemperatureAvg());
+        assertEquals(40.0, point.getHumidityMin());
+        assertEquals(55.0, point.getHumidityMax());
+        assertEquals(3, point.getDhtCount());
+        // 另一半没有状态采样，合并后不应改变状态序列
+        assertEquals(-60, point.getRssiMin());
+        assertEquals(-60, point.getRssiMax());
+        assertEquals(100, point.getFreeHeapMax());
+        assertEquals(1, point.getStatusCount());
+    }
+
+    @Test
+    void rollupRowRoundTripKeepsEmptySeriesEmpty() {
+        Agg agg = new Agg();
+        agg.addStatus(-70, 2048);
+        TelemetryRollup row = agg.toRollup(new BucketKey(CLIENT_ID, T0));
+
+        assertNull(row.getTempMin());
+        assertEquals(0, row.getTempCount());
+
+        TelemetryPointResponse point = Agg.of(row).merge(Agg.of(row)).toPoint(T0);
+        assertNull(point.getTemperatureAvg());
+        assertEquals(0, point.getDhtCount());
+        assertEquals(-70.0, point.getRssiAvg());
+        assertEquals(2, point.getFreeHeapMin());
+        assertEquals(2, point.getStatusCount());
+    }
+
+    @Test
+    void picksFinestResolutionWithinMaxPoints() {
+        assertEquals(Resolution.MINUTE, TelemetryRollupServiceImpl.pickResolution(T0, T0.plusMinutes(60), 60));
+        assertEquals(Resolution.HOUR, TelemetryRollupServiceImpl.pickResolution(T0, T0.plusMinutes(61), 60));
+        assertEquals(Resolution.HOUR, TelemetryRollupServiceImpl.pickResolution(T0, T0.plusDays(2), 48));
+        assertEquals(Resolution.DAY, TelemetryRollupServiceImpl.pickResolution(T0, T0.plusDays(3), 48));
+        // 日粒度也超过maxPoints时仍用日粒度
+        assertEquals(Resolution.DAY, TelemetryRollupServiceImpl.pickResolution(T0, T0.plusDays(365), 10));
+    }
+
+    @Test
+    void failureBeforeCommitIsRetried() {
+        FakeMapper mapper = new FakeMapper();
+        FakeTransactionTemplate tx = new FakeTransactionTemplate();
+        TelemetryRollupServiceImpl service = newService(mapper, tx);
+        service.recordDht(CLIENT_ID, T0.plusSeconds(5), 21.0, 60.0);
+
+        tx.failBeforeCommit = true;
+        flush(service);
+        assertEquals(1, dhtCount(service));
+
+        tx.failBeforeCommit = false;
+        flush(service);
+        assertEquals(1, dhtCount(service));
+        assertEquals(1, mapper.minuteRows().size());
+    }
+
+    @Test
+    void committedBatchIsNotMergedBackWhenCommitReportsFailure() {
+        FakeMapper mapper = new FakeMapper();
+        FakeTransactionTemplate tx = new FakeTransactionTemplate();
+        TelemetryRollupServiceImpl service = newService(mapper, tx);
+        service.recordDht(CLIENT_ID, T0.plusSeconds(5), 21.0, 60.0);
+
+        tx.failAfterCommit = true;
+        flush(service);
+        assertEquals(1, dhtCount(service));
+
+        // 下一轮不能再把同一批写一遍
+        tx.failAfterCommit = false;
+        service.recordDht(CLIENT_ID, T0.plusSeconds(10), 22.0, 61.0);
+        flush(service);
+        assertEquals(2, dhtCount(service));
+        assertEquals(2, mapper.minuteRows().size());
+    }
+
+    @Test
+    void unresolvedBatchStaysVisibleUntilConfirmed() {
+        FakeMapper mapper = new FakeMapper();
+        FakeTransactionTemplate tx = new FakeTransactionTemplate();
+        TelemetryRollupServiceImpl service = newService(mapper, tx);
+        service.recordDht(CLIENT_ID, T0.plusSeconds(5), 21.0, 60.0);
+
+        // 写库和标记查询都失败，这一批是否提交未知
+        tx.failBeforeCommit = true;
+        mapper.failFlushSeqQuery = true;
+        flush(service);
+        assertEquals(1, dhtCount(service));
+
+        tx.failBeforeCommit = false;
+        mapper.failFlushSeqQuery = false;
+        flush(service);
+        assertEquals(1, dhtCount(service));
+        assertEquals(1, mapper.minuteRows().size());
+    }
+
+    @Test
+    void rangeDuringFlushCountsBatchOnce() throws Exception {
+        FakeMapper mapper = new FakeMapper();
+        mapper.blockUpsert = new CountDownLatch(1);
+        mapper.upsertEntered = new CountDownLatch(1);
+        TelemetryRollupServiceImpl service = newService(mapper, new FakeTransactionTemplate());
+        service.recordDht(CLIENT_ID, T0.plusSeconds(5), 21.0, 60.0);
+
+        CompletableFuture<Void> flushing = CompletableFuture.runAsync(() -> flush(service));
+        assertTrue(mapper.upsertEntered.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Integer> count = CompletableFuture.supplyAsync(() -> dhtCount(service));
+        // 写库未完成前查询等待，而不是返回漏掉这一批的结果
+        Thread.sleep(100);
+        assertFalse(count.isDone());
+
+        mapper.blockUpsert.countDown();
+        flushing.get(5, TimeUnit.SECONDS);
+        assertEquals(1, count.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void destroyFlushesThenDeletesFlushMark() {
+        FakeMapper mapper = new FakeMapper();
+        TelemetryRollupServiceImpl service = newService(mapper, new FakeTransactionTemplate());
+        ReflectionTestUtils.setField(service, "flushIntervalMs", 60_000L);
+        service.init();
+        service.recordDht(CLIENT_ID, T0.plusSeconds(5), 21.0, 60.0);
+
+        service.destroy();
+
+        assertEquals(1, mapper.minuteRows().size());
+        assertEquals(1L, mapper.deletedFlushSeq);
+        assertNull(mapper.flushSeq);
+    }
+
+    private static TelemetryRollupServiceImpl newService(FakeMapper mapper, TransactionTemplate tx) {
+        TelemetryRollupServiceImpl service = new TelemetryRollupServiceImpl();
+        ReflectionTestUtils.setField(service, "mapper", mapper);
+        ReflectionTestUtils.setField(service, "transactionTemplate", tx);
+        return service;
+    }
+
+    private static void flush(TelemetryRollupServiceImpl service) {
+        ReflectionTestUtils.invokeMethod(service, "flush");
+    }
+
+    /**
+     * 分钟粒度查询T0起10分钟内的温湿度采样总数
+     */
+    private static int dhtCount(TelemetryRollupServiceImpl service) {
+        TelemetryRangeResponse range = service.getRange(CLIENT_ID, T0, T0.plusMinutes(10), 100);
+        assertEquals("minute", range.getResolution());
+        return range.getPoints().stream().mapToInt(TelemetryPointResponse::getDhtCount).sum();
+    }
+
+    /**
+     * 只有提交成功才调用回调写入的事务桩
+     */
+    private static final class FakeTransactionTemplate extends TransactionTemplate {
+        private volatile boolean failBeforeCommit;
+        private volatile boolean failAfterCommit;
+
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            if (failBeforeCommit) {
+                throw new TransactionSystemException("连接已断开");
+            }
+            T result = action.doInTransaction(null);
+            if (failAfterCommit) {
+                throw new TransactionSystemException("提交应答丢失");
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 内存聚合表桩: 每次upsert追加一行，查询时由服务按时间桶合并
+     */
+    private static final class FakeMapper implements TelemetryRollupMapper {
+        private final List<String> tables = new ArrayList<>();
+        private final List<TelemetryRollup> rows = new ArrayList<>();
+        private volatile Long flushSeq;
+        private volatile boolean failFlushSeqQuery;
+        /** 删除标记时表里的批次序号 */
+        private volatile Long deletedFlushSeq;
+        private CountDownLatch upsertEntered;
+        private CountDownLatch blockUpsert;
+
+        @Override
+        public synchronized int upsertBatch(String table, List<TelemetryRollup> list) {
+            if (blockUpsert != null) {
+                upsertEntered.countDown();
+                try {
+                    blockUpsert.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            for (TelemetryRollup row : list) {
+                tables.add(table);
+                rows.add(row);
+            }
+            return list.size();
+        }
+
+        @Override
+        public synchronized List<TelemetryRollup> selectRange(String table, String clientId,
+                                                              LocalDateTime from, LocalDateTime to) {
+            List<TelemetryRollup> result = new ArrayList<>();
+            for (int i = 0; i < rows.size(); i++) {
+                TelemetryRollup row = rows.get(i);
+                if (tables.get(i).equals(table) && row.getClientId().equals(clientId)
+                        && !row.getBucketTime().isBefore(from) && row.getBucketTime().isBefore(to)) {
+                    result.add(row);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public int markFlushed(String instanceId, long flushSeq) {
+            this.flushSeq = flushSeq;
+            return 1;
+        }
+
+        @Override
+        public Long selectFlushSeq(String instanceId) {
+            if (failFlushSeqQuery) {
+                throw new IllegalStateException("数据库不可用");
+            }
+            return flushSeq;
+        }
+
+        @Override
+        public int deleteFlushMark(String instanceId) {
+            deletedFlushSeq = flushSeq;
+            flushSeq = null;
+            return 1;
+        }
+
+        private synchronized List<TelemetryRollup> minuteRows() {
+            return selectRange("telemetry_rollup_minute", CLIENT_ID, LocalDateTime.MIN, LocalDateTime.MAX);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.springboot.utils;
+
+import com.springboot.pojo.vo.ExecutorStatsResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AI接口客户端测试(本地桩HTTP服务)
+ * 覆盖流式请求体、截止时间、并发上限和排队拒绝
+ */
+class ChatCompletionClientTest {
+
+    private static final String REPLY = "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"房间里没有人\"}}]}";
+
+    private HttpServer server;
+    private ChatCompletionClient client;
+
+    @AfterEach
+    void tearDown() {
+        if (client != null) {
+            client.shutdown();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void streamsImageAndParsesReply(@TempDir Path dir) throws Exception {
+        byte[] image = new byte[100_000];
+        new java.util.Random(1).nextBytes(image);
+        Path file = Files.write(dir.resolve("cam01_1.jpg"), image);
+
+        AtomicReference<String> received = new AtomicReference<>();
+        AtomicReference<String> auth = new AtomicReference<>();
+        startServer(exchange -> {
+            received.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            auth.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            reply(exchange, REPLY);
+        }, 4);
+        client = newClient(5000, 2, 4);
+
+        String content = client.chat(List.of(Map.of("role", "user", "content", List.of(
+                Map.of("type", "image_url", "image_url", Map.of("url", new ImageDataUrl(file))),
+                Map.of("type", "text", "text", "房间里有人吗？"))))).get(5, TimeUnit.SECONDS);
+
+        assertEquals("房间里没有人", content);
+        assertEquals("Bearer test-key", auth.get());
+        assertTrue(received.get().contains("\"data:image/jpeg;base64," + Base64.getEncoder().encodeToString(image) + "\""));
+        assertTrue(received.get().contains("\"model\":\"test-model\""));
+        assertEquals(1, awaitStats(client, stats -> stats.getCompleted() > 0).getCompleted());
+    }
+
+    @Test
+    void failsAtDeadline() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        startServer(exchange -> {
+            await(release);
+            reply(exchange, REPLY);
+        }, 4);
+        client = newClient(300, 2, 4);
+
+        long start = System.nanoTime();
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client.chat(textMessages()).get(5, TimeUnit.SECONDS));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        release.countDown();
+
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertTrue(elapsedMs < 2000, "截止时间未生效: " + elapsedMs + "ms");
+        assertEquals(1, awaitStats(client, stats -> stats.getTimedOut() > 0).getTimedOut());
+    }
+
+    @Test
+    void limitsConcurrencyAndRejectsWhenQueueFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch arrived = new CountDownLatch(2);
+        startServer(exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            arrived.countDown();
+            await(release);
+            reply(exchange, REPLY);
+        }, 8);
+        client = newClient(10_000, 2, 1);
+
+        List<CompletableFuture<String>> accepted = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            accepted.add(client.chat(textMessages()));
+        }
+        // 2个执行中、1个排队，第4个直接拒绝
+        assertTrue(arrived.await(5, TimeUnit.SECONDS));
+        ExecutionException rejected = assertThrows(ExecutionException.class,
+                () -> client.chat(textMessages()).get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, rejected.getCause());
+
+        ExecutorStatsResponse busy = client.getStats();
+        assertEquals(2, busy.getActive());
+        assertEquals(1, busy.getQueued());
+        assertEquals(1, busy.getRejected());
+
+        release.countDown();
+        for (CompletableFuture<String> future : accepted) {
+            assertEquals("房间里没有人", future.get(5, TimeUnit.SECONDS));
+        }
+        ExecutorStatsResponse done = awaitStats(client, stats -> stats.getActive() == 0);
+        assertEquals(3, done.getCompleted());
+        assertEquals(0, done.getActive());
+        assertTrue(done.getMaxQueueWaitMs() >= 0);
+    }
+
+    private ChatCompletionClient newClient(long requestTimeoutMs, int maxConcurrency, int queueCapacity) {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions";
+        return new ChatCompletionClient(url, "test-key", "test-model", 1000, requestTimeoutMs,
+                maxConcurrency, queueCapacity);
+    }
+
+    private static List<Map<String, Object>> textMessages() {
+        return List.of(Map.of("role", "user", "content", "你好"));
+    }
+
+    private void startServer(Handler handler, int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            try {
+                handler.handle(exchange);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(threads));
+        server.start();
+    }
+
+    private static void reply(HttpExchange exchange, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Future先完成、统计后更新，等执行线程收尾后再取统计
+     */
+    private static ExecutorStatsResponse awaitStats(ChatCompletionClient client,
+                                                    Predicate<ExecutorStatsResponse> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        ExecutorStatsResponse stats = client.getStats();
+        while (!condition.test(stats) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            stats = client.getStats();
+        }
+        return stats;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+}
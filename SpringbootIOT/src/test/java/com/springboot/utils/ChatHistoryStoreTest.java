@@ -0,0 +1,64 @@
+package com.springboot.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AI会话历史测试
+ * 覆盖历史图片被同名新图覆盖、被清理时按占位文本发送
+ */
+class ChatHistoryStoreTest {
+
+    private static final String SESSION = "s1";
+
+    @Test
+    void sendsRecordedImage(@TempDir Path dir) throws Exception {
+        Path image = Files.write(dir.resolve("cam01_0.jpg"), new byte[]{1, 2, 3});
+        ChatHistoryStore store = newStore();
+        store.addUser(SESSION, "房间里有人吗？", image);
+
+        assertInstanceOf(List.class, content(store.toMessages(SESSION).get(0)));
+    }
+
+    @Test
+    void overwrittenImageFallsBackToPlaceholder(@TempDir Path dir) throws Exception {
+        Path image = Files.write(dir.resolve("cam01_0.jpg"), new byte[]{1, 2, 3});
+        ChatHistoryStore store = newStore();
+        store.addUser(SESSION, "房间里有人吗？", image);
+        store.addAssistant(SESSION, "没有人");
+
+        // 语音拍照重新上传了同名图片
+        Files.write(image, new byte[]{4, 5, 6, 7});
+        Files.setLastModifiedTime(image, FileTime.fromMillis(Files.getLastModifiedTime(image).toMillis() + 1000));
+
+        Object content = content(store.toMessages(SESSION).get(0));
+        assertEquals("[图片: cam01_0.jpg]\n房间里有人吗？", content);
+    }
+
+    @Test
+    void deletedImageFallsBackToPlaceholder(@TempDir Path dir) throws Exception {
+        Path image = Files.write(dir.resolve("cam01_5.jpg"), new byte[]{1, 2, 3});
+        ChatHistoryStore store = newStore();
+        store.addUser(SESSION, "现在呢？", image);
+
+        Files.delete(image);
+
+        assertEquals("[图片: cam01_5.jpg]\n现在呢？", content(store.toMessages(SESSION).get(0)));
+    }
+
+    private static ChatHistoryStore newStore() {
+        return new ChatHistoryStore(10, 100_000, 2, 1000, 60_000, 10);
+    }
+
+    private static Object content(Map<String, Object> message) {
+        return message.get("content");
+    }
+}
@@ -0,0 +1,88 @@
+package com.springboot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 指令ID分配器并发唯一性测试
+ */
+class CmdIdAllocatorTest {
+
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 500_000;
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        assertAllUnique(new CmdIdAllocator(CmdIdAllocator.clockSeed()));
+    }
+
+    @Test
+    void idsStayUniqueAcrossWraparound() throws Exception {
+        // 从上限附近开始，跨越回绕点
+        assertAllUnique(new CmdIdAllocator(CmdIdAllocator.MAX_ID - THREADS * IDS_PER_THREAD / 2));
+    }
+
+    @Test
+    void wrapsFromMaxToOne() {
+        CmdIdAllocator allocator = new CmdIdAllocator(CmdIdAllocator.MAX_ID - 1);
+        assertEquals(CmdIdAllocator.MAX_ID - 1, allocator.nextId());
+        assertEquals(CmdIdAllocator.MAX_ID, allocator.nextId());
+        assertEquals(1, allocator.nextId());
+        assertEquals(2, allocator.nextId());
+    }
+
+    @Test
+    void seedIsNormalizedIntoInt32Range() {
+        assertEquals(1, CmdIdAllocator.normalize(1));
+        assertEquals(CmdIdAllocator.MAX_ID, CmdIdAllocator.normalize(0));
+        assertEquals(CmdIdAllocator.MAX_ID - 1, CmdIdAllocator.normalize(-1));
+        assertEquals(1, CmdIdAllocator.normalize(CmdIdAllocator.MAX_ID + 1));
+        long seed = CmdIdAllocator.clockSeed();
+        assertTrue(seed >= 1 && seed <= CmdIdAllocator.MAX_ID);
+    }
+
+    /**
+     * 多线程同时分配THREADS * IDS_PER_THREAD个ID，验证全部在int32范围内且互不重复
+     */
+    private void assertAllUnique(CmdIdAllocator allocator) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                long[] ids = new long[IDS_PER_THREAD];
+                start.await();
+                for (int i = 0; i < IDS_PER_THREAD; i++) {
+                    ids[i] = allocator.nextId();
+                }
+                return ids;
+            }));
+        }
+        start.countDown();
+
+        long[] all = new long[THREADS * IDS_PER_THREAD];
+        int offset = 0;
+        for (Future<long[]> future : futures) {
+            long[] ids = future.get();
+            System.arraycopy(ids, 0, all, offset, ids.length);
+            offset += ids.length;
+        }
+        pool.shutdown();
+
+        Arrays.sort(all);
+        assertTrue(all[0] >= 1, "ID小于1: " + all[0]);
+        assertTrue(all[all.length - 1] <= CmdIdAllocator.MAX_ID, "ID超出int32: " + all[all.length - 1]);
+        for (int i = 1; i < all.length; i++) {
+            assertNotEquals(all[i - 1], all[i], "ID重复: " + all[i]);
+        }
+    }
+}
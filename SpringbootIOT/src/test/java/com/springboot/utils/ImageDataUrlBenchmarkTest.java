@@ -0,0 +1,126 @@
+package com.springboot.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * AI图片请求体内存分配基准
+ * 对比"读整个文件+Base64字符串+writeValueAsString"与"ImageDataUrl流式写出"每个请求在堆上分配的字节数
+ * 运行: mvn test -Dtest=ImageDataUrlBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ImageDataUrlBenchmarkTest {
+
+    /** 图片大小: VGA / 1080p / 高质量UXGA 的典型JPEG体积 */
+    private static final int[] IMAGE_SIZES = {60 * 1024, 300 * 1024, 1024 * 1024};
+    private static final int WARMUP = 50;
+    private static final int MEASURE = 50;
+
+    private static Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectWriter streamingWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dir = Files.createTempDirectory("ai-payload-bench");
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        try (var files = Files.list(dir)) {
+            for (Path p : files.toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Test
+    void allocatedBytesPerRequest() throws Exception {
+        for (int size : IMAGE_SIZES) {
+            Path image = createImage(size);
+
+            // 两种方式输出的请求体必须一致
+            ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+            streamingWriter.writeValue(streamed, requestBody(new ImageDataUrl(image)));
+            assertArrayEquals(legacy(image), streamed.toByteArray());
+
+            for (int i = 0; i < WARMUP; i++) {
+                legacy(image);
+                streaming(image, OutputStream.nullOutputStream());
+            }
+
+            long before = allocatedBytes();
+            for (int i = 0; i < MEASURE; i++) {
+                legacy(image);
+            }
+            long legacyBytes = (allocatedBytes() - before) / MEASURE;
+
+            before = allocatedBytes();
+            for (int i = 0; i < MEASURE; i++) {
+                streaming(image, OutputStream.nullOutputStream());
+            }
+            long streamingBytes = (allocatedBytes() - before) / MEASURE;
+
+            System.out.printf("image=%,8d B  内存拼接: %,11d B/request (%.1fx图片)  流式写出: %,9d B/request%n",
+                    size, legacyBytes, (double) legacyBytes / size, streamingBytes);
+        }
+    }
+
+    /**
+     * 原实现: 读整个文件 -> Base64字符串 -> 拼data URL -> 整个请求体字符串 -> 请求体字节
+     */
+    private byte[] legacy(Path image) throws Exception {
+        byte[] imageBytes = Files.readAllBytes(image);
+        String imageUrl = "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(imageBytes);
+        String json = objectMapper.writeValueAsString(requestBody(imageUrl));
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void streaming(Path image, OutputStream out) throws Exception {
+        streamingWriter.writeValue(out, requestBody(new ImageDataUrl(image)));
+    }
+
+    private Map<String, Object> requestBody(Object imageUrl) {
+        List<Map<String, Object>> messages = new ArrayList<>();
+        messages.add(Map.of("role", "system", "content", "你是一个智能家居助手"));
+        messages.add(Map.of("role", "user", "content", List.of(
+                Map.of("type", "image_url", "image_url", Map.of("url", imageUrl)),
+                Map.of("type", "text", "text", "房间里有人吗？"))));
+        Map<String, Object> body = new HashMap<>();
+        body.put("model", "Qwen/Qwen2.5-VL-7B-Instruct");
+        body.put("messages", messages);
+        return body;
+    }
+
+    private static Path createImage(int size) throws Exception {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return Files.write(dir.resolve("bench_" + size + ".jpg"), bytes);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+}
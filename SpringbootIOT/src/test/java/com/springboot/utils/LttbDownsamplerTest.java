@@ -0,0 +1,155 @@
+package com.springboot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式LTTB降采样测试
+ * 与按整体数组实现的标准LTTB逐点比对
+ */
+class LttbDownsamplerTest {
+
+    @Test
+    void matchesReferenceLttb() {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 500; trial++) {
+            int n = 1 + random.nextInt(3000);
+            int threshold = 3 + random.nextInt(200);
+            long[] times = new long[n];
+            double[] values = new double[n];
+            for (int i = 0; i < n; i++) {
+                times[i] = i * 2000L + random.nextInt(500);
+                values[i] = Math.sin(i / 37.0) * 20 + random.nextGaussian();
+            }
+
+            LttbDownsampler sampler = new LttbDownsampler(n, threshold, 1.0);
+            double[] buf = new double[1];
+            for (int i = 0; i < n; i++) {
+                buf[0] = values[i];
+                sampler.add(times[i], buf);
+            }
+            sampler.finish();
+
+            int[] expected = reference(times, values, threshold);
+            assertEquals(expected.length, sampler.size(), "n=" + n + ", threshold=" + threshold);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(times[expected[i]], sampler.time(i));
+                assertEquals(values[expected[i]], sampler.value(0, i));
+            }
+        }
+    }
+
+    @Test
+    void keepsSpikeAndEndpoints() {
+        int n = 100_000;
+        LttbDownsampler sampler = new LttbDownsampler(n, 500, 100.0, 100.0);
+        double[] buf = new double[2];
+        for (int i = 0; i < n; i++) {
+            buf[0] = i == 54_321 ? 99 : 20;
+            buf[1] = 50;
+            sampler.add(i * 2000L, buf);
+        }
+        sampler.finish();
+
+        assertEquals(500, sampler.size());
+        assertEquals(0, sampler.time(0));
+        assertEquals((n - 1) * 2000L, sampler.time(sampler.size() - 1));
+        boolean spike = false;
+        for (int i = 0; i < sampler.size(); i++) {
+            spike |= sampler.value(0, i) == 99;
+        }
+        assertTrue(spike, "尖峰点被丢弃");
+    }
+
+    @Test
+    void toleratesCountMismatch() {
+        double[] buf = new double[1];
+        // 实际点数多于预估: 多出的点并入最后一个桶，最后一个点仍保留
+        LttbDownsampler more = new LttbDownsampler(1000, 100, 1.0);
+        for (int i = 0; i < 1300; i++) {
+            buf[0] = i;
+            more.add(i, buf);
+        }
+        more.finish();
+        assertEquals(100, more.size());
+        assertEquals(1299, more.time(more.size() - 1));
+
+        // 实际点数少于预估: 点数变少，首尾仍保留
+        LttbDownsampler fewer = new LttbDownsampler(1000, 100, 1.0);
+        for (int i = 0; i < 700; i++) {
+            buf[0] = i;
+            fewer.add(i, buf);
+        }
+        fewer.finish();
+        assertTrue(fewer.size() < 100);
+        assertEquals(0, fewer.time(0));
+        assertEquals(699, fewer.time(fewer.size() - 1));
+    }
+
+    @Test
+    void passesThroughSmallInput() {
+        LttbDownsampler sampler = new LttbDownsampler(5, 10, 1.0);
+        double[] buf = new double[1];
+        for (int i = 0; i < 7; i++) {
+            buf[0] = i;
+            sampler.add(i, buf);
+        }
+        sampler.finish();
+        assertEquals(7, sampler.size());
+    }
+
+    /**
+     * 标准LTTB(整体数组)，返回选中点下标
+     */
+    private static int[] reference(long[] t, double[] v, int threshold) {
+        int n = t.length;
+        if (n <= threshold) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        int[] out = new int[threshold];
+        int k = 0;
+        out[k++] = 0;
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+        for (int i = 0; i < threshold - 2; i++) {
+            // 下一个桶(最后一个桶的下一个是末点)
+            int avgStart = (int) Math.floor((i + 1) * every) + 1;
+            int avgEnd = i == threshold - 4 ? n - 1 : Math.min((int) Math.floor((i + 2) * every) + 1, n);
+            if (i == threshold - 3) {
+                avgStart = n - 1;
+                avgEnd = n;
+            }
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += t[j];
+                avgY += v[j];
+            }
+            avgX /= avgEnd - avgStart;
+            avgY /= avgEnd - avgStart;
+
+            int start = (int) Math.floor(i * every) + 1;
+            int end = i == threshold - 3 ? n - 1 : (int) Math.floor((i + 1) * every) + 1;
+            double maxArea = -1;
+            int best = start;
+            for (int j = start; j < end; j++) {
+                double area = Math.abs((t[a] - avgX) * (v[j] - v[a]) - (t[a] - t[j]) * (avgY - v[a]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    best = j;
+                }
+            }
+            out[k++] = best;
+            a = best;
+        }
+        out[k] = n - 1;
+        return out;
+    }
+}
@@ -0,0 +1,75 @@
+package com.springboot.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 请求/回执关联表测试
+ * 覆盖截止时间过期、短等待(await)超时不影响条目、取消即移除
+ */
+class ReplyRegistryTest {
+
+    private final TimerWheel timer = new TimerWheel("reply-test", 10, 64);
+    private final ReplyRegistry<Long, String> registry = new ReplyRegistry<>("test", timer);
+
+    @AfterEach
+    void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    void completesWaiterAndKeepsEntryUntilDeadline() throws Exception {
+        registry.register(1L, 5_000);
+        CompletableFuture<String> waiter = registry.await(1L, 5_000);
+
+        assertTrue(registry.complete(1L, "ok"));
+        assertEquals("ok", waiter.get(1, TimeUnit.SECONDS));
+        // 回执先到达，截止前仍能取到结果
+        assertEquals("ok", registry.get(1L).getNow(null));
+        assertEquals(1, registry.size());
+        assertEquals(0, registry.getWaiting());
+    }
+
+    @Test
+    void awaitTimesOutWithoutExpiringEntry() throws Exception {
+        CompletableFuture<String> future = registry.register(2L, 5_000);
+        CompletableFuture<String> waiter = registry.await(2L, 50);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> waiter.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        // 短等待到期不影响条目，迟到的回执仍能完成
+        assertFalse(future.isDone());
+        assertTrue(registry.complete(2L, "late"));
+        assertEquals("late", future.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void expiresAtDeadline() throws Exception {
+        CompletableFuture<String> future = registry.register(3L, 50);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertNull(registry.get(3L));
+        assertNull(registry.await(3L, 1_000));
+    }
+
+    @Test
+    void cancelRemovesEntryAndTimer() {
+        CompletableFuture<String> future = registry.register(4L, 60_000);
+        assertEquals(1, timer.pendingCount());
+
+        future.cancel(false);
+
+        assertNull(registry.get(4L));
+        assertEquals(0, registry.size());
+        assertEquals(1, registry.getStats().getCancelled());
+        assertEquals(0, timer.pendingCount());
+    }
+}
@@ -0,0 +1,79 @@
+package com.springboot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 遥测环形缓冲区测试
+ * 覆盖滚动覆盖、库中历史补齐、超出容量时交给调用方查库，以及int列的补齐和读取
+ */
+class TelemetryRingTest {
+
+    @Test
+    void keepsLatestPointsInOrder() {
+        DoubleTelemetryRing ring = new DoubleTelemetryRing(3);
+        for (int i = 1; i <= 5; i++) {
+            ring.add(i * 1000L, i, i * 10);
+        }
+
+        assertEquals(List.of(3000L, 4000L, 5000L), times(ring, 3));
+        assertEquals(List.of(4000L, 5000L), times(ring, 2));
+        List<Double> latest = new ArrayList<>();
+        assertTrue(ring.latest((time, first, second) -> latest.add(second)));
+        assertEquals(List.of(50.0), latest);
+    }
+
+    @Test
+    void seedsOnlyHistoryOlderThanBuffer() {
+        DoubleTelemetryRing ring = new DoubleTelemetryRing(4);
+        ring.add(10_000, 1, 1);
+        // 库里已有10秒这条(秒级精度)，只有更早的两条应补到前面
+        List<long[]> history = List.of(new long[]{7_000, 7}, new long[]{8_000, 8}, new long[]{10_000, 1});
+        ring.seed(history, row -> row[0], row -> row[1], row -> row[1]);
+
+        assertTrue(ring.isSeeded());
+        assertEquals(List.of(7_000L, 8_000L, 10_000L), times(ring, 4));
+
+        ring.add(11_000, 2, 2);
+        ring.add(12_000, 3, 3);
+        assertEquals(List.of(8_000L, 10_000L, 11_000L, 12_000L), times(ring, 4));
+    }
+
+    @Test
+    void limitBeyondCapacityIsNotCovered() {
+        DoubleTelemetryRing ring = new DoubleTelemetryRing(2);
+        ring.add(1000, 1, 1);
+
+        assertFalse(ring.forEachLatest(3, (time, first, second) -> fail("不应遍历")));
+        assertEquals(List.of(1000L), times(ring, 2));
+        assertFalse(new DoubleTelemetryRing(2).latest((time, first, second) -> fail("空缓冲区")));
+    }
+
+    @Test
+    void intRingSeedsAndReadsIntColumns() {
+        IntTelemetryRing ring = new IntTelemetryRing(3);
+        ring.add(10_000, -60, 120_000);
+        ring.seed(List.of(new int[]{8, -70, 100_000}, new int[]{9, -65, 110_000}),
+                row -> row[0] * 1000L, row -> row[1], row -> row[2]);
+        ring.add(11_000, -55, 130_000);
+
+        List<Integer> rssi = new ArrayList<>();
+        List<Integer> freeHeap = new ArrayList<>();
+        assertTrue(ring.forEachLatest(3, (time, first, second) -> {
+            rssi.add(first);
+            freeHeap.add(second);
+        }));
+        assertEquals(List.of(-65, -60, -55), rssi);
+        assertEquals(List.of(110_000, 120_000, 130_000), freeHeap);
+    }
+
+    private static List<Long> times(DoubleTelemetryRing ring, int limit) {
+        List<Long> times = new ArrayList<>();
+        assertTrue(ring.forEachLatest(limit, (time, first, second) -> times.add(time)));
+        return times;
+    }
+}
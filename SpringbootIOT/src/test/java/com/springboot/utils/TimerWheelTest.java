@@ -0,0 +1,85 @@
+package com.springboot.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 时间轮定时器测试
+ * 覆盖跨多圈到期(remainingRounds)、取消后不执行、同桶内不同圈数的任务互不影响
+ */
+class TimerWheelTest {
+
+    /** 10ms一个tick、4个桶，一圈40ms */
+    private final TimerWheel timer = new TimerWheel("timer-test", 10, 4);
+
+    @AfterEach
+    void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    void expiresAfterSeveralRounds() throws Exception {
+        long start = System.nanoTime();
+        CompletableFuture<Long> fired = new CompletableFuture<>();
+        // 200ms = 20个tick，绕5圈
+        timer.newTimeout(() -> fired.complete(System.nanoTime()), 200);
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(fired.get(2, TimeUnit.SECONDS) - start);
+        assertTrue(elapsedMs >= 200, "过早到期: " + elapsedMs + "ms");
+        assertEquals(0, timer.pendingCount());
+    }
+
+    @Test
+    void sameBucketDifferentRoundsExpireInOrder() throws Exception {
+        CountDownLatch done = new CountDownLatch(2);
+        AtomicInteger order = new AtomicInteger();
+        int[] seen = new int[2];
+        // 40ms和120ms落在同一个桶，分别是第1圈和第3圈
+        timer.newTimeout(() -> {
+            seen[1] = order.incrementAndGet();
+            done.countDown();
+        }, 120);
+        timer.newTimeout(() -> {
+            seen[0] = order.incrementAndGet();
+            done.countDown();
+        }, 40);
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertArrayEquals(new int[]{1, 2}, seen);
+    }
+
+    @Test
+    void cancelledTimeoutNeverRuns() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        TimerWheel.Timeout cancelled = timer.newTimeout(runs::incrementAndGet, 100);
+        CountDownLatch later = new CountDownLatch(1);
+        timer.newTimeout(later::countDown, 200);
+        assertEquals(2, timer.pendingCount());
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertEquals(1, timer.pendingCount());
+
+        // 取消的任务过了原定时间也不执行
+        assertTrue(later.await(2, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+        assertEquals(0, timer.pendingCount());
+    }
+
+    @Test
+    void cancelAfterExpiryFails() throws Exception {
+        CountDownLatch fired = new CountDownLatch(1);
+        TimerWheel.Timeout timeout = timer.newTimeout(fired::countDown, 0);
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertFalse(timeout.cancel());
+        assertEquals(0, timer.pendingCount());
+    }
+}
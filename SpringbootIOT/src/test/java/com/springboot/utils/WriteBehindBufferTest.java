@@ -0,0 +1,164 @@
+package com.springboot.utils;
+
+import com.springboot.pojo.vo.WriteBufferStatsResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量异步写缓冲区测试
+ * 覆盖PARK策略下暂存批次按顺序重试、超出暂存上限丢弃最早的批次，
+ * 以及关闭后(含与add并发关闭)每一行都计入已写入/失败/丢弃之一
+ */
+class WriteBehindBufferTest {
+
+    /** 单批行数大于每次flush前添加的行数，add不会触发后台写库，批次划分由测试决定 */
+    private static final int BATCH_SIZE = 100;
+
+    @Test
+    void parkedBatchesAreRetriedInOrder() {
+        FlakyWriter writer = new FlakyWriter();
+        WriteBehindBuffer<Integer> buffer = parkingBuffer(writer, 100);
+
+        writer.down.set(true);
+        addAll(buffer, 1, 2);
+        buffer.flush();
+        addAll(buffer, 3, 4);
+        buffer.flush();
+        assertEquals(4, buffer.getStats().getParkedRows());
+        assertEquals(0, buffer.getStats().getBacklog());
+
+        writer.down.set(false);
+        addAll(buffer, 5);
+        buffer.flush();
+
+        assertEquals(List.of(1, 2, 3, 4, 5), writer.written);
+        WriteBufferStatsResponse stats = buffer.getStats();
+        assertEquals(5, stats.getFlushedRows());
+        assertEquals(0, stats.getParkedRows());
+        assertEquals(0, stats.getFailedRows());
+        buffer.shutdown();
+    }
+
+    @Test
+    void oldestBatchesAreEvictedPastParkCapacity() {
+        FlakyWriter writer = new FlakyWriter();
+        WriteBehindBuffer<Integer> buffer = parkingBuffer(writer, 4);
+
+        writer.down.set(true);
+        addAll(buffer, 1, 2);
+        buffer.flush();
+        addAll(buffer, 3, 4);
+        buffer.flush();
+        addAll(buffer, 5, 6);
+        buffer.flush();
+        WriteBufferStatsResponse stats = buffer.getStats();
+        assertEquals(4, stats.getParkedRows());
+        assertEquals(2, stats.getFailedRows());
+
+        writer.down.set(false);
+        buffer.flush();
+        assertEquals(List.of(3, 4, 5, 6), writer.written);
+        buffer.shutdown();
+    }
+
+    @Test
+    void shutdownCountsEveryRow() {
+        FlakyWriter writer = new FlakyWriter();
+        WriteBehindBuffer<Integer> buffer = parkingBuffer(writer, 3);
+
+        addAll(buffer, 1, 2);
+        buffer.flush();
+        writer.down.set(true);
+        addAll(buffer, 3, 4);
+        buffer.flush();
+        addAll(buffer, 5, 6, 7);
+        buffer.shutdown();
+        addAll(buffer, 8);
+
+        WriteBufferStatsResponse stats = buffer.getStats();
+        assertEquals(2, stats.getFlushedRows());
+        assertEquals(5, stats.getFailedRows());
+        assertEquals(1, stats.getDroppedRows());
+        assertEquals(0, stats.getParkedRows());
+        assertEquals(0, stats.getBacklog());
+    }
+
+    @Test
+    void addRacingShutdownCountsEveryRow() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            AtomicInteger calls = new AtomicInteger();
+            // 每3批失败1批，覆盖写入、暂存和关闭时丢失
+            WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test", 50, 5, 100_000, batch -> {
+                if (calls.incrementAndGet() % 3 == 0) {
+                    throw new IllegalStateException("数据库不可用");
+                }
+            }, WriteBehindBuffer.FailurePolicy.PARK, 200);
+            buffer.start();
+
+            AtomicBoolean stop = new AtomicBoolean();
+            AtomicLong added = new AtomicLong();
+            CountDownLatch started = new CountDownLatch(4);
+            List<Thread> producers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread producer = new Thread(() -> {
+                    started.countDown();
+                    for (int i = 0; !stop.get(); i++) {
+                        buffer.add(i);
+                        added.incrementAndGet();
+                    }
+                });
+                producer.start();
+                producers.add(producer);
+            }
+            started.await();
+            Thread.sleep(10);
+            buffer.shutdown();
+            stop.set(true);
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            WriteBufferStatsResponse stats = buffer.getStats();
+            assertEquals(added.get(), stats.getFlushedRows() + stats.getFailedRows() + stats.getDroppedRows(),
+                    "第" + round + "轮: " + stats);
+            assertEquals(0, stats.getBacklog());
+            assertEquals(0, stats.getParkedRows());
+        }
+    }
+
+    private static WriteBehindBuffer<Integer> parkingBuffer(Consumer<List<Integer>> writer, int parkCapacity) {
+        return new WriteBehindBuffer<>("test", BATCH_SIZE, 60_000, 1000, writer,
+                WriteBehindBuffer.FailurePolicy.PARK, parkCapacity);
+    }
+
+    private static void addAll(WriteBehindBuffer<Integer> buffer, int... items) {
+        for (int item : items) {
+            buffer.add(item);
+        }
+    }
+
+    /**
+     * 可切换为失败的写库回调，记录写入成功的行
+     */
+    private static final class FlakyWriter implements Consumer<List<Integer>> {
+        private final AtomicBoolean down = new AtomicBoolean();
+        private final List<Integer> written = new ArrayList<>();
+
+        @Override
+        public void accept(List<Integer> batch) {
+            if (down.get()) {
+                throw new IllegalStateException("数据库不可用");
+            }
+            written.addAll(batch);
+        }
+    }
+}
@@ -715,9 +715,10 @@ function displayLogs(logs) {
 
     logs.forEach(log => {
         const resultColor = log.result === 'success' ? '#4caf50' :
-            log.result === 'failed' ? '#f44336' : '#ff9800';
+            log.result === 'failed' || log.result === 'timeout' ? '#f44336' : '#ff9800';
         const resultText = log.result === 'success' ? '✓ 成功' :
-            log.result === 'failed' ? '✗ 失败' : '⏳ 处理中';
+            log.result === 'failed' ? '✗ 失败' :
+            log.result === 'timeout' ? '⌛ 超时' : '⏳ 处理中';
 
         html += `
             <tr style="border-bottom: 1px solid #eee;">
@@ -762,15 +763,17 @@ function addLogToTop(logData) {
     }
 
     const resultColor = logData.result === 'success' ? '#4caf50' :
-        logData.result === 'failed' ? '#f44336' : '#ff9800';
+        logData.result === 'failed' || logData.result === 'timeout' ? '#f44336' : '#ff9800';
     const resultText = logData.result === 'success' ? '✓ 成功' :
-        logData.result === 'failed' ? '✗ 失败' : '⏳ 处理中';
+        logData.result === 'failed' ? '✗ 失败' :
+        logData.result === 'timeout' ? '⌛ 超时' : '⏳ 处理中';
 
-    // 如果是success或failed，尝试找到并更新pending行
+    // 如果是success/failed/timeout，尝试找到并更新pending行(超时后迟到的回执更新timeout行)
     if (logData.result !== 'pending') {
         const rows = tbody.querySelectorAll('tr[data-operation]');
         for (const row of rows) {
-            if (row.dataset.operation === logData.operation && row.dataset.status === 'pending') {
+            if (row.dataset.operation === logData.operation &&
+                (row.dataset.status === 'pending' || (row.dataset.status === 'timeout' && logData.result !== 'timeout'))) {
                 // 更新这一行
                 row.dataset.status = logData.result;
                 row.querySelector('.result-cell').innerHTML =